@@ -1,9 +1,11 @@
 #!/usr/bin/env node
 
-const { spawn } = require('child_process');
+const { spawn, spawnSync } = require('child_process');
 const path = require('path');
 const https = require('https');
 const fs = require('fs');
+const os = require('os');
+const crypto = require('crypto');
 const { promisify } = require('util');
 
 const mkdir = promisify(fs.mkdir);
@@ -16,9 +18,19 @@ const VERSION = 'v1.0.0';
 const JAR_URL = `https://github.com/${GITHUB_USER}/${GITHUB_REPO}/releases/download/${VERSION}/mcp-server.jar`;
 
 // Local cache directory
-const CACHE_DIR = path.join(require('os').homedir(), '.elasticsearch-mcp');
+const CACHE_DIR = path.join(os.homedir(), '.elasticsearch-mcp');
 const JAR_PATH = path.join(CACHE_DIR, 'mcp-server.jar');
 
+// Startup-optimized launch: the jar extracted for class data sharing plus a CDS archive of a training run,
+// prepared once per jar and Java version in its own directory under STARTUP_DIR. A prepared directory is never
+// modified or deleted (sessions may be running from it), except by --clear-cache.
+// Set ELASTICSEARCH_MCP_CDS=false to run the plain jar.
+const STARTUP_DIR = path.join(CACHE_DIR, 'startup');
+// A preparation lock older than this was left by a session that died while preparing
+const STALE_LOCK_MS = 10 * 60 * 1000;
+// Environment of the user's server the training run must not see: it never talks to Redash or writes user data
+const TRAINING_ENV_EXCLUDED = /^(REDASH_|MCP_DATA_DIR$|ROLLUP_DIR$|RESULT_CACHE_DIR$|EXPORT_DIR$|STANDING_QUERIES_DIR$)/;
+
 async function ensureCacheDir() {
   try {
     await access(CACHE_DIR);
@@ -76,6 +88,140 @@ async function checkJarExists() {
   }
 }
 
+function javaVersion() {
+  const result = spawnSync('java', ['-version'], { encoding: 'utf8' });
+  return result.status === 0 ? result.stderr.split('\n')[0].trim() : null;
+}
+
+function startupPaths(key) {
+  const hash = crypto.createHash('sha256').update(JSON.stringify(key)).digest('hex').slice(0, 16);
+  const dir = path.join(STARTUP_DIR, hash);
+  return {
+    dir,
+    lock: `${dir}.lock`,
+    jar: path.join(dir, 'mcp-server.jar'),
+    archive: path.join(dir, 'application.jsa'),
+    state: path.join(dir, 'startup.json'),
+  };
+}
+
+function readStartupState(paths) {
+  try {
+    return JSON.parse(fs.readFileSync(paths.state, 'utf8'));
+  } catch {
+    return null;
+  }
+}
+
+// Exclusive lock on preparing a startup directory, false when another session holds it
+function acquireLock(lock) {
+  fs.mkdirSync(STARTUP_DIR, { recursive: true });
+  try {
+    fs.closeSync(fs.openSync(lock, 'wx'));
+    return true;
+  } catch (err) {
+    if (err.code !== 'EEXIST') {
+      throw err;
+    }
+  }
+  try {
+    if (Date.now() - fs.statSync(lock).mtimeMs < STALE_LOCK_MS) {
+      return false;
+    }
+    fs.rmSync(lock, { force: true });
+    fs.closeSync(fs.openSync(lock, 'wx'));
+    return true;
+  } catch {
+    return false;
+  }
+}
+
+// Training run: starts the application context and exits right after the refresh, the JVM dumps the
+// classes it loaded into the archive. Jars built with the startup profile also carry Spring AOT
+// initializers; for other jars the AOT run fails and training falls back to a regular run.
+// It runs in a scratch directory with its data directories there and a Redash address that is never reached.
+function trainArchive(paths, aot) {
+  const args = [`-XX:ArchiveClassesAtExit=${paths.archive}`, '-Dspring.context.exit=onRefresh'];
+  if (aot) {
+    args.push('-Dspring.aot.enabled=true');
+  }
+  const scratch = fs.mkdtempSync(path.join(os.tmpdir(), 'elasticsearch-mcp-training-'));
+  args.push('-jar', paths.jar, '--server.port=0', `--elasticsearch.data-dir=${path.join(scratch, 'data')}`,
+    '--redash.base-url=http://127.0.0.1:9', '--redash.api-key=training');
+  const env = Object.fromEntries(Object.entries(process.env).filter(([name]) => !TRAINING_ENV_EXCLUDED.test(name)));
+  try {
+    const result = spawnSync('java', args, { stdio: 'ignore', cwd: scratch, env });
+    return result.status === 0 && fs.existsSync(paths.archive);
+  } finally {
+    fs.rmSync(scratch, { recursive: true, force: true });
+  }
+}
+
+// Startup directory for the current jar and Java version, prepared on first use; null to run the plain jar.
+// Only the session holding the lock prepares it, the state file is written last, so a directory with one is
+// complete and read-only from then on. Sessions starting meanwhile run the plain jar.
+function prepareStartup() {
+  const jar = fs.statSync(JAR_PATH);
+  const key = { jarSize: jar.size, jarModified: jar.mtimeMs, java: javaVersion() };
+  const paths = startupPaths(key);
+  const state = readStartupState(paths);
+  if (state) {
+    return state.cds ? { ...state, paths } : null;
+  }
+  if (!acquireLock(paths.lock)) {
+    console.log('ℹ️  Startup archive is being prepared by another session, running the plain jar');
+    return null;
+  }
+
+  try {
+    // Another session may have finished between the first check and the lock
+    const finished = readStartupState(paths);
+    if (finished) {
+      return finished.cds ? { ...finished, paths } : null;
+    }
+    console.log('⚙️  Preparing startup archive (first launch after a download or Java update)...');
+    // Left over from a preparation that died, nothing runs from a directory without a state file
+    fs.rmSync(paths.dir, { recursive: true, force: true });
+    const extracted = spawnSync('java', ['-Djarmode=tools', '-jar', JAR_PATH, 'extract', '--destination', paths.dir],
+      { stdio: 'ignore' }).status === 0;
+    const aot = extracted && trainArchive(paths, true);
+    const cds = aot || (extracted && trainArchive(paths, false));
+    if (!cds) {
+      console.log('ℹ️  Startup archive not available, running the plain jar');
+      fs.mkdirSync(paths.dir, { recursive: true });
+    }
+    const prepared = { ...key, cds, aot };
+    const temporary = `${paths.state}.${process.pid}.tmp`;
+    fs.writeFileSync(temporary, JSON.stringify(prepared, null, 2));
+    fs.renameSync(temporary, paths.state);
+    return cds ? { ...prepared, paths } : null;
+  } finally {
+    fs.rmSync(paths.lock, { force: true });
+  }
+}
+
+function javaArgs() {
+  if (process.env.ELASTICSEARCH_MCP_CDS === 'false') {
+    return ['-jar', JAR_PATH];
+  }
+  let startup = null;
+  try {
+    startup = prepareStartup();
+  } catch (err) {
+    console.log(`ℹ️  Startup archive not available (${err.message}), running the plain jar`);
+  }
+  if (!startup || !fs.existsSync(startup.paths.archive)) {
+    return ['-jar', JAR_PATH];
+  }
+  // An archive the JVM rejects is skipped with a warning, the server still starts
+  const args = [`-XX:SharedArchiveFile=${startup.paths.archive}`];
+  if (startup.aot) {
+    args.push('-Dspring.aot.enabled=true');
+  }
+  args.push('-jar', startup.paths.jar);
+  return args;
+}
+
 async function startServer() {
   const jarExists = await checkJarExists();
   
@@ -87,9 +233,12 @@ async function startServer() {
   console.log('🚀 Starting Elasticsearch MCP Server...');
   console.log(`   JAR: ${JAR_PATH}`);
   console.log(`   REDASH_BASE_URL: ${process.env.REDASH_BASE_URL || 'not set'}`);
-  console.log('');
   
-  const java = spawn('java', ['-jar', JAR_PATH], {
+  const args = javaArgs();
+  console.log(`   Launch: java ${args.join(' ')}`);
+  console.log('');
+
+  const java = spawn('java', args, {
     stdio: 'inherit',
     env: { ...process.env }
   });
@@ -117,6 +266,7 @@ async function startServer() {
 if (process.argv.includes('--clear-cache')) {
   console.log('🗑️  Clearing cache...');
   try {
+    fs.rmSync(STARTUP_DIR, { recursive: true, force: true });
     fs.unlinkSync(JAR_PATH);
     console.log('✅ Cache cleared!');
   } catch (err) {
@@ -0,0 +1,79 @@
+package com.paytm.mcpserver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result with a baseline result and fails when a benchmark got slower than allowed
+ *
+ * Benchmarks are matched on name, mode and parameters; those missing on either side are reported and skipped.
+ * Throughput regresses when its score drops, every other mode when its score (time per operation) rises.
+ *
+ * Arguments: result file, baseline file (the check is skipped when empty or missing), maximum regression
+ * as a fraction (e.g. 0.15 for 15%)
+ */
+public final class JmhRegressionCheck {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private JmhRegressionCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path result = Path.of(args[0]);
+        String baselineArg = args.length > 1 ? args[1].trim() : "";
+        double maxRegression = args.length > 2 ? Double.parseDouble(args[2]) : 0.15;
+        if (baselineArg.isEmpty() || !Files.isRegularFile(Path.of(baselineArg))) {
+            System.out.println("No JMH baseline (-Djmh.baseline), regression check skipped");
+            return;
+        }
+
+        Map<String, JsonNode> baseline = scores(Path.of(baselineArg));
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, JsonNode> entry : scores(result).entrySet()) {
+            JsonNode before = baseline.remove(entry.getKey());
+            if (before == null) {
+                System.out.printf("%s: not in baseline%n", entry.getKey());
+                continue;
+            }
+            double current = entry.getValue().path("primaryMetric").path("score").asDouble();
+            double previous = before.path("primaryMetric").path("score").asDouble();
+            boolean throughput = "thrpt".equals(entry.getValue().path("mode").asText());
+            // Above 1 when slower, whichever way the mode scores
+            double slowdown = throughput ? previous / current : current / previous;
+            String line = String.format("%s: %.3f -> %.3f %s (%+.1f%%)", entry.getKey(), previous, current,
+                    entry.getValue().path("primaryMetric").path("scoreUnit").asText(), (slowdown - 1) * 100);
+            System.out.println(line);
+            if (slowdown > 1 + maxRegression) {
+                regressions.add(line);
+            }
+        }
+        baseline.keySet().forEach(key -> System.out.printf("%s: no longer run%n", key));
+
+        if (!regressions.isEmpty()) {
+            System.err.printf("%d benchmark(s) regressed more than %.0f%%:%n", regressions.size(), maxRegression * 100);
+            regressions.forEach(System.err::println);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, JsonNode> scores(Path file) throws IOException {
+        Map<String, JsonNode> scores = new HashMap<>();
+        for (JsonNode run : OBJECT_MAPPER.readTree(file.toFile())) {
+            Map<String, String> params = new TreeMap<>();
+            run.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            scores.put(run.path("benchmark").asText() + " [" + run.path("mode").asText() + "]"
+                    + (params.isEmpty() ? "" : " " + params), run);
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,49 @@
+package com.paytm.mcpserver.service;
+
+import com.paytm.mcpserver.utility.JsonCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.config.DependencyDescriptor;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.ContextAnnotationAutowireCandidateResolver;
+
+/**
+ * Services built in a small Spring context for the benchmarks, with only the collaborators the benchmarked code
+ * paths use registered (no Redash client, routing, admission or cache). Constructor injection wires them the way
+ * the server does, collaborators that are not registered are injected as null.
+ */
+final class BenchmarkServices {
+
+    private BenchmarkServices() {
+    }
+
+    /**
+     * RedashSearchService for query building and merging, rowMerger may be null when nothing is merged
+     */
+    static RedashSearchService redashSearchService(SpillingRowMerger rowMerger, JsonCodec jsonCodec) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getDefaultListableBeanFactory().setAutowireCandidateResolver(new OptionalCollaborators());
+        context.registerBean(SimpleMeterRegistry.class);
+        context.registerBean(McpMetrics.class);
+        context.registerBean(JsonCodec.class, () -> jsonCodec);
+        if (rowMerger != null) {
+            context.registerBean(SpillingRowMerger.class, () -> rowMerger);
+        }
+        context.registerBean(RedashSearchService.class);
+        context.refresh();
+        context.registerShutdownHook();
+        return context.getBean(RedashSearchService.class);
+    }
+
+    // Helper classes
+
+    /**
+     * Treats every injection point as optional so unregistered collaborators resolve to null
+     */
+    private static final class OptionalCollaborators extends ContextAnnotationAutowireCandidateResolver {
+
+        @Override
+        public boolean isRequired(DependencyDescriptor descriptor) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paytm.mcpserver.config.EsTierProperties;
+import com.paytm.mcpserver.utility.DateFormatUtility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * es_host and es_indices resolution for a date range, with the tier layout of application.properties
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HostSelectionBenchmark {
+
+    /**
+     * Range length in days ending today: within PRIMARY, spanning PRIMARY/SECONDARY, spanning all tiers
+     */
+    @Param({"30", "365", "900"})
+    private int days;
+
+    private ElasticsearchHostSelector hostSelector;
+    private ElasticSearchIndexFetcher indexFetcher;
+    private String startDate;
+    private String endDate;
+
+    @Setup
+    public void setUp() {
+        EsTierProperties properties = new EsTierProperties();
+        properties.setTiers(List.of(
+                tier("PRIMARY", "UTH_ES_Primary", 3, Period.parse("P6M"), null),
+                tier("SECONDARY", "UTH_ES_Secondary", 5, Period.parse("P6M365D"), null),
+                tier("TERTIARY", "UTH_ES_Tertiary", 12, null, LocalDate.of(2023, 4, 1))));
+        hostSelector = new ElasticsearchHostSelector(properties);
+        hostSelector.validateTiers();
+
+        // Without the index-patterns resource injected the fetcher keeps its default pattern
+        indexFetcher = new ElasticSearchIndexFetcher(new ObjectMapper());
+
+        LocalDate today = LocalDate.now(DateFormatUtility.IST_ZONE);
+        startDate = DateFormatUtility.formatDate(today.minusDays(days));
+        endDate = DateFormatUtility.formatDateEndOfDay(today);
+    }
+
+    @Benchmark
+    public List<ElasticsearchHostSelector.HostCoverage> selectHost() {
+        return hostSelector.selectHost(startDate, endDate);
+    }
+
+    @Benchmark
+    public List<String> findIndicesForDateRange() {
+        return indexFetcher.findIndicesForDateRange(startDate, endDate);
+    }
+
+    private static EsTierProperties.Tier tier(String name, String displayName, int dataSourceId,
+                                              Period retention, LocalDate since) {
+        EsTierProperties.Tier tier = new EsTierProperties.Tier();
+        tier.setName(name);
+        tier.setDisplayName(displayName);
+        tier.setDataSourceIds(List.of(dataSourceId));
+        tier.setRetention(retention);
+        tier.setSince(since);
+        return tier;
+    }
+}
@@ -0,0 +1,119 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates payment-history rows shaped like the Redash results of a search
+ * (fields from schemas/elasticsearch-schema.json). A fixed seed keeps runs reproducible.
+ */
+final class PaymentHistoryRows {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private static final DateTimeFormatter TXN_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+    private static final OffsetDateTime NEWEST = OffsetDateTime.of(2025, 10, 1, 0, 0, 0, 0, ZoneOffset.ofHoursMinutes(5, 30));
+    private static final String[] TXN_TYPES = {"P2P_TRANSFER", "P2M", "ADD_MONEY", "RECHARGE", "BILL_PAYMENT", "UPI_COLLECT"};
+    private static final String[] PAYMENT_SYSTEMS = {"UPI", "WALLET", "BANK", "CARD"};
+    private static final String[] CATEGORIES = {"Food", "Travel", "Shopping", "Utilities", "Transfers"};
+
+    private PaymentHistoryRows() {
+    }
+
+    /**
+     * Generate rows spread over the last two years, in random txnDate order
+     */
+    static ArrayNode generate(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        ArrayNode rows = NODES.arrayNode(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(row(random));
+        }
+        return rows;
+    }
+
+    /**
+     * Split rows round-robin into one Redash response body per host, each sorted by txnDate descending
+     * as Elasticsearch returns them for the default sort
+     */
+    static List<RedashSearchService.HostResult> hostResults(ArrayNode rows, int hosts) {
+        List<List<JsonNode>> perHost = new ArrayList<>(hosts);
+        for (int i = 0; i < hosts; i++) {
+            perHost.add(new ArrayList<>());
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            perHost.get(i % hosts).add(rows.get(i));
+        }
+
+        List<RedashSearchService.HostResult> results = new ArrayList<>(hosts);
+        for (int i = 0; i < hosts; i++) {
+            List<JsonNode> hostRows = perHost.get(i);
+            hostRows.sort(Comparator.comparing((JsonNode row) -> row.get("txnDate").asText()).reversed());
+
+            ObjectNode body = NODES.objectNode();
+            ObjectNode data = body.putObject("query_result").putObject("data");
+            data.putArray("rows").addAll(hostRows);
+            data.putArray("columns").addObject().put("name", "txnId").put("type", "string");
+            results.add(new RedashSearchService.HostResult("UTH_ES_Host" + i, i + 3, List.of(body.toString()), null, 1200, null));
+        }
+        return results;
+    }
+
+    private static ObjectNode row(SplittableRandom random) {
+        String entityId = String.valueOf(1_000_000_000L + random.nextLong(9_000_000_000L));
+        String otherEntityId = String.valueOf(1_000_000_000L + random.nextLong(9_000_000_000L));
+        String paymentSystem = PAYMENT_SYSTEMS[random.nextInt(PAYMENT_SYSTEMS.length)];
+        OffsetDateTime txnDate = NEWEST.minusSeconds(random.nextLong(2L * 365 * 24 * 3600));
+
+        ObjectNode row = NODES.objectNode();
+        row.put("txnId", "TXN" + Long.toString(random.nextLong(Long.MAX_VALUE), 36).toUpperCase());
+        row.put("orderId", "ORD" + random.nextLong(1_000_000_000_000L));
+        row.put("entityId", entityId);
+        row.put("otherPartyEntityId", otherEntityId);
+        row.put("status", String.valueOf(random.nextInt(6)));
+        row.put("txnType", TXN_TYPES[random.nextInt(TXN_TYPES.length)]);
+        row.put("txnIndicator", random.nextBoolean() ? "DEBIT" : "CREDIT");
+        row.put("streamSource", paymentSystem);
+        row.put("amount", 100 + random.nextLong(5_000_000));
+        row.put("isVisible", true);
+        row.put("showInListing", random.nextInt(10) != 0);
+        row.put("txnDate", TXN_DATE_FORMAT.format(txnDate));
+        row.put("docUpdatedDate", TXN_DATE_FORMAT.format(txnDate.plusSeconds(random.nextInt(600))));
+
+        ObjectNode contextMap = row.putObject("contextMap");
+        contextMap.put("rrn", String.valueOf(100_000_000_000L + random.nextLong(899_999_999_999L)));
+        contextMap.put("upiTxnCategory", CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        contextMap.put("isCashbackTxn", random.nextInt(20) == 0 ? "true" : "false");
+
+        ArrayNode participants = row.putArray("participants");
+        participant(participants.addObject(), entityId, "USER", paymentSystem, random);
+        participant(participants.addObject(), otherEntityId, random.nextBoolean() ? "USER" : "MERCHANT", paymentSystem, random);
+
+        ObjectNode searchFields = row.putObject("searchFields");
+        searchFields.put("searchOtherName", "Payee " + random.nextInt(50_000));
+        searchFields.put("searchPaymentSystem", paymentSystem);
+        searchFields.put("searchOtherMobileNo", "9" + (100_000_000L + random.nextLong(899_999_999L)));
+        return row;
+    }
+
+    private static void participant(ObjectNode participant, String entityId, String entityType,
+                                    String paymentSystem, SplittableRandom random) {
+        participant.put("entityId", entityId);
+        participant.put("entityType", entityType);
+        participant.put("status", "2");
+        participant.put("paymentSystem", paymentSystem);
+        participant.putObject("upiData").put("vpa", "user" + random.nextInt(1_000_000) + "@paytm");
+        ObjectNode bankData = participant.putObject("bankData");
+        bankData.put("ifsc", "PYTM0" + (100_000 + random.nextInt(899_999)));
+        bankData.put("accNumber", "XXXXXX" + (1000 + random.nextInt(8999)));
+    }
+}
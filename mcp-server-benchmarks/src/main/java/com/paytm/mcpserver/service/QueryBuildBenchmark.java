@@ -0,0 +1,70 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paytm.mcpserver.utility.JsonCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the complete Redash query (ES DSL plus indices) for one host
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBuildBenchmark {
+
+    private static final String QUERY_DSL = """
+            {
+              "query": {"bool": {"filter": [
+                {"term": {"entityId": "1417094886"}},
+                {"terms": {"status": ["2", "3"]}},
+                {"range": {"txnDate": {"gte": "2025-01-01T00:00:00+05:30", "lte": "2025-06-30T23:59:59+05:30"}}}
+              ]}},
+              "size": 50,
+              "sort": [{"txnDate": {"order": "desc"}}],
+              "_source": ["txnId", "entityId", "amount", "status", "txnDate", "participants"]
+            }
+            """;
+
+    @Param({"1", "6", "18"})
+    private int indexCount;
+
+    private RedashSearchService searchService;
+    private JsonNode queryNode;
+    private List<String> indices;
+
+    @Setup
+    public void setUp() throws Exception {
+        searchService = BenchmarkServices.redashSearchService(null, new JsonCodec(new ObjectMapper()));
+        queryNode = new ObjectMapper().readTree(QUERY_DSL);
+        indices = new ArrayList<>(indexCount);
+        YearMonth month = YearMonth.of(2025, 9);
+        for (int i = 0; i < indexCount; i++) {
+            indices.add(String.format("payment-history-%02d-%d*", month.getMonthValue(), month.getYear()));
+            month = month.minusMonths(1);
+        }
+    }
+
+    @Benchmark
+    public String buildCompleteQuery() {
+        return searchService.buildCompleteQuery(queryNode, indices);
+    }
+}
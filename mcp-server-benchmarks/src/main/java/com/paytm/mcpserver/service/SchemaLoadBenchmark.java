@@ -0,0 +1,54 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * es_schema and field value mapping loading from the classpath schema files
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchemaLoadBenchmark {
+
+    private ElasticsearchSchemaFetcher schemaFetcher;
+
+    @Setup
+    public void setUp() {
+        schemaFetcher = new ElasticsearchSchemaFetcher(new ObjectMapper());
+        inject("schemaFilePath", "classpath:schemas/elasticsearch-schema.json");
+        inject("fieldMappingsFilePath", "classpath:schemas/field-value-mappings.json");
+    }
+
+    @Benchmark
+    public String fetchSchema() {
+        return schemaFetcher.fetchSchema();
+    }
+
+    @Benchmark
+    public String fetchFieldMappings() {
+        return schemaFetcher.fetchFieldMappings();
+    }
+
+    private void inject(String fieldName, String value) {
+        Field field = ReflectionUtils.findField(ElasticsearchSchemaFetcher.class, fieldName);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, schemaFetcher, value);
+    }
+}
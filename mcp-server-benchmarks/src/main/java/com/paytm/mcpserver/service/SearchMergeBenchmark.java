@@ -0,0 +1,81 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.paytm.mcpserver.utility.JsonCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merge of per host Redash results into the es_search response
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class SearchMergeBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int rows;
+
+    @Param({"1", "2", "3"})
+    private int hosts;
+
+    @Param({"false", "true"})
+    private boolean dedupe;
+
+    private RedashSearchService searchService;
+    private List<RedashSearchService.HostResult> hostResults;
+    private ArrayNode generatedRows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JsonCodec jsonCodec = new JsonCodec(new ObjectMapper());
+        // Server defaults for the heap budget, no response cap so every row is merged
+        SpillingRowMerger rowMerger = new SpillingRowMerger(jsonCodec, 64L << 20, Long.MAX_VALUE,
+                Path.of(System.getProperty("java.io.tmpdir")), dedupe, List.of("txnId"));
+        searchService = BenchmarkServices.redashSearchService(rowMerger, jsonCodec);
+        generatedRows = PaymentHistoryRows.generate(rows, 42L);
+        hostResults = PaymentHistoryRows.hostResults(generatedRows, hosts);
+    }
+
+    @Benchmark
+    public String combineResults() {
+        return searchService.combineResults(hostResults, null).json();
+    }
+
+    @Benchmark
+    public ArrayNode sortResultsByDate(UnsortedRows unsorted) {
+        searchService.sortResultsByDate(unsorted.rows);
+        return unsorted.rows;
+    }
+
+    /**
+     * sortResultsByDate sorts in place, every invocation starts from the generated order
+     */
+    @State(Scope.Thread)
+    public static class UnsortedRows {
+        private ArrayNode rows;
+
+        @Setup(Level.Invocation)
+        public void reset(SearchMergeBenchmark benchmark) {
+            rows = benchmark.generatedRows.deepCopy();
+        }
+    }
+}
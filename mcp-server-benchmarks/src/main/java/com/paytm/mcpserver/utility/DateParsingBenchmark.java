@@ -0,0 +1,40 @@
+package com.paytm.mcpserver.utility;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ISO 8601 date parsing used by es_host, es_indices and es_dates
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateParsingBenchmark {
+
+    @Param({"2025-01-15", "2025-01-15T00:00:00+05:30", "2025-01-15T23:59:59.123456789+05:30"})
+    private String date;
+
+    @Benchmark
+    public LocalDate parseDate() {
+        return DateFormatUtility.parseDate(date);
+    }
+
+    @Benchmark
+    public LocalDate tryParseDate() {
+        return DateFormatUtility.tryParseDate(date);
+    }
+}
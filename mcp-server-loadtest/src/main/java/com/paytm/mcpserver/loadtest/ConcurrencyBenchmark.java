@@ -0,0 +1,248 @@
+package com.paytm.mcpserver.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Max concurrent es_search calls per instance with platform threads vs virtual threads
+ *
+ * Starts the Redash simulator with a fixed job time, then for each mode starts the MCP server in its own JVM
+ * (Reactor reads the thread settings once per JVM) with admission control opened up, so that threads are the
+ * only limit. Each concurrency level runs the search scenario of the load generator while mcp.tool.in_flight
+ * and the live thread count of the server are scraped from /actuator/prometheus.
+ *
+ * Options (all --key=value):
+ * - modes=platform,virtual, levels=10,25,50,100,200,400, warmup=5, duration=15 (seconds per level)
+ * - report=target/concurrency-result.json
+ * - sim.*: simulator settings, defaults to a 3s job without queueing, failures or cached results
+ * - app.*: extra MCP server properties for both modes, e.g. --app.server.tomcat.threads.max=400
+ */
+@Log4j2
+public class ConcurrencyBenchmark {
+
+    private static final String SERVER_CLASS = "com.paytm.mcpserver.McpServerApplication";
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(3);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args)
+                .withDefault("scenario", "search")
+                .withDefault("warmup", "5")
+                .withDefault("duration", "15")
+                .withDefault("sim.http-latency", "2/10")
+                .withDefault("sim.queue-time", "0")
+                .withDefault("sim.execution-time", "3000/3000")
+                .withDefault("sim.cache-hit-ratio", "0")
+                .withDefault("sim.failure-ratio", "0");
+        new ConcurrencyBenchmark().run(options, args);
+        System.exit(0);
+    }
+
+    private void run(Options options, String[] args) throws Exception {
+        List<String> modes = List.of(options.get("modes", "platform,virtual").split(","));
+        int[] levels = Arrays.stream(options.get("levels", "10,25,50,100,200,400").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+
+        ObjectNode report = objectMapper.createObjectNode();
+        try (RedashSimulator simulator = new RedashSimulator(RedashSimulator.Settings.from(options))) {
+            simulator.start();
+            for (String mode : modes) {
+                report.set(mode, runMode(mode, levels, options, simulator.getBaseUrl(), args));
+            }
+        }
+
+        System.out.println(formatTable(report));
+        Path reportPath = Path.of(options.get("report", "target/concurrency-result.json"));
+        Files.createDirectories(reportPath.toAbsolutePath().getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(reportPath.toFile(), report);
+        log.info("Concurrency benchmark report written to {}", reportPath.toAbsolutePath());
+    }
+
+    private ObjectNode runMode(String mode, int[] levels, Options options, String redashUrl, String[] args) throws Exception {
+        int port = freePort();
+        String serverUrl = "http://127.0.0.1:" + port;
+        Process server = startServer(mode, port, redashUrl, args);
+        ObjectNode result = objectMapper.createObjectNode();
+        ArrayNode levelResults = result.putArray("levels");
+        try {
+            awaitStarted(serverUrl, server);
+            int maxInFlight = 0;
+            double maxThroughput = 0;
+            for (int concurrency : levels) {
+                Sampler sampler = new Sampler(serverUrl);
+                Thread sampling = Thread.ofVirtual().start(sampler);
+                JsonNode search;
+                try {
+                    ObjectNode loadReport = new LoadGenerator(options.with("concurrency", String.valueOf(concurrency)), serverUrl).run();
+                    search = loadReport.path("tools").path("es_search");
+                } finally {
+                    sampling.interrupt();
+                    sampling.join();
+                }
+
+                ObjectNode level = levelResults.addObject();
+                level.put("concurrency", concurrency);
+                level.put("count", search.path("count").asInt());
+                level.put("errors", search.path("errors").asInt());
+                level.put("throughputPerSecond", search.path("throughputPerSecond").asDouble());
+                level.put("p50Ms", search.path("p50Ms").asDouble());
+                level.put("p99Ms", search.path("p99Ms").asDouble());
+                level.put("peakInFlight", sampler.peakInFlight.get());
+                level.put("peakLiveThreads", sampler.peakLiveThreads.get());
+                log.info("{} threads, {} users: {} searches/s, p99 {} ms, {} in flight at most",
+                        mode, concurrency, level.path("throughputPerSecond").asDouble(), level.path("p99Ms").asDouble(),
+                        sampler.peakInFlight.get());
+                maxInFlight = Math.max(maxInFlight, sampler.peakInFlight.get());
+                maxThroughput = Math.max(maxThroughput, level.path("throughputPerSecond").asDouble());
+            }
+            result.put("maxConcurrentSearches", maxInFlight);
+            result.put("maxThroughputPerSecond", maxThroughput);
+            return result;
+        } finally {
+            server.destroy();
+            server.waitFor();
+        }
+    }
+
+    /**
+     * MCP server in a child JVM on the benchmark classpath, its output goes to target/concurrency-&lt;mode&gt;-server.log
+     */
+    private Process startServer(String mode, int port, String redashUrl, String[] args) throws IOException {
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                SERVER_CLASS,
+                "--server.port=" + port,
+                "--redash.base-url=" + redashUrl,
+                "--redash.api-key=loadtest",
+                // Simulator results stay out of the real data directory
+                "--elasticsearch.data-dir=" + Path.of("target", "concurrency-data").toAbsolutePath(),
+                "--spring.threads.virtual.enabled=" + "virtual".equals(mode),
+                "--spring.devtools.restart.enabled=false",
+                // Threads are the limit under test, not the Redash bulkhead
+                "--redash.admission.max-outstanding-jobs=100000",
+                "--redash.admission.max-queued=100000",
+                "--redash.lanes.interactive.max-jobs=100000",
+                "--redash.lanes.bulk.max-jobs=100000",
+                "--redash.rate-limit.enabled=false",
+                "--redash.poll-interval=1000",
+                "--redash.max-poll-attempts=200",
+                "--logging.level.root=WARN"));
+        for (String arg : args) {
+            if (arg.startsWith("--app.")) {
+                command.add("--" + arg.substring("--app.".length()));
+            }
+        }
+        Path logFile = Path.of("target", "concurrency-" + mode + "-server.log");
+        Files.createDirectories(logFile.toAbsolutePath().getParent());
+        log.info("Starting MCP server with {} threads on port {}, output in {}", mode, port, logFile.toAbsolutePath());
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logFile.toFile())
+                .start();
+    }
+
+    private void awaitStarted(String serverUrl, Process server) throws Exception {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!server.isAlive()) {
+                throw new IllegalStateException("MCP server exited with " + server.exitValue());
+            }
+            try {
+                HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(URI.create(serverUrl + "/actuator/health")).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("MCP server did not start within " + STARTUP_TIMEOUT);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Scrapes the server's tool calls in flight and live threads every 100 ms, keeping the peaks
+     */
+    private class Sampler implements Runnable {
+        private final HttpRequest scrape;
+        final AtomicInteger peakInFlight = new AtomicInteger();
+        final AtomicInteger peakLiveThreads = new AtomicInteger();
+
+        Sampler(String serverUrl) {
+            this.scrape = HttpRequest.newBuilder(URI.create(serverUrl + "/actuator/prometheus")).timeout(Duration.ofSeconds(5)).build();
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    for (String line : httpClient.send(scrape, HttpResponse.BodyHandlers.ofString()).body().split("\n")) {
+                        if (line.startsWith("mcp_tool_in_flight")) {
+                            peakInFlight.accumulateAndGet(gaugeValue(line), Math::max);
+                        } else if (line.startsWith("jvm_threads_live_threads")) {
+                            peakLiveThreads.accumulateAndGet(gaugeValue(line), Math::max);
+                        }
+                    }
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (IOException e) {
+                    log.debug("Scrape failed: {}", e.getMessage());
+                }
+            }
+        }
+
+        private static int gaugeValue(String line) {
+            return (int) Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+        }
+    }
+
+    /**
+     * Render the report as a text table, one row per mode and level
+     */
+    static String formatTable(JsonNode report) {
+        StringBuilder table = new StringBuilder(String.format("%n%-9s %6s %8s %7s %9s %9s %9s %10s %8s%n",
+                "threads", "users", "count", "errors", "ops/s", "p50 ms", "p99 ms", "in flight", "threads"));
+        report.fields().forEachRemaining(mode -> {
+            for (JsonNode level : mode.getValue().path("levels")) {
+                table.append(String.format("%-9s %6d %8d %7d %9.2f %9.2f %9.2f %10d %8d%n", mode.getKey(),
+                        level.path("concurrency").asInt(), level.path("count").asInt(), level.path("errors").asInt(),
+                        level.path("throughputPerSecond").asDouble(), level.path("p50Ms").asDouble(),
+                        level.path("p99Ms").asDouble(), level.path("peakInFlight").asInt(),
+                        level.path("peakLiveThreads").asInt()));
+            }
+        });
+        report.fields().forEachRemaining(mode -> table.append(String.format("%s: at most %d concurrent searches, %.2f searches/s%n",
+                mode.getKey(), mode.getValue().path("maxConcurrentSearches").asInt(),
+                mode.getValue().path("maxThroughputPerSecond").asDouble())));
+        return table.toString();
+    }
+}
@@ -0,0 +1,276 @@
+package com.paytm.mcpserver.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.HttpClientSseClientTransport;
+import io.modelcontextprotocol.spec.McpSchema;
+import lombok.extern.log4j.Log4j2;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Drives the MCP tools over SSE with a fixed number of concurrent sessions
+ *
+ * Scenarios:
+ * - flow: es_dates -> es_host -> es_indices -> es_search, each step fed by the previous output (agent-like)
+ * - search: es_search only, with host coverages and indices resolved once up front
+ *
+ * Latencies recorded during the warmup are discarded.
+ */
+@Log4j2
+public class LoadGenerator {
+
+    private static final String FLOW = "flow";
+    private static final String[] DATE_PROMPTS = {
+            "payments in the last 7 days", "transactions yesterday", "spends this month",
+            "payments in the last 3 months", "transfers since January", "transactions last week"
+    };
+
+    private final String serverUrl;
+    private final String scenario;
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, LatencyStats> stats = new LinkedHashMap<>();
+
+    private volatile Map<String, List<String>> toolParameters;
+    private volatile long recordFrom;
+
+    public LoadGenerator(Options options, String serverUrl) {
+        this.serverUrl = serverUrl;
+        this.scenario = options.get("scenario", FLOW);
+        this.concurrency = options.getInt("concurrency", 16);
+        this.warmup = Duration.ofSeconds(options.getInt("warmup", 10));
+        this.duration = Duration.ofSeconds(options.getInt("duration", 60));
+        for (String name : List.of("es_dates", "es_host", "es_indices", "es_search", FLOW)) {
+            stats.put(name, new LatencyStats());
+        }
+    }
+
+    /**
+     * Run the load and return the report
+     */
+    public ObjectNode run() throws Exception {
+        log.info("Load test: scenario={}, concurrency={}, warmup={}s, duration={}s against {}",
+                scenario, concurrency, warmup.toSeconds(), duration.toSeconds(), serverUrl);
+
+        SearchInput fixedInput;
+        try (Session session = new Session()) {
+            toolParameters = session.client.listTools().tools().stream()
+                    .collect(Collectors.toMap(McpSchema.Tool::name, tool -> new ArrayList<>(tool.inputSchema().properties().keySet())));
+            fixedInput = FLOW.equals(scenario) ? null : session.resolveSearchInput("payments in the last 3 months", false);
+        }
+
+        long start = System.nanoTime();
+        recordFrom = start + warmup.toNanos();
+        long deadline = recordFrom + duration.toNanos();
+
+        List<Future<?>> users = new ArrayList<>(concurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                users.add(executor.submit(() -> {
+                    try (Session session = new Session()) {
+                        while (System.nanoTime() < deadline) {
+                            session.iteration(fixedInput);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> user : users) {
+                user.get();
+            }
+        }
+
+        // Calls started before the deadline are counted, so the window lasts until the last of them finished
+        return report(Math.max(duration.toMillis(), (System.nanoTime() - recordFrom) / 1_000_000) / 1000.0);
+    }
+
+    private ObjectNode report(double seconds) {
+        ObjectNode report = objectMapper.createObjectNode();
+        report.put("scenario", scenario);
+        report.put("concurrency", concurrency);
+        report.put("durationSeconds", seconds);
+        ObjectNode tools = report.putObject("tools");
+        stats.forEach((name, latencies) -> {
+            if (latencies.count() > 0) {
+                tools.set(name, latencies.toJson(objectMapper.createObjectNode(), seconds));
+            }
+        });
+        return report;
+    }
+
+    /**
+     * Resolved es_search arguments
+     */
+    private record SearchInput(String hostCoverages, String indices) {}
+
+    /**
+     * One MCP session (SSE connection) driven by one virtual user
+     */
+    private class Session implements AutoCloseable {
+        private final McpSyncClient client;
+
+        Session() {
+            client = McpClient.sync(HttpClientSseClientTransport.builder(serverUrl).build())
+                    .requestTimeout(Duration.ofSeconds(120))
+                    .build();
+            client.initialize();
+        }
+
+        void iteration(SearchInput fixedInput) {
+            long flowStart = System.nanoTime();
+            boolean ok;
+            if (fixedInput != null) {
+                ok = search(fixedInput, true);
+            } else {
+                String prompt = DATE_PROMPTS[ThreadLocalRandom.current().nextInt(DATE_PROMPTS.length)];
+                SearchInput input = resolveSearchInput(prompt, true);
+                ok = input != null && search(input, true);
+            }
+            record(FLOW, System.nanoTime() - flowStart, ok, flowStart);
+        }
+
+        SearchInput resolveSearchInput(String prompt, boolean recorded) {
+            JsonNode dates = call("es_dates", recorded, prompt, null, null);
+            if (dates == null) {
+                return null;
+            }
+            String startDate = dates.path("startDate").asText();
+            String endDate = dates.path("endDate").asText();
+
+            JsonNode hosts = call("es_host", recorded, startDate, endDate);
+            JsonNode indices = call("es_indices", recorded, startDate, endDate);
+            if (hosts == null || indices == null || !indices.isArray()) {
+                return null;
+            }
+            List<String> indexNames = new ArrayList<>();
+            indices.forEach(index -> indexNames.add(index.asText()));
+            return new SearchInput(hosts.toString(), String.join(",", indexNames));
+        }
+
+        boolean search(SearchInput input, boolean recorded) {
+            ObjectNode query = objectMapper.createObjectNode();
+            query.putObject("query").putObject("bool").putArray("filter").addObject()
+                    .putObject("term").put("entityId", String.valueOf(ThreadLocalRandom.current().nextLong(1_000_000_000L, 9_999_999_999L)));
+            query.put("size", 20);
+            query.putArray("sort").addObject().putObject("txnDate").put("order", "desc");
+            JsonNode result = call("es_search", recorded, query.toString(), input.hostCoverages(), input.indices());
+            return result != null && result.path("metadata").path("successful_hosts").asInt() > 0;
+        }
+
+        /**
+         * Call a tool with positional arguments, mapped onto its schema properties in declaration order
+         * (parameter names are arg0.. unless the server is compiled with -parameters)
+         */
+        private JsonNode call(String tool, boolean recorded, String... arguments) {
+            List<String> names = toolParameters.get(tool);
+            Map<String, Object> args = new LinkedHashMap<>();
+            for (int i = 0; i < arguments.length && i < names.size(); i++) {
+                if (arguments[i] != null) {
+                    args.put(names.get(i), arguments[i]);
+                }
+            }
+
+            long start = System.nanoTime();
+            JsonNode result = null;
+            try {
+                McpSchema.CallToolResult response = client.callTool(new McpSchema.CallToolRequest(tool, args));
+                if (!Boolean.TRUE.equals(response.isError()) && !response.content().isEmpty()
+                        && response.content().get(0) instanceof McpSchema.TextContent text) {
+                    JsonNode parsed = objectMapper.readTree(text.text());
+                    result = parsed.has("error") ? null : parsed;
+                }
+            } catch (Exception e) {
+                log.debug("{} failed: {}", tool, e.getMessage());
+            }
+            if (recorded) {
+                record(tool, System.nanoTime() - start, result != null, start);
+            }
+            return result;
+        }
+
+        @Override
+        public void close() {
+            client.closeGracefully();
+        }
+    }
+
+    private void record(String name, long nanos, boolean success, long startedAt) {
+        if (startedAt >= recordFrom) {
+            stats.get(name).add(nanos, success);
+        }
+    }
+
+    /**
+     * Latency samples of one tool, percentiles are computed from the sorted samples at the end
+     */
+    static class LatencyStats {
+        private long[] samples = new long[1024];
+        private int count;
+        private int errors;
+
+        synchronized void add(long nanos, boolean success) {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = nanos;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        synchronized ObjectNode toJson(ObjectNode node, double seconds) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            node.put("count", count);
+            node.put("errors", errors);
+            node.put("throughputPerSecond", Math.round(count / seconds * 100) / 100.0);
+            node.put("p50Ms", percentileMs(sorted, 0.50));
+            node.put("p90Ms", percentileMs(sorted, 0.90));
+            node.put("p99Ms", percentileMs(sorted, 0.99));
+            node.put("p999Ms", percentileMs(sorted, 0.999));
+            node.put("maxMs", percentileMs(sorted, 1.0));
+            return node;
+        }
+
+        private static double percentileMs(long[] sorted, double percentile) {
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return Math.round(sorted[Math.max(0, index)] / 10_000.0) / 100.0;
+        }
+    }
+
+    /**
+     * Render the report as a text table
+     */
+    static String formatTable(JsonNode report) {
+        StringBuilder table = new StringBuilder(String.format("%n%-12s %8s %7s %9s %9s %9s %9s %9s %9s%n",
+                "tool", "count", "errors", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        report.path("tools").fields().forEachRemaining(entry -> {
+            JsonNode tool = entry.getValue();
+            table.append(String.format("%-12s %8d %7d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(),
+                    tool.path("count").asInt(), tool.path("errors").asInt(), tool.path("throughputPerSecond").asDouble(),
+                    tool.path("p50Ms").asDouble(), tool.path("p90Ms").asDouble(), tool.path("p99Ms").asDouble(),
+                    tool.path("p999Ms").asDouble(), tool.path("maxMs").asDouble()));
+        });
+        return table.toString();
+    }
+}
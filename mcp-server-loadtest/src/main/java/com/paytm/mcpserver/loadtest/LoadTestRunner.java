@@ -0,0 +1,78 @@
+package com.paytm.mcpserver.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.paytm.mcpserver.McpServerApplication;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Offline end-to-end load test
+ *
+ * Starts the Redash simulator, starts the MCP server in-process pointed at it (unless --server-url is given)
+ * and drives the SSE tools with the load generator, then prints throughput and latency percentiles.
+ *
+ * Options (all --key=value):
+ * - scenario=flow|search, concurrency=16, warmup=10, duration=60 (seconds)
+ * - server-url: test an already running MCP server instead of an in-process one
+ * - report=target/loadtest-result.json
+ * - sim.*: simulator settings, see {@link RedashSimulator.Settings}
+ * - app.*: extra MCP server properties, e.g. --app.redash.poll-interval=500
+ */
+@Log4j2
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+
+        try (RedashSimulator simulator = new RedashSimulator(RedashSimulator.Settings.from(options))) {
+            simulator.start();
+
+            ConfigurableApplicationContext server = null;
+            String serverUrl = options.get("server-url", null);
+            if (serverUrl == null) {
+                server = startServer(simulator.getBaseUrl(), args);
+                serverUrl = "http://127.0.0.1:" + server.getEnvironment().getProperty("local.server.port");
+            }
+
+            try {
+                ObjectNode report = new LoadGenerator(options, serverUrl).run();
+                report.put("redashRequests", simulator.getRequestCount());
+
+                System.out.println(LoadGenerator.formatTable(report));
+                Path reportPath = Path.of(options.get("report", "target/loadtest-result.json"));
+                Files.createDirectories(reportPath.toAbsolutePath().getParent());
+                new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(reportPath.toFile(), report);
+                log.info("Load test report written to {}", reportPath.toAbsolutePath());
+            } finally {
+                if (server != null) {
+                    server.close();
+                }
+            }
+        }
+        System.exit(0);
+    }
+
+    private static ConfigurableApplicationContext startServer(String redashUrl, String[] args) {
+        List<String> serverArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--redash.base-url=" + redashUrl,
+                "--redash.api-key=loadtest",
+                // Simulator results stay out of the real data directory
+                "--elasticsearch.data-dir=" + Path.of("target", "loadtest-data").toAbsolutePath(),
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework.ai=WARN"));
+        for (String arg : args) {
+            if (arg.startsWith("--app.")) {
+                serverArgs.add("--" + arg.substring("--app.".length()));
+            }
+        }
+        return new SpringApplicationBuilder(McpServerApplication.class).run(serverArgs.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,60 @@
+package com.paytm.mcpserver.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line options in --key=value form
+ */
+public final class Options {
+
+    private final Map<String, String> values;
+
+    private Options(Map<String, String> values) {
+        this.values = values;
+    }
+
+    public static Options parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected --key=value, got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                values.put(arg.substring(2), "true");
+            } else {
+                values.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return new Options(values);
+    }
+
+    public Options withDefault(String key, String value) {
+        Map<String, String> copy = new HashMap<>(values);
+        copy.putIfAbsent(key, value);
+        return new Options(copy);
+    }
+
+    public Options with(String key, String value) {
+        Map<String, String> copy = new HashMap<>(values);
+        copy.put(key, value);
+        return new Options(copy);
+    }
+
+    public boolean has(String key) {
+        return values.containsKey(key);
+    }
+
+    public String get(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        return values.containsKey(key) ? Integer.parseInt(values.get(key)) : defaultValue;
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        return values.containsKey(key) ? Double.parseDouble(values.get(key)) : defaultValue;
+    }
+}
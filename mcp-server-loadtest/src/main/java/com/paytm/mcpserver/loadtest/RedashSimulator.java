@@ -0,0 +1,422 @@
+package com.paytm.mcpserver.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Redash API used by RedashClient
+ *
+ * Endpoints:
+ * - POST /api/queries: store the query, returns {"id"}
+ * - POST /api/queries/{id}/results: cached result or an async job
+ * - GET /api/jobs/{id}: status progression queued (1) -> started (2) -> success (3) / failure (4)
+ * - GET /api/query_results/{id}: generated payment-history rows (or index buckets for the catalog query)
+ *
+ * Each job draws its queue and execution time from log-normal distributions at creation,
+ * every HTTP response is delayed by a draw from the HTTP latency distribution.
+ */
+@Log4j2
+public class RedashSimulator implements AutoCloseable {
+
+    private static final DateTimeFormatter TXN_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+    private static final ZoneOffset IST = ZoneOffset.ofHoursMinutes(5, 30);
+    private static final int EXPORT_ROWS_PER_INDEX = 1000;
+
+    private final Settings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<Integer, String> queries = new ConcurrentHashMap<>();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<Integer, String> resultQueries = new ConcurrentHashMap<>();
+    private final AtomicInteger queryIds = new AtomicInteger();
+    private final AtomicInteger resultIds = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public RedashSimulator(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Simulator configuration, latencies are given as median/p99 in milliseconds
+     */
+    public record Settings(int port, Latency httpLatency, Latency queueTime, Latency executionTime,
+                           double cacheHitRatio, double failureRatio, int maxRows) {
+
+        public static Settings from(Options options) {
+            return new Settings(
+                    options.getInt("sim.port", 0),
+                    Latency.parse(options.get("sim.http-latency", "5/40")),
+                    Latency.parse(options.get("sim.queue-time", "150/1500")),
+                    Latency.parse(options.get("sim.execution-time", "300/2500")),
+                    options.getDouble("sim.cache-hit-ratio", 0.1),
+                    options.getDouble("sim.failure-ratio", 0.01),
+                    options.getInt("sim.max-rows", 100));
+        }
+    }
+
+    /**
+     * Log-normal latency given by its median and 99th percentile
+     */
+    public record Latency(double medianMs, double p99Ms) {
+
+        private static final double Z_99 = 2.326;
+
+        static Latency parse(String value) {
+            String[] parts = value.split("/");
+            double median = Double.parseDouble(parts[0]);
+            return new Latency(median, parts.length > 1 ? Double.parseDouble(parts[1]) : median);
+        }
+
+        long sampleMs() {
+            if (medianMs <= 0) {
+                return 0;
+            }
+            double sigma = p99Ms > medianMs ? Math.log(p99Ms / medianMs) / Z_99 : 0;
+            return Math.round(medianMs * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+        }
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", settings.port()), 1024);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+        server.start();
+        log.info("Redash simulator listening on {}", getBaseUrl());
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            sleep(settings.httpLatency().sampleMs());
+
+            String method = exchange.getRequestMethod();
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            // path: "", "api", resource, id, action
+            String resource = path.length > 2 ? path[2] : "";
+
+            if ("POST".equals(method) && "queries".equals(resource) && path.length == 3) {
+                respond(exchange, 200, createQuery(exchange));
+            } else if ("POST".equals(method) && "queries".equals(resource) && path.length == 5 && "results".equals(path[4])) {
+                respond(exchange, 200, executeQuery(Integer.parseInt(path[3])));
+            } else if ("GET".equals(method) && "jobs".equals(resource) && path.length == 4) {
+                respond(exchange, 200, jobStatus(path[3]));
+            } else if ("GET".equals(method) && "query_results".equals(resource) && path.length == 4) {
+                respond(exchange, 200, queryResult(Integer.parseInt(path[3])));
+            } else {
+                respond(exchange, 404, objectMapper.createObjectNode().put("message", "Not found"));
+            }
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, objectMapper.createObjectNode().put("message", e.getMessage()));
+        }
+    }
+
+    private ObjectNode createQuery(HttpExchange exchange) throws IOException {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        int queryId = queryIds.incrementAndGet();
+        queries.put(queryId, request.path("query").asText());
+        return objectMapper.createObjectNode().put("id", queryId);
+    }
+
+    private ObjectNode executeQuery(int queryId) {
+        String query = queries.remove(queryId);
+        if (query == null) {
+            throw new IllegalArgumentException("Unknown query " + queryId);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < settings.cacheHitRatio()) {
+            return buildQueryResult(resultIds.incrementAndGet(), query);
+        }
+
+        long now = System.currentTimeMillis();
+        long queuedUntil = now + settings.queueTime().sampleMs();
+        long finishedAt = queuedUntil + settings.executionTime().sampleMs();
+        boolean fails = random.nextDouble() < settings.failureRatio();
+        String jobId = Integer.toHexString(queryId) + "-" + Long.toHexString(random.nextLong());
+        jobs.put(jobId, new Job(query, queuedUntil, finishedAt, fails));
+
+        ObjectNode response = objectMapper.createObjectNode();
+        response.putObject("job").put("id", jobId).put("status", 1);
+        return response;
+    }
+
+    private ObjectNode jobStatus(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new IllegalArgumentException("Unknown job " + jobId);
+        }
+
+        long now = System.currentTimeMillis();
+        ObjectNode response = objectMapper.createObjectNode();
+        ObjectNode jobNode = response.putObject("job").put("id", jobId);
+        if (now < job.queuedUntil()) {
+            jobNode.put("status", 1);
+        } else if (now < job.finishedAt()) {
+            jobNode.put("status", 2);
+        } else {
+            jobs.remove(jobId);
+            if (job.fails()) {
+                jobNode.put("status", 4);
+                jobNode.put("error", "Simulated Elasticsearch failure");
+            } else {
+                int resultId = resultIds.incrementAndGet();
+                resultQueries.put(resultId, job.query());
+                jobNode.put("status", 3);
+                jobNode.put("query_result_id", resultId);
+            }
+        }
+        return response;
+    }
+
+    private ObjectNode queryResult(int resultId) {
+        String query = resultQueries.remove(resultId);
+        if (query == null) {
+            throw new IllegalArgumentException("Unknown query result " + resultId);
+        }
+        return buildQueryResult(resultId, query);
+    }
+
+    /**
+     * Rows for a search (size capped by sim.max-rows) or index buckets for the index catalog aggregation
+     */
+    private ObjectNode buildQueryResult(int resultId, String query) {
+        ArrayNode rows = objectMapper.createArrayNode();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        JsonNode queryNode;
+        try {
+            queryNode = objectMapper.readTree(query);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Query is not valid JSON");
+        }
+
+        if (queryNode.path("aggs").path("indices").path("terms").path("field").asText().equals("_index")) {
+            YearMonth month = YearMonth.now(IST);
+            for (int i = 0; i < 48; i++, month = month.minusMonths(1)) {
+                rows.addObject()
+                        .put("indices", String.format("payment-history-%02d-%d", month.getMonthValue(), month.getYear()))
+                        .put("doc_count", random.nextLong(1_000_000, 50_000_000));
+            }
+        } else if (queryNode.path("aggs").path("day").has("date_histogram")) {
+            dailyBuckets(queryNode, rows);
+        } else if (queryNode.path("sort").toString().contains("\"txnId\"")) {
+            exportRows(queryNode, rows, Math.min(queryNode.path("size").asInt(10), settings.maxRows()));
+        } else {
+            int size = Math.min(queryNode.path("size").asInt(10), settings.maxRows());
+            // Lookups by entityId only match a few rows of each requested entity
+            List<String> entityIds = new ArrayList<>();
+            collectEntityIds(queryNode.path("query"), entityIds);
+            if (!entityIds.isEmpty()) {
+                size = Math.min(size, entityIds.stream().mapToInt(id -> Math.floorMod(id.hashCode(), 15)).sum());
+            }
+            OffsetDateTime newest = OffsetDateTime.now(IST);
+            // Refresh searches (docUpdatedDate range) only find the few documents changed in the last minutes
+            boolean changedOnly = queryNode.path("query").toString().contains("\"docUpdatedDate\"");
+            long maxAgeSeconds = changedOnly ? 300 : 180L * 24 * 3600;
+            if (changedOnly) {
+                size = Math.min(size, random.nextInt(4));
+            }
+            for (int i = 0; i < size; i++) {
+                ObjectNode row = rows.addObject();
+                row.put("txnId", "TXN" + Long.toString(random.nextLong(Long.MAX_VALUE), 36).toUpperCase());
+                row.put("entityId", entityIds.isEmpty()
+                        ? String.valueOf(random.nextLong(1_000_000_000L, 9_999_999_999L))
+                        : entityIds.get(random.nextInt(entityIds.size())));
+                row.put("status", String.valueOf(random.nextInt(6)));
+                row.put("txnType", random.nextBoolean() ? "P2P_TRANSFER" : "P2M");
+                row.put("amount", random.nextLong(100, 5_000_000));
+                OffsetDateTime txnDate = newest.minusSeconds(random.nextLong(maxAgeSeconds));
+                row.put("txnDate", TXN_DATE_FORMAT.format(txnDate));
+                row.put("docUpdatedDate", TXN_DATE_FORMAT.format(txnDate.plusSeconds(random.nextLong(
+                        Math.max(1, newest.toEpochSecond() - txnDate.toEpochSecond())))));
+            }
+        }
+
+        ObjectNode response = objectMapper.createObjectNode();
+        ObjectNode queryResult = response.putObject("query_result");
+        queryResult.put("id", resultId);
+        queryResult.put("runtime", settings.executionTime().medianMs() / 1000.0);
+        queryResult.putObject("data").set("rows", rows);
+        return response;
+    }
+
+    /**
+     * Flattened day > txnType > status buckets for the rollup aggregation, the same for every run of an entity and day
+     */
+    private static void dailyBuckets(JsonNode queryNode, ArrayNode rows) {
+        List<String> entityIds = new ArrayList<>();
+        collectEntityIds(queryNode.path("query"), entityIds);
+        String entityId = entityIds.isEmpty() ? "" : entityIds.get(0);
+        LocalDate from = null;
+        LocalDate to = null;
+        for (JsonNode filter : queryNode.path("query").path("bool").path("filter")) {
+            JsonNode range = filter.path("range").path("txnDate");
+            if (range.has("gte")) {
+                from = LocalDate.parse(range.get("gte").asText().substring(0, 10));
+                to = LocalDate.parse(range.get("lt").asText().substring(0, 10));
+            }
+        }
+        for (LocalDate day = from; day != null && day.isBefore(to); day = day.plusDays(1)) {
+            SplittableRandom random = new SplittableRandom((entityId + day).hashCode());
+            if (random.nextInt(3) != 0) {
+                continue;
+            }
+            for (String txnType : random.nextBoolean() ? List.of("P2M") : List.of("P2M", "P2P_TRANSFER")) {
+                rows.addObject()
+                        .put("day", day.toString())
+                        .put("txnType", txnType)
+                        .put("status", String.valueOf(random.nextInt(3)))
+                        .put("doc_count", random.nextInt(1, 6))
+                        .put("amount", random.nextInt(100, 500_000));
+            }
+        }
+    }
+
+    /**
+     * A page of a search_after scan (es_export sorts with a txnId tiebreaker): every monthly index holds the
+     * same EXPORT_ROWS_PER_INDEX rows on every run, sorted on the query's sort, the page holds the rows after
+     * the search_after values
+     */
+    private static void exportRows(JsonNode queryNode, ArrayNode rows, int size) {
+        List<ObjectNode> all = new ArrayList<>();
+        for (String index : queryNode.path("index").asText().split(",")) {
+            String[] parts = index.trim().split("-");
+            YearMonth month = YearMonth.of(Integer.parseInt(parts[parts.length - 1]), Integer.parseInt(parts[parts.length - 2]));
+            SplittableRandom random = new SplittableRandom(index.trim().hashCode());
+            long monthSeconds = month.lengthOfMonth() * 24L * 3600;
+            for (int i = 0; i < EXPORT_ROWS_PER_INDEX; i++) {
+                ObjectNode row = rows.objectNode();
+                row.put("txnId", String.format("TXN%d%02d%06d", month.getYear(), month.getMonthValue(), i));
+                row.put("entityId", String.valueOf(random.nextLong(1_000_000_000L, 9_999_999_999L)));
+                row.put("status", String.valueOf(random.nextInt(6)));
+                row.put("txnType", random.nextBoolean() ? "P2P_TRANSFER" : "P2M");
+                row.put("amount", random.nextLong(100, 5_000_000));
+                // Whole minutes so that some rows share a txnDate and the tiebreaker matters
+                row.put("txnDate", TXN_DATE_FORMAT.format(month.atDay(1).atStartOfDay().atOffset(IST)
+                        .plusMinutes(random.nextLong(monthSeconds / 60))));
+                all.add(row);
+            }
+        }
+        Comparator<JsonNode> order = (a, b) -> 0;
+        List<String> sortFields = new ArrayList<>();
+        for (JsonNode sort : queryNode.path("sort")) {
+            String field = sort.fieldNames().next();
+            sortFields.add(field);
+            Comparator<JsonNode> byField = (a, b) -> a.get(field).isNumber()
+                    ? Long.compare(a.get(field).asLong(), b.get(field).asLong())
+                    : a.get(field).asText().compareTo(b.get(field).asText());
+            order = order.thenComparing("desc".equals(sort.path(field).path("order").asText()) ? byField.reversed() : byField);
+        }
+        all.sort(order);
+        ObjectNode after = null;
+        if (queryNode.path("search_after").size() == sortFields.size()) {
+            after = rows.objectNode();
+            for (int i = 0; i < sortFields.size(); i++) {
+                after.set(sortFields.get(i), queryNode.path("search_after").get(i));
+            }
+        }
+        for (ObjectNode row : all) {
+            if (rows.size() == size) {
+                break;
+            }
+            if (after == null || order.compare(row, after) > 0) {
+                rows.add(row);
+            }
+        }
+    }
+
+    /**
+     * entityId values of the term/terms filters of a query
+     */
+    private static void collectEntityIds(JsonNode node, List<String> entityIds) {
+        for (String clause : List.of("term", "terms")) {
+            JsonNode value = node.path(clause).path("entityId");
+            if (value.isArray()) {
+                value.forEach(id -> entityIds.add(id.asText()));
+            } else if (value.isValueNode()) {
+                entityIds.add(value.asText());
+            } else if (value.has("value")) {
+                entityIds.add(value.get("value").asText());
+            }
+        }
+        if (node.isContainerNode()) {
+            node.forEach(child -> collectEntityIds(child, entityIds));
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Job(String query, long queuedUntil, long finishedAt, boolean fails) {}
+
+    /**
+     * Run the simulator on its own: java ... RedashSimulator --sim.port=5000
+     */
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        RedashSimulator simulator = new RedashSimulator(Settings.from(options.withDefault("sim.port", "5000")));
+        simulator.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(simulator::close));
+        Thread.currentThread().join();
+    }
+}
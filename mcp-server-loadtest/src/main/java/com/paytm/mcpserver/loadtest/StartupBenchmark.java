@@ -0,0 +1,254 @@
+package com.paytm.mcpserver.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.HttpClientSseClientTransport;
+import io.modelcontextprotocol.spec.McpSchema;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Time to first tool response of a freshly launched MCP server, per launch variant
+ *
+ * Each run starts the server jar in a new JVM the way elasticsearch-mcp-npm/bin/cli.js does, waits for the port,
+ * opens an MCP session and calls es_dates; the time from spawn to its response is recorded along with the time
+ * to the open session. Variants:
+ * - baseline: java -jar on the jar given in --baseline (e.g. a build of the previous release), skipped without it
+ * - jar: java -jar on --jar
+ * - cds: --jar extracted (jarmode=tools), run with the class data sharing archive of a training run
+ * - aot-cds: as cds, with Spring AOT initializers (-Dspring.aot.enabled=true, jar built with -P startup)
+ *
+ * Options (all --key=value):
+ * - jar=../mcp-server/target/mcp-server-1.0.0-SNAPSHOT.jar, baseline=, variants=baseline,jar,cds,aot-cds
+ * - runs=5 (timed runs per variant, after one untimed run), report=target/startup-result.json
+ * - sim.*: simulator settings, app.*: extra MCP server properties for every variant
+ */
+@Log4j2
+public class StartupBenchmark {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(3);
+    private static final String FIRST_TOOL = "es_dates";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path workDir = Path.of("target", "startup-benchmark").toAbsolutePath();
+    private final Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args)
+                .withDefault("sim.failure-ratio", "0");
+        new StartupBenchmark().run(options, args);
+        System.exit(0);
+    }
+
+    private void run(Options options, String[] args) throws Exception {
+        Path jar = Path.of(options.get("jar", "../mcp-server/target/mcp-server-1.0.0-SNAPSHOT.jar")).toAbsolutePath();
+        List<String> variants = new ArrayList<>(List.of(options.get("variants", "baseline,jar,cds,aot-cds").split(",")));
+        if (!options.has("baseline")) {
+            variants.remove("baseline");
+        }
+        int runs = options.getInt("runs", 5);
+        Files.createDirectories(workDir);
+
+        ObjectNode report = objectMapper.createObjectNode();
+        try (RedashSimulator simulator = new RedashSimulator(RedashSimulator.Settings.from(options))) {
+            simulator.start();
+            List<String> appArgs = appArgs(simulator.getBaseUrl(), args);
+            for (String variant : variants) {
+                List<String> launch = switch (variant) {
+                    case "baseline" -> List.of("-jar", Path.of(options.get("baseline", "")).toAbsolutePath().toString());
+                    case "jar" -> List.of("-jar", jar.toString());
+                    case "cds" -> cdsLaunch(jar, variant, false, appArgs);
+                    case "aot-cds" -> cdsLaunch(jar, variant, true, appArgs);
+                    default -> throw new IllegalArgumentException("Unknown variant: " + variant);
+                };
+                report.set(variant, runVariant(variant, launch, runs, appArgs));
+            }
+        }
+
+        System.out.println(formatTable(report));
+        Path reportPath = Path.of(options.get("report", "target/startup-result.json"));
+        Files.createDirectories(reportPath.toAbsolutePath().getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(reportPath.toFile(), report);
+        log.info("Startup benchmark report written to {}", reportPath.toAbsolutePath());
+    }
+
+    /**
+     * Extract the jar and record the archive in a training run that exits after the context refresh,
+     * returns the launch arguments using it
+     */
+    private List<String> cdsLaunch(Path jar, String variant, boolean aot, List<String> appArgs) throws Exception {
+        Path extracted = workDir.resolve(variant);
+        exec(List.of(java.toString(), "-Djarmode=tools", "-jar", jar.toString(), "extract", "--force",
+                "--destination", extracted.toString()), "extract-" + variant);
+        Path extractedJar = extracted.resolve(jar.getFileName());
+        Path archive = extracted.resolve("application.jsa");
+        Files.deleteIfExists(archive);
+
+        List<String> aotFlag = aot ? List.of("-Dspring.aot.enabled=true") : List.of();
+        List<String> training = new ArrayList<>(List.of(java.toString(), "-XX:ArchiveClassesAtExit=" + archive,
+                "-Dspring.context.exit=onRefresh"));
+        training.addAll(aotFlag);
+        training.addAll(List.of("-jar", extractedJar.toString()));
+        training.addAll(appArgs);
+        training.add("--server.port=0");
+        long start = System.nanoTime();
+        exec(training, "training-" + variant);
+        log.info("{}: training run took {} ms, archive {} MB", variant, (System.nanoTime() - start) / 1_000_000,
+                Files.size(archive) / (1024 * 1024));
+
+        List<String> launch = new ArrayList<>(List.of("-XX:SharedArchiveFile=" + archive));
+        launch.addAll(aotFlag);
+        launch.addAll(List.of("-jar", extractedJar.toString()));
+        return launch;
+    }
+
+    private void exec(List<String> command, String name) throws Exception {
+        Path logFile = workDir.resolve(name + ".log");
+        int exit = new ProcessBuilder(command)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(logFile.toFile())
+                .start()
+                .waitFor();
+        if (exit != 0) {
+            throw new IllegalStateException(name + " exited with " + exit + ", see " + logFile);
+        }
+    }
+
+    private ObjectNode runVariant(String variant, List<String> launch, int runs, List<String> appArgs) throws Exception {
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("command", "java " + String.join(" ", launch));
+        ArrayNode timings = result.putArray("runs");
+        long[] firstTool = new long[runs];
+        long[] session = new long[runs];
+        for (int run = -1; run < runs; run++) {
+            long[] timing = launchOnce(variant, launch, appArgs);
+            if (run < 0) {
+                continue;
+            }
+            session[run] = timing[0];
+            firstTool[run] = timing[1];
+            timings.addObject().put("sessionMs", timing[0]).put("firstToolMs", timing[1]);
+            log.info("{} run {}: session after {} ms, first tool response after {} ms", variant, run + 1, timing[0], timing[1]);
+        }
+        result.put("medianSessionMs", median(session));
+        result.put("medianFirstToolMs", median(firstTool));
+        result.put("minFirstToolMs", Arrays.stream(firstTool).min().orElse(0));
+        return result;
+    }
+
+    /**
+     * Launch the server once, returns the milliseconds from spawn to an open MCP session and to the first tool response
+     */
+    private long[] launchOnce(String variant, List<String> launch, List<String> appArgs) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>(List.of(java.toString()));
+        command.addAll(launch);
+        command.addAll(appArgs);
+        command.add("--server.port=" + port);
+
+        long start = System.nanoTime();
+        Process server = new ProcessBuilder(command)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(workDir.resolve(variant + "-server.log").toFile())
+                .start();
+        try {
+            awaitPort(port, server);
+            try (McpSyncClient client = McpClient.sync(HttpClientSseClientTransport.builder("http://127.0.0.1:" + port).build())
+                    .requestTimeout(Duration.ofSeconds(60))
+                    .build()) {
+                client.initialize();
+                long sessionMs = (System.nanoTime() - start) / 1_000_000;
+
+                McpSchema.Tool tool = client.listTools().tools().stream()
+                        .filter(candidate -> FIRST_TOOL.equals(candidate.name()))
+                        .findFirst()
+                        .orElseThrow(() -> new IllegalStateException(FIRST_TOOL + " not listed"));
+                String parameter = tool.inputSchema().properties().keySet().iterator().next();
+                McpSchema.CallToolResult response = client.callTool(new McpSchema.CallToolRequest(FIRST_TOOL,
+                        Map.of(parameter, "transactions of the last 7 days")));
+                long firstToolMs = (System.nanoTime() - start) / 1_000_000;
+                if (Boolean.TRUE.equals(response.isError())) {
+                    throw new IllegalStateException(FIRST_TOOL + " failed: " + response.content());
+                }
+                return new long[]{sessionMs, firstToolMs};
+            }
+        } finally {
+            server.destroy();
+            server.waitFor();
+        }
+    }
+
+    private static void awaitPort(int port, Process server) throws Exception {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!server.isAlive()) {
+                throw new IllegalStateException("MCP server exited with " + server.exitValue());
+            }
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("127.0.0.1", port), 100);
+                return;
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(20);
+        }
+        throw new IllegalStateException("MCP server did not start within " + STARTUP_TIMEOUT);
+    }
+
+    private List<String> appArgs(String redashUrl, String[] args) {
+        List<String> appArgs = new ArrayList<>(List.of(
+                "--redash.base-url=" + redashUrl,
+                "--redash.api-key=loadtest",
+                // Simulator results stay out of the real data directory
+                "--elasticsearch.data-dir=" + workDir.resolve("data"),
+                "--spring.devtools.restart.enabled=false",
+                "--logging.level.root=WARN"));
+        for (String arg : args) {
+            if (arg.startsWith("--app.")) {
+                appArgs.add("--" + arg.substring("--app.".length()));
+            }
+        }
+        return appArgs;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted.length == 0 ? 0 : sorted[sorted.length / 2];
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Render the report as a text table, one row per variant
+     */
+    static String formatTable(JsonNode report) {
+        StringBuilder table = new StringBuilder(String.format("%n%-9s %14s %16s %14s%n",
+                "variant", "session ms", "first tool ms", "min ms"));
+        report.fields().forEachRemaining(variant -> table.append(String.format("%-9s %14d %16d %14d%n", variant.getKey(),
+                variant.getValue().path("medianSessionMs").asLong(), variant.getValue().path("medianFirstToolMs").asLong(),
+                variant.getValue().path("minFirstToolMs").asLong())));
+        return table.toString();
+    }
+}
@@ -1,6 +1,7 @@
 package com.paytm.mcpserver;
 
 import com.paytm.mcpserver.service.ElasticsearchService;
+import com.paytm.mcpserver.service.McpMetrics;
 import org.springframework.ai.support.ToolCallbacks;
 import org.springframework.ai.tool.ToolCallback;
 import org.springframework.ai.tool.ToolCallbackProvider;
@@ -8,10 +9,14 @@ import org.springframework.ai.tool.method.MethodToolCallbackProvider;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.Arrays;
 
 import lombok.extern.log4j.Log4j2;
 
 @SpringBootApplication
+@EnableScheduling
 @Log4j2
 public class McpServerApplication {
 
@@ -20,9 +25,12 @@ public class McpServerApplication {
 	}
 
 	@Bean
-	public ToolCallbackProvider elasticsearchTools(ElasticsearchService elasticsearchService){
+	public ToolCallbackProvider elasticsearchTools(ElasticsearchService elasticsearchService, McpMetrics mcpMetrics){
 		log.info("Registering Elasticsearch tools with MCP server");
-		ToolCallbackProvider provider = MethodToolCallbackProvider.builder().toolObjects(elasticsearchService).build();
+		ToolCallbackProvider methodTools = MethodToolCallbackProvider.builder().toolObjects(elasticsearchService).build();
+		ToolCallbackProvider provider = ToolCallbackProvider.from(Arrays.stream(methodTools.getToolCallbacks())
+				.map(mcpMetrics::timed)
+				.toList());
 		log.info("Registered {} tools", provider.getToolCallbacks().length);
 		return provider;
 	}
@@ -0,0 +1,63 @@
+package com.paytm.mcpserver.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Elasticsearch tier configuration
+ *
+ * Tiers are listed newest first. Each tier holds data from (today - retention) up to the
+ * start of the previous (newer) tier. The oldest tier may omit retention and use "since"
+ * as a fixed lower bound instead.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "elasticsearch")
+@Getter
+@Setter
+public class EsTierProperties {
+
+    private List<Tier> tiers = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Tier {
+
+        /** Tier identifier returned by es_host, e.g. PRIMARY */
+        private String name;
+
+        /** Cluster name used for Redash query names and result tagging, e.g. UTH_ES_Primary */
+        private String displayName;
+
+        /** Redash data source ids serving this tier */
+        private List<Integer> dataSourceIds = new ArrayList<>();
+
+        /** Age of the oldest data held by this tier (e.g. P6M) */
+        private Period retention;
+
+        /** Fixed lower bound of the tier data, used when retention is not set */
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+        private LocalDate since;
+
+        /** Data of this tier no longer changes, its search results are kept in the disk result cache */
+        private boolean immutable;
+
+        /**
+         * Oldest day of this tier's data on the given day: today - retention, never before since
+         */
+        public LocalDate lowerBound(LocalDate today) {
+            if (retention == null) {
+                return since;
+            }
+            LocalDate lowerBound = today.minus(retention);
+            return since != null && since.isAfter(lowerBound) ? since : lowerBound;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.paytm.mcpserver.config;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
@@ -21,15 +22,14 @@ public class HttpClientConfig {
 
     /**
      * RestTemplate bean with configured timeouts
+     * Built from the Boot builder so its JSON converter uses the shared ObjectMapper
      */
     @Bean
-    public RestTemplate restTemplate() {
+    public RestTemplate restTemplate(RestTemplateBuilder restTemplateBuilder) {
         SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
         factory.setConnectTimeout(connectionTimeout);
         factory.setReadTimeout(readTimeout);
         
-        RestTemplate restTemplate = new RestTemplate();
-        restTemplate.setRequestFactory(factory);
-        return restTemplate;
+        return restTemplateBuilder.requestFactory(() -> factory).build();
     }
 }
@@ -0,0 +1,33 @@
+package com.paytm.mcpserver.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.paytm.mcpserver.utility.JsonCodec;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Jackson Configuration
+ * All services share the Spring Boot ObjectMapper, tuned with the Blackbird module
+ * (generated accessors instead of reflection for POJO binding)
+ */
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * Registered on the auto-configured ObjectMapper by Spring Boot
+     */
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    /**
+     * Precomputed readers/writers over the shared ObjectMapper for the search path
+     */
+    @Bean
+    public JsonCodec jsonCodec(ObjectMapper objectMapper) {
+        return new JsonCodec(objectMapper);
+    }
+}
@@ -0,0 +1,44 @@
+package com.paytm.mcpserver.config;
+
+import org.apache.commons.logging.Log;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.boot.logging.DeferredLogFactory;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+/**
+ * Virtual-thread mode for MCP tool calls
+ *
+ * {@code spring.threads.virtual.enabled} moves Tomcat request handling and Spring's executors to virtual threads,
+ * but the MCP server runs every synchronous tool on Reactor's boundedElastic scheduler, capped at 10 platform
+ * threads per core. With virtual threads enabled, boundedElastic is switched to virtual threads and its cap raised
+ * to {@code mcp.virtual-threads.tool-concurrency}. Reactor reads these settings once, when its Schedulers class is
+ * loaded, so they are set as system properties before the context starts (explicit -D values win).
+ */
+public class VirtualThreadEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    static final String ON_VIRTUAL_THREADS = "reactor.schedulers.defaultBoundedElasticOnVirtualThreads";
+    static final String BOUNDED_ELASTIC_SIZE = "reactor.schedulers.defaultBoundedElasticSize";
+
+    private final Log log;
+
+    public VirtualThreadEnvironmentPostProcessor(DeferredLogFactory logFactory) {
+        this.log = logFactory.getLog(VirtualThreadEnvironmentPostProcessor.class);
+    }
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            return;
+        }
+        String toolConcurrency = environment.getProperty("mcp.virtual-threads.tool-concurrency", "10000");
+        if (System.getProperty(ON_VIRTUAL_THREADS) == null) {
+            System.setProperty(ON_VIRTUAL_THREADS, "true");
+        }
+        if (System.getProperty(BOUNDED_ELASTIC_SIZE) == null) {
+            System.setProperty(BOUNDED_ELASTIC_SIZE, toolConcurrency);
+        }
+        log.info("Virtual threads enabled, MCP tool calls run on virtual threads (at most "
+                + System.getProperty(BOUNDED_ELASTIC_SIZE) + " at once)");
+    }
+}
@@ -0,0 +1,21 @@
+package com.paytm.mcpserver.enums;
+
+/**
+ * Enum representing the file formats es_export writes
+ */
+public enum ExportFormatEnum {
+    /** One JSON row per line */
+    NDJSON("ndjson"),
+    /** Header line with the columns, then one comma-separated row per line */
+    CSV("csv");
+
+    private final String extension;
+
+    ExportFormatEnum(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,13 @@
+package com.paytm.mcpserver.enums;
+
+/**
+ * Enum representing policies for routing a tier search to one of its Redash data sources
+ */
+public enum RoutingPolicyEnum {
+    /** Data source with the fewest in-flight searches */
+    LEAST_OUTSTANDING,
+    /** Data source with the lowest EWMA latency, weighted by in-flight searches */
+    EWMA_LATENCY,
+    /** Two random data sources, the one with the lower EWMA/in-flight score wins */
+    POWER_OF_TWO_CHOICES
+}
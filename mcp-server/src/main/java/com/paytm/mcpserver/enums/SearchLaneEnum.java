@@ -0,0 +1,11 @@
+package com.paytm.mcpserver.enums;
+
+/**
+ * Enum representing the priority lanes searches are scheduled in
+ */
+public enum SearchLaneEnum {
+    /** Point lookups and small recent searches, an agent is waiting on them */
+    INTERACTIVE,
+    /** Long historical scans, aggregations and large result sets */
+    BULK
+}
@@ -0,0 +1,17 @@
+package com.paytm.mcpserver.enums;
+
+/**
+ * Enum representing how a search is executed, chosen from its pre-flight row count
+ */
+public enum SearchStrategyEnum {
+    /** One query per host, as given */
+    DIRECT,
+    /** Nothing matches, no search is run */
+    EMPTY,
+    /** from/size pages of one query per host */
+    PAGINATE,
+    /** One query per index, newest month first, paged within the index */
+    SPLIT_BY_INDEX,
+    /** Too many rows to fetch, the query has to be narrowed */
+    REFUSE
+}
@@ -0,0 +1,296 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.paytm.mcpserver.config.EsTierProperties.Tier;
+import com.paytm.mcpserver.service.ElasticsearchHostSelector.HostCoverage;
+import com.paytm.mcpserver.utility.DateFormatUtility;
+import com.paytm.mcpserver.utility.JsonCodec;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-entity aggregation over a date range, answered from daily rollups
+ *
+ * Settled days (older than {@code elasticsearch.rollup.settle-days}) are served from the
+ * DailyRollupStore. Days missing from it are fetched through Redash with a day x txnType x status
+ * aggregation, one query per missing span and tier, and added to the store. Recent days can still
+ * change, they are aggregated live on every request and never stored.
+ */
+@Service
+@Lazy
+@Log4j2
+public class DailyRollupService {
+
+    private static final Set<String> GROUP_FIELDS = Set.of("txnType", "status");
+    private static final String TIME_ZONE = "+05:30";
+
+    private final DailyRollupStore store;
+    private final RedashSearchService redashSearchService;
+    private final ElasticsearchHostSelector hostSelector;
+    private final ElasticSearchIndexFetcher indexFetcher;
+    private final RedashAdmissionController admission;
+    private final JsonCodec jsonCodec;
+
+    @Value("${elasticsearch.rollup.settle-days:2}")
+    private int settleDays;
+
+    @Value("${elasticsearch.rollup.max-days:1100}")
+    private int maxDays;
+
+    public DailyRollupService(DailyRollupStore store, RedashSearchService redashSearchService,
+                              ElasticsearchHostSelector hostSelector, ElasticSearchIndexFetcher indexFetcher,
+                              RedashAdmissionController admission, JsonCodec jsonCodec) {
+        this.store = store;
+        this.redashSearchService = redashSearchService;
+        this.hostSelector = hostSelector;
+        this.indexFetcher = indexFetcher;
+        this.admission = admission;
+        this.jsonCodec = jsonCodec;
+    }
+
+    /**
+     * Count and amount of the entity's transactions between the dates, grouped by the given fields
+     */
+    public String aggregate(String entityId, String startDate, String endDate, List<String> groupBy, String clientId)
+            throws Exception {
+        if (!DailyRollupStore.isValidEntityId(entityId)) {
+            throw new IllegalArgumentException("Invalid entityId: " + entityId);
+        }
+        for (String field : groupBy) {
+            if (!GROUP_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Can only group by " + GROUP_FIELDS + ", got " + field);
+            }
+        }
+        LocalDate start = DateFormatUtility.tryParseDate(startDate);
+        LocalDate end = DateFormatUtility.tryParseDate(endDate);
+        if (start == null || end == null || end.isBefore(start)) {
+            throw new IllegalArgumentException("⚠️ Valid startDate and endDate are required. Call es_dates tool FIRST!");
+        }
+        if (start.plusDays(maxDays).isBefore(end)) {
+            throw new IllegalArgumentException("Date range is longer than " + maxDays + " days");
+        }
+
+        long startNanos = System.nanoTime();
+        LocalDate lastSettled = LocalDate.now(DateFormatUtility.IST_ZONE).minusDays(settleDays);
+        DailyRollupStore.EntityRollup rollup = store.acquire(entityId);
+        try {
+            return aggregate(rollup, start, end, lastSettled, groupBy, clientId, startNanos);
+        } finally {
+            store.release(rollup);
+        }
+    }
+
+    private String aggregate(DailyRollupStore.EntityRollup rollup, LocalDate start, LocalDate end, LocalDate lastSettled,
+                             List<String> groupBy, String clientId, long startNanos) throws Exception {
+        String entityId = rollup.entityId;
+
+
+        // Spans to fetch: settled days the store does not cover, then the live days
+        List<LocalDate[]> missing = new ArrayList<>();
+        int storedDays = 0;
+        rollup.lock.lock();
+        try {
+            LocalDate spanStart = null;
+            for (LocalDate day = start; !day.isAfter(end) && !day.isAfter(lastSettled); day = day.plusDays(1)) {
+                if (rollup.coveredDays.contains(day)) {
+                    storedDays++;
+                    if (spanStart != null) {
+                        missing.add(new LocalDate[]{spanStart, day.minusDays(1)});
+                        spanStart = null;
+                    }
+                } else if (spanStart == null) {
+                    spanStart = day;
+                }
+            }
+            if (spanStart != null) {
+                missing.add(new LocalDate[]{spanStart, end.isAfter(lastSettled) ? lastSettled : end});
+            }
+        } finally {
+            rollup.lock.unlock();
+        }
+        LocalDate[] live = end.isAfter(lastSettled) ? new LocalDate[]{start.isAfter(lastSettled) ? start : lastSettled.plusDays(1), end} : null;
+
+        List<SpanQuery> queries = new ArrayList<>();
+        missing.forEach(span -> queries.addAll(spanQueries(entityId, span[0], span[1])));
+        List<SpanQuery> liveQueries = live == null ? List.of() : spanQueries(entityId, live[0], live[1]);
+        admission.checkRate(clientId, queries.size() + liveQueries.size());
+
+        // Fetch the missing settled spans and store them, a span is stored only when every tier answered
+        int fetchedDays = 0;
+        for (LocalDate[] span : missing) {
+            Map<LocalDate, List<DailyRollupStore.Bucket>> fetched = new HashMap<>();
+            for (SpanQuery query : queries) {
+                if (query.spanStart.equals(span[0])) {
+                    fetch(query, fetched);
+                }
+            }
+            rollup.lock.lock();
+            try {
+                rollup.putDays(span[0], span[1], fetched);
+            } finally {
+                rollup.lock.unlock();
+            }
+            store.save(rollup);
+            fetchedDays += (int) (span[1].toEpochDay() - span[0].toEpochDay() + 1);
+        }
+        Map<LocalDate, List<DailyRollupStore.Bucket>> liveBuckets = new HashMap<>();
+        for (SpanQuery query : liveQueries) {
+            fetch(query, liveBuckets);
+        }
+
+        // Aggregate the stored days and the live days
+        Map<String, long[]> counts = new LinkedHashMap<>();
+        Map<String, double[]> amounts = new HashMap<>();
+        rollup.lock.lock();
+        try {
+            for (List<DailyRollupStore.Bucket> dayBuckets : rollup.buckets.subMap(start, true, end, true).values()) {
+                dayBuckets.forEach(bucket -> add(bucket, groupBy, counts, amounts));
+            }
+        } finally {
+            rollup.lock.unlock();
+        }
+        liveBuckets.values().forEach(dayBuckets -> dayBuckets.forEach(bucket -> add(bucket, groupBy, counts, amounts)));
+
+        ObjectNode response = jsonCodec.createObjectNode();
+        response.put("entityId", entityId);
+        response.put("startDate", start.toString());
+        response.put("endDate", end.toString());
+        ArrayNode groupByNode = response.putArray("groupBy");
+        groupBy.forEach(groupByNode::add);
+        long totalCount = 0;
+        double totalAmount = 0;
+        ArrayNode groups = response.putArray("groups");
+        for (Map.Entry<String, long[]> group : counts.entrySet()) {
+            ObjectNode groupNode = groups.addObject();
+            String[] values = group.getKey().split("\u0000", -1);
+            for (int i = 0; i < groupBy.size(); i++) {
+                groupNode.put(groupBy.get(i), values[i]);
+            }
+            groupNode.put("count", group.getValue()[0]);
+            groupNode.put("amount", amounts.get(group.getKey())[0]);
+            totalCount += group.getValue()[0];
+            totalAmount += amounts.get(group.getKey())[0];
+        }
+        response.putObject("totals").put("count", totalCount).put("amount", totalAmount);
+        ObjectNode source = response.putObject("source");
+        source.put("storedDays", storedDays);
+        source.put("fetchedDays", fetchedDays);
+        source.put("liveDays", live == null ? 0 : (int) (live[1].toEpochDay() - live[0].toEpochDay() + 1));
+        source.put("redashQueries", queries.size() + liveQueries.size());
+        source.put("executionTimeMs", (System.nanoTime() - startNanos) / 1_000_000);
+        return jsonCodec.write(response);
+    }
+
+    private static void add(DailyRollupStore.Bucket bucket, List<String> groupBy, Map<String, long[]> counts,
+                            Map<String, double[]> amounts) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < groupBy.size(); i++) {
+            if (i > 0) {
+                key.append('\u0000');
+            }
+            key.append("txnType".equals(groupBy.get(i)) ? bucket.txnType() : bucket.status());
+        }
+        counts.computeIfAbsent(key.toString(), k -> new long[1])[0] += bucket.count();
+        amounts.computeIfAbsent(key.toString(), k -> new double[1])[0] += bucket.amount();
+    }
+
+    /**
+     * One aggregation query per tier covering part of the span, clamped to the tier's window
+     * Days no tier covers hold no data anywhere and need no query
+     */
+    private List<SpanQuery> spanQueries(String entityId, LocalDate spanStart, LocalDate spanEnd) {
+        List<SpanQuery> queries = new ArrayList<>();
+        for (HostCoverage coverage : hostSelector.selectHost(spanStart.toString(), spanEnd.toString())) {
+            LocalDate from = coverage.startDate().toLocalDate().isAfter(spanStart) ? coverage.startDate().toLocalDate() : spanStart;
+            LocalDate to = coverage.endDate().toLocalDate().isBefore(spanEnd) ? coverage.endDate().toLocalDate() : spanEnd;
+            if (from.isAfter(to)) {
+                continue;
+            }
+            Tier tier = hostSelector.getTier(coverage.host());
+            RedashSearchService.HostInfo host = new RedashSearchService.HostInfo(tier.getDisplayName(), tier.getDataSourceIds());
+            List<String> indices = indexFetcher.findIndicesForDateRange(from.toString(), to.toString());
+            queries.add(new SpanQuery(spanStart, host, indices, buildQuery(entityId, from, to)));
+        }
+        return queries;
+    }
+
+    /**
+     * size-0 search with day > txnType > status buckets and the summed amount
+     */
+    private String buildQuery(String entityId, LocalDate from, LocalDate to) {
+        ObjectNode query = jsonCodec.createObjectNode();
+        ArrayNode filter = query.putObject("query").putObject("bool").putArray("filter");
+        filter.addObject().putObject("term").put("entityId", entityId);
+        filter.addObject().putObject("range").putObject("txnDate")
+                .put("gte", from + "T00:00:00" + TIME_ZONE)
+                .put("lt", to.plusDays(1) + "T00:00:00" + TIME_ZONE);
+        query.put("size", 0);
+
+        ObjectNode day = query.putObject("aggs").putObject("day");
+        day.putObject("date_histogram")
+                .put("field", "txnDate")
+                .put("calendar_interval", "day")
+                .put("time_zone", TIME_ZONE)
+                .put("format", "yyyy-MM-dd")
+                .put("min_doc_count", 1);
+        ObjectNode txnType = day.putObject("aggs").putObject("txnType");
+        txnType.putObject("terms").put("field", "txnType").put("size", 100);
+        ObjectNode status = txnType.putObject("aggs").putObject("status");
+        status.putObject("terms").put("field", "status").put("size", 50);
+        status.putObject("aggs").putObject("amount").putObject("sum").put("field", "amount");
+        try {
+            return jsonCodec.write(query);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to build rollup query", e);
+        }
+    }
+
+    /**
+     * Run a span query and add its buckets per day
+     * Redash flattens the nested buckets into rows with one column per aggregation name
+     */
+    private void fetch(SpanQuery query, Map<LocalDate, List<DailyRollupStore.Bucket>> buckets) throws Exception {
+        RedashSearchService.SearchResult result = redashSearchService.executeMultiHostSearch(
+                query.query, query.indices, List.of(query.host), false, null);
+        JsonNode response = jsonCodec.readTree(result.json());
+        if (result.successfulHosts() == 0 || response.has("error") || response.has("errors")) {
+            throw new IllegalStateException("Rollup query failed on " + query.host.hostName + ": "
+                    + response.path("errors").path(0).asText(response.path("error").asText()));
+        }
+        for (JsonNode row : response.path("query_result").path("data").path("rows")) {
+            LocalDate day = bucketDay(row.get("day"));
+            if (day == null || !row.has("txnType") || !row.has("status")) {
+                continue;
+            }
+            buckets.computeIfAbsent(day, d -> new ArrayList<>()).add(new DailyRollupStore.Bucket(
+                    row.get("txnType").asText(), row.get("status").asText(),
+                    row.path("doc_count").asLong(), row.path("amount").asDouble()));
+        }
+    }
+
+    private static LocalDate bucketDay(JsonNode key) {
+        if (key == null) {
+            return null;
+        }
+        if (key.isNumber()) {
+            return Instant.ofEpochMilli(key.asLong()).atZone(DateFormatUtility.IST_ZONE).toLocalDate();
+        }
+        String text = key.asText();
+        return text.length() >= 10 ? LocalDate.parse(text.substring(0, 10)) : null;
+    }
+
+    private record SpanQuery(LocalDate spanStart, RedashSearchService.HostInfo host, List<String> indices, String query) {}
+}
@@ -0,0 +1,250 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.paytm.mcpserver.utility.JsonCodec;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * File-backed store of daily transaction rollups per entityId
+ *
+ * One JSON file per entity ({@code elasticsearch.rollup.dir}/<entityId>.json) holds the days the
+ * rollup covers (as date ranges) and, for every covered day with transactions, count and amount per
+ * txnType and status. Covered days without transactions have no buckets.
+ *
+ * Loaded entities are kept in memory up to {@code elasticsearch.rollup.max-cached-entities} (LRU), an
+ * entity is only dropped while nobody holds it so there is a single instance per entity at any time.
+ * Files are replaced atomically so a crash never leaves a half-written rollup.
+ */
+@Service
+@Lazy
+@Log4j2
+public class DailyRollupStore {
+
+    private static final Pattern ENTITY_ID_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final JsonCodec jsonCodec;
+
+    @Value("${elasticsearch.rollup.dir:${user.home}/.elasticsearch-mcp/rollups}")
+    private Path directory;
+
+    @Value("${elasticsearch.rollup.max-cached-entities:10000}")
+    private int maxCachedEntities;
+
+    // Access-ordered, the least recently used entity is dropped first
+    private final LinkedHashMap<String, EntityRollup> entities = new LinkedHashMap<>(256, 0.75f, true);
+    // A lock rather than a monitor, loading an entity reads its file
+    private final ReentrantLock entitiesLock = new ReentrantLock();
+
+    public DailyRollupStore(JsonCodec jsonCodec) {
+        this.jsonCodec = jsonCodec;
+    }
+
+    @PostConstruct
+    void createDirectory() throws IOException {
+        Files.createDirectories(directory);
+        log.info("Daily rollups stored in {}", directory.toAbsolutePath());
+    }
+
+    public static boolean isValidEntityId(String entityId) {
+        return entityId != null && ENTITY_ID_PATTERN.matcher(entityId).matches();
+    }
+
+    /**
+     * Rollup of an entity, empty when nothing is stored yet
+     * The instance stays the only one of the entity until it is released, callers use its lock
+     */
+    public EntityRollup acquire(String entityId) {
+        if (!isValidEntityId(entityId)) {
+            throw new IllegalArgumentException("Invalid entityId: " + entityId);
+        }
+        entitiesLock.lock();
+        try {
+            EntityRollup rollup = entities.get(entityId);
+            if (rollup == null) {
+                rollup = read(entityId);
+                entities.put(entityId, rollup);
+            }
+            rollup.users++;
+            evictIdle();
+            return rollup;
+        } finally {
+            entitiesLock.unlock();
+        }
+    }
+
+    public void release(EntityRollup rollup) {
+        entitiesLock.lock();
+        try {
+            rollup.users--;
+            evictIdle();
+        } finally {
+            entitiesLock.unlock();
+        }
+    }
+
+    private void evictIdle() {
+        Iterator<EntityRollup> iterator = entities.values().iterator();
+        while (entities.size() > maxCachedEntities && iterator.hasNext()) {
+            if (iterator.next().users == 0) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Write the rollup of an entity, callers must not hold its lock
+     * Writes of an entity are serialized and each one takes its snapshot after the previous write, so the file
+     * never goes back to an older state
+     */
+    public void save(EntityRollup rollup) throws IOException {
+        rollup.writeLock.lock();
+        try {
+            String content;
+            rollup.lock.lock();
+            try {
+                content = jsonCodec.write(toJson(rollup));
+            } finally {
+                rollup.lock.unlock();
+            }
+            Path file = file(rollup.entityId);
+            Path temporary = Files.createTempFile(directory, rollup.entityId, ".tmp");
+            try {
+                Files.writeString(temporary, content, StandardCharsets.UTF_8);
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } finally {
+            rollup.writeLock.unlock();
+        }
+    }
+
+    private ObjectNode toJson(EntityRollup rollup) {
+        ObjectNode json = jsonCodec.createObjectNode();
+        json.put("entityId", rollup.entityId);
+        ArrayNode covered = json.putArray("covered");
+        LocalDate rangeStart = null;
+        LocalDate previous = null;
+        for (LocalDate day : rollup.coveredDays) {
+            if (previous == null || !day.equals(previous.plusDays(1))) {
+                if (rangeStart != null) {
+                    covered.addArray().add(rangeStart.toString()).add(previous.toString());
+                }
+                rangeStart = day;
+            }
+            previous = day;
+        }
+        if (rangeStart != null) {
+            covered.addArray().add(rangeStart.toString()).add(previous.toString());
+        }
+        ObjectNode days = json.putObject("days");
+        rollup.buckets.forEach((day, dayBuckets) -> {
+            ArrayNode dayNode = days.putArray(day.toString());
+            for (Bucket bucket : dayBuckets) {
+                dayNode.addObject()
+                        .put("txnType", bucket.txnType())
+                        .put("status", bucket.status())
+                        .put("count", bucket.count())
+                        .put("amount", bucket.amount());
+            }
+        });
+        return json;
+    }
+
+    private EntityRollup read(String entityId) {
+        EntityRollup rollup = new EntityRollup(entityId);
+        Path file = file(entityId);
+        if (!Files.exists(file)) {
+            return rollup;
+        }
+        try {
+            JsonNode json = jsonCodec.readTree(Files.readString(file, StandardCharsets.UTF_8));
+            for (JsonNode range : json.path("covered")) {
+                LocalDate end = LocalDate.parse(range.get(1).asText());
+                for (LocalDate day = LocalDate.parse(range.get(0).asText()); !day.isAfter(end); day = day.plusDays(1)) {
+                    rollup.coveredDays.add(day);
+                }
+            }
+            Iterator<Map.Entry<String, JsonNode>> days = json.path("days").fields();
+            while (days.hasNext()) {
+                Map.Entry<String, JsonNode> day = days.next();
+                List<Bucket> dayBuckets = new ArrayList<>();
+                for (JsonNode bucket : day.getValue()) {
+                    dayBuckets.add(new Bucket(bucket.path("txnType").asText(), bucket.path("status").asText(),
+                            bucket.path("count").asLong(), bucket.path("amount").asDouble()));
+                }
+                rollup.buckets.put(LocalDate.parse(day.getKey()), dayBuckets);
+            }
+        } catch (Exception e) {
+            // A damaged file is rebuilt from Redash
+            log.warn("Ignoring unreadable rollup {}: {}", file, e.getMessage());
+            return new EntityRollup(entityId);
+        }
+        return rollup;
+    }
+
+    private Path file(String entityId) {
+        return directory.resolve(entityId + ".json");
+    }
+
+    // Helper classes
+
+    /**
+     * Daily rollup of one entity, days in coveredDays without buckets had no transactions
+     * Reads and updates hold lock, it is never held across a file write
+     */
+    public static class EntityRollup {
+        public final String entityId;
+        public final NavigableSet<LocalDate> coveredDays = new TreeSet<>();
+        public final NavigableMap<LocalDate, List<Bucket>> buckets = new TreeMap<>();
+        public final ReentrantLock lock = new ReentrantLock();
+        private final ReentrantLock writeLock = new ReentrantLock();
+        // Holders of the instance, guarded by the store's entitiesLock
+        private int users;
+
+        EntityRollup(String entityId) {
+            this.entityId = entityId;
+        }
+
+        /**
+         * Record the buckets of fully fetched days, replacing what was stored for them
+         */
+        public void putDays(LocalDate start, LocalDate end, Map<LocalDate, List<Bucket>> dayBuckets) {
+            for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+                coveredDays.add(day);
+                List<Bucket> fetched = dayBuckets.get(day);
+                if (fetched == null || fetched.isEmpty()) {
+                    buckets.remove(day);
+                } else {
+                    buckets.put(day, fetched);
+                }
+            }
+        }
+    }
+
+    public record Bucket(String txnType, String status, long count, double amount) {}
+}
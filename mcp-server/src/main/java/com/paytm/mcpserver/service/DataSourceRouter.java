@@ -0,0 +1,195 @@
+package com.paytm.mcpserver.service;
+
+import com.paytm.mcpserver.enums.RoutingPolicyEnum;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes tier searches across equivalent Redash data sources
+ *
+ * Keeps live per data source stats (in-flight searches, EWMA latency, consecutive failures)
+ * fed by searchOnHost timings, exposed as redash.routing.* gauges. Count probes only count towards health,
+ * their latency is not that of a search. Data sources failing repeatedly are taken out of rotation
+ * for a cooldown period; if every candidate is unhealthy all of them are considered again.
+ */
+@Service
+@Log4j2
+public class DataSourceRouter {
+
+    @Value("${redash.routing.policy:POWER_OF_TWO_CHOICES}")
+    private RoutingPolicyEnum policy;
+
+    @Value("${redash.routing.ewma-alpha:0.3}")
+    private double ewmaAlpha;
+
+    @Value("${redash.routing.failure-threshold:3}")
+    private int failureThreshold;
+
+    @Value("${redash.routing.cooldown-ms:30000}")
+    private long cooldownMs;
+
+    @Value("${redash.routing.failure-penalty-ms:60000}")
+    private long failurePenaltyMs;
+
+    private final Map<Integer, DataSourceStats> stats = new ConcurrentHashMap<>();
+    private final McpMetrics metrics;
+
+    public DataSourceRouter(McpMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Pick a data source for a search and mark it in-flight
+     * Every acquire must be paired with a {@link #release}
+     */
+    public int acquire(List<Integer> dataSourceIds) {
+        if (dataSourceIds == null || dataSourceIds.isEmpty()) {
+            throw new IllegalArgumentException("No data sources configured for host");
+        }
+
+        DataSourceStats chosen;
+        if (dataSourceIds.size() == 1) {
+            chosen = statsFor(dataSourceIds.get(0));
+        } else {
+            chosen = choose(healthyCandidates(dataSourceIds));
+        }
+        chosen.outstanding.incrementAndGet();
+        return chosen.dataSourceId;
+    }
+
+    /**
+     * Record the outcome of a search on a data source
+     * A failure counts as at least the failure penalty, so a data source failing fast does not look fast
+     */
+    public void release(int dataSourceId, long latencyMs, boolean success) {
+        DataSourceStats dataSource = statsFor(dataSourceId);
+        dataSource.outstanding.decrementAndGet();
+        dataSource.recordLatency(success ? latencyMs : Math.max(latencyMs, failurePenaltyMs), ewmaAlpha);
+        recordOutcome(dataSource, success);
+    }
+
+    /**
+     * Record the outcome of a size-0 count probe, it counts towards health but leaves the search latency alone
+     */
+    public void releaseProbe(int dataSourceId, boolean success) {
+        DataSourceStats dataSource = statsFor(dataSourceId);
+        dataSource.outstanding.decrementAndGet();
+        recordOutcome(dataSource, success);
+    }
+
+    private void recordOutcome(DataSourceStats dataSource, boolean success) {
+        int dataSourceId = dataSource.dataSourceId;
+        if (success) {
+            dataSource.consecutiveFailures.set(0);
+        } else if (dataSource.consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            dataSource.unhealthyUntil = System.currentTimeMillis() + cooldownMs;
+            log.warn("Data source {} marked unhealthy for {}ms after {} consecutive failures",
+                    dataSourceId, cooldownMs, dataSource.consecutiveFailures.get());
+        }
+    }
+
+    /**
+     * Release a data source that ended up not being searched, without recording an outcome
+     */
+    public void cancel(int dataSourceId) {
+        statsFor(dataSourceId).outstanding.decrementAndGet();
+    }
+
+    private List<DataSourceStats> healthyCandidates(List<Integer> dataSourceIds) {
+        long now = System.currentTimeMillis();
+        List<DataSourceStats> all = new ArrayList<>(dataSourceIds.size());
+        List<DataSourceStats> healthy = new ArrayList<>(dataSourceIds.size());
+        for (Integer dataSourceId : dataSourceIds) {
+            DataSourceStats dataSource = statsFor(dataSourceId);
+            all.add(dataSource);
+            if (dataSource.isHealthy(now)) {
+                healthy.add(dataSource);
+            }
+        }
+        return healthy.isEmpty() ? all : healthy;
+    }
+
+    private DataSourceStats choose(List<DataSourceStats> candidates) {
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+
+        switch (policy) {
+            case LEAST_OUTSTANDING: {
+                DataSourceStats best = candidates.get(0);
+                for (DataSourceStats candidate : candidates) {
+                    if (candidate.outstanding.get() < best.outstanding.get()) {
+                        best = candidate;
+                    }
+                }
+                return best;
+            }
+            case EWMA_LATENCY: {
+                DataSourceStats best = candidates.get(0);
+                for (DataSourceStats candidate : candidates) {
+                    if (candidate.score() < best.score()) {
+                        best = candidate;
+                    }
+                }
+                return best;
+            }
+            case POWER_OF_TWO_CHOICES:
+            default: {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int first = random.nextInt(candidates.size());
+                int second = random.nextInt(candidates.size() - 1);
+                if (second >= first) {
+                    second++;
+                }
+                DataSourceStats a = candidates.get(first);
+                DataSourceStats b = candidates.get(second);
+                return a.score() <= b.score() ? a : b;
+            }
+        }
+    }
+
+    private DataSourceStats statsFor(int dataSourceId) {
+        return stats.computeIfAbsent(dataSourceId, id -> {
+            DataSourceStats dataSource = new DataSourceStats(id);
+            metrics.registerDataSource(id, dataSource.outstanding::get, () -> dataSource.ewmaLatencyMs,
+                    () -> dataSource.isHealthy(System.currentTimeMillis()) ? 1 : 0);
+            return dataSource;
+        });
+    }
+
+    // Helper classes
+    private static class DataSourceStats {
+        final int dataSourceId;
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicInteger consecutiveFailures = new AtomicInteger();
+        volatile double ewmaLatencyMs;
+        volatile long unhealthyUntil;
+
+        DataSourceStats(int dataSourceId) {
+            this.dataSourceId = dataSourceId;
+        }
+
+        synchronized void recordLatency(long latencyMs, double alpha) {
+            ewmaLatencyMs = ewmaLatencyMs == 0 ? latencyMs : alpha * latencyMs + (1 - alpha) * ewmaLatencyMs;
+        }
+
+        boolean isHealthy(long now) {
+            return now >= unhealthyUntil;
+        }
+
+        /**
+         * Expected wait if this data source is picked, unmeasured sources score 0 so they get probed
+         */
+        double score() {
+            return ewmaLatencyMs * (outstanding.get() + 1);
+        }
+    }
+}
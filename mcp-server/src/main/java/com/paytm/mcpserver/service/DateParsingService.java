@@ -2,6 +2,7 @@ package com.paytm.mcpserver.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.paytm.mcpserver.utility.DateExpressionParser;
 import com.paytm.mcpserver.utility.DateFormatUtility;
 import com.paytm.mcpserver.utility.ElasticsearchUtility;
 import lombok.extern.log4j.Log4j2;
@@ -16,18 +17,23 @@ import java.time.LocalDate;
  * Logic:
  * - If 2 dates provided: return both in ISO 8601 format
  * - If 1 date provided: treat as start date, end date = now
- * - If no dates provided: start = first of current month, end = now
+ * - If no dates provided: extract the range from the user prompt ("last 7 days", "this quarter", "FY24", ...)
+ * - Otherwise: start = first of current month, end = now
  */
 @Service
 @Log4j2
 public class DateParsingService {
     
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper;
+    
+    public DateParsingService(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
     
     /**
      * Parse dates based on user input
      * 
-     * @param userPrompt Natural language prompt (for future LLM extraction)
+     * @param userPrompt Natural language prompt, used when no explicit dates are given
      * @param explicitStartDate Explicit start date if provided
      * @param explicitEndDate Explicit end date if provided
      * @return JSON string with startDate and endDate in ISO 8601 format
@@ -39,6 +45,13 @@ public class DateParsingService {
             String startDate;
             String endDate;
             String source;
+            String expression = null;
+            
+            // The prompt is only consulted when no explicit dates are given
+            DateExpressionParser.DateRange promptRange =
+                    !StringUtils.hasText(explicitStartDate) && !StringUtils.hasText(explicitEndDate)
+                            ? DateExpressionParser.parse(userPrompt, LocalDate.now(DateFormatUtility.IST_ZONE))
+                            : null;
             
             // Scenario A: Both dates provided explicitly
             if (StringUtils.hasText(explicitStartDate) && StringUtils.hasText(explicitEndDate)) {
@@ -61,9 +74,16 @@ public class DateParsingService {
                 source = "explicit_end_only";
                 log.info("Using explicit end date, start date = start of month");
             }
-            // Scenario D: No explicit dates - use defaults
+            // Scenario D: No explicit dates - extract them from the prompt
+            else if (promptRange != null) {
+                startDate = DateFormatUtility.formatDate(promptRange.start());
+                endDate = DateFormatUtility.formatDateEndOfDay(promptRange.end());
+                expression = promptRange.expression();
+                source = "prompt";
+                log.info("Extracted dates from prompt expression '{}'", expression);
+            }
+            // Scenario E: No dates anywhere - use defaults
             else {
-                // Future enhancement: Extract dates from userPrompt using LLM
                 startDate = getStartOfCurrentMonth();
                 endDate = getCurrentDateTime();
                 source = "default";
@@ -71,7 +91,7 @@ public class DateParsingService {
             }
             
             // Build response JSON
-            return buildDateResponse(startDate, endDate, source);
+            return buildDateResponse(startDate, endDate, source, expression);
             
         } catch (Exception e) {
             log.error("Failed to parse dates", e);
@@ -122,12 +142,15 @@ public class DateParsingService {
     /**
      * Build successful date response JSON
      */
-    private String buildDateResponse(String startDate, String endDate, String source) {
+    private String buildDateResponse(String startDate, String endDate, String source, String expression) {
         try {
             ObjectNode response = objectMapper.createObjectNode();
             response.put("startDate", startDate);
             response.put("endDate", endDate);
             response.put("source", source);
+            if (expression != null) {
+                response.put("expression", expression);
+            }
             response.put("timezone", "Asia/Kolkata");
             response.put("status", "success");
             
@@ -1,8 +1,8 @@
 package com.paytm.mcpserver.service;
 
-import com.paytm.mcpserver.utility.ElasticsearchUtility;
 import com.paytm.mcpserver.utility.DateFormatUtility;
-import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
@@ -10,6 +10,8 @@ import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.util.StringUtils;
@@ -19,14 +21,32 @@ import org.springframework.util.StringUtils;
  *
  * Generates index names following the pattern: payment-history-MM-yyyy*
  * For date ranges spanning multiple months, returns all indices in between.
+ * The index pattern is read once at startup.
  */
 @Service
+@Log4j2
 public class ElasticSearchIndexFetcher{
 
+    private static final String DEFAULT_INDEX_PATTERN = "payment-history-MM-yyyy*";
+
     @Value("${elasticsearch.index-patterns.file:classpath:schemas/index-patterns.json}")
     private Resource indexPatternsResource;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper;
+
+    private String indexPattern = DEFAULT_INDEX_PATTERN;
+    private Pattern indexMonthPattern;
+
+    public ElasticSearchIndexFetcher(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    void loadIndexPattern() {
+        indexPattern = readIndexPattern();
+        indexMonthPattern = monthPattern(indexPattern);
+        log.info("Using index pattern: {}", indexPattern);
+    }
 
     /**
      * Find relevant indices based on date range
@@ -41,24 +61,20 @@ public class ElasticSearchIndexFetcher{
                 );
             }
             
-            // Validate ISO 8601 format (ensures es_dates was called)
-            if (!DateFormatUtility.isValidDateFormat(startDate)) {
+            // Parse and validate ISO 8601 format in one pass (ensures es_dates was called)
+            LocalDate start = DateFormatUtility.tryParseDate(startDate);
+            if (start == null) {
                 throw new IllegalArgumentException(
                     String.format("⚠️ Invalid startDate format: '%s'. Must use es_dates tool first! Expected ISO 8601 format (e.g., 2025-01-15 or 2025-01-15T00:00:00+05:30)", startDate)
                 );
             }
             
-            if (!DateFormatUtility.isValidDateFormat(endDate)) {
+            LocalDate end = DateFormatUtility.tryParseDate(endDate);
+            if (end == null) {
                 throw new IllegalArgumentException(
                     String.format("⚠️ Invalid endDate format: '%s'. Must use es_dates tool first! Expected ISO 8601 format (e.g., 2025-01-15 or 2025-01-15T23:59:59+05:30)", endDate)
                 );
             }
-            
-            // Parse dates in ISO 8601 format
-            LocalDate start = DateFormatUtility.parseDate(startDate);
-            LocalDate end = DateFormatUtility.parseDate(endDate);
-
-            String indexPattern = getIndexPattern();
 
             return generateIndicesForDateRange(start, end, indexPattern);
 
@@ -68,16 +84,76 @@ public class ElasticSearchIndexFetcher{
     }
 
     /**
-     * Get index pattern from JSON configuration file
+     * Get the configured index pattern (e.g. payment-history-MM-yyyy*)
+     */
+    public String getIndexPattern() {
+        return indexPattern;
+    }
+
+    /**
+     * Get the index name for a month, e.g. payment-history-01-2025*
+     */
+    public String getIndexName(YearMonth yearMonth) {
+        return formatIndexName(yearMonth, indexPattern);
+    }
+
+    /**
+     * Month of an index or index pattern name, e.g. payment-history-01-2025-v2 to 2025-01
+     * Null for names that do not follow the index pattern
+     */
+    public YearMonth getIndexMonth(String index) {
+        Pattern monthPattern = indexMonthPattern == null ? monthPattern(indexPattern) : indexMonthPattern;
+        Matcher matcher = monthPattern == null ? null : monthPattern.matcher(index);
+        if (matcher == null || !matcher.matches()) {
+            return null;
+        }
+        int month = Integer.parseInt(matcher.group("month"));
+        return month >= 1 && month <= 12 ? YearMonth.of(Integer.parseInt(matcher.group("year")), month) : null;
+    }
+
+    /**
+     * Wildcard matching every monthly index of the pattern, e.g. payment-history-*
+     */
+    public String getIndexWildcard() {
+        return indexPattern.replace("MM", "*").replace("yyyy", "*").replaceAll("\\*+(-\\*+)*", "*");
+    }
+
+    /**
+     * Regex of the names an index pattern generates, with month and year groups; '*' matches anything
+     * Null when the pattern has no month or no year
+     */
+    private static Pattern monthPattern(String pattern) {
+        if (!pattern.contains("MM") || !pattern.contains("yyyy")) {
+            return null;
+        }
+        StringBuilder regex = new StringBuilder();
+        int literalStart = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            String group = pattern.startsWith("MM", i) ? "(?<month>\\d{2})"
+                    : pattern.startsWith("yyyy", i) ? "(?<year>\\d{4})"
+                    : pattern.charAt(i) == '*' ? ".*" : null;
+            if (group != null) {
+                regex.append(Pattern.quote(pattern.substring(literalStart, i))).append(group);
+                i += group.equals(".*") ? 0 : group.contains("month") ? 1 : 3;
+                literalStart = i + 1;
+            }
+        }
+        regex.append(Pattern.quote(pattern.substring(literalStart))).append(".*");
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * Read index pattern from JSON configuration file
      */
-    private String getIndexPattern() {
+    private String readIndexPattern() {
         try {
             String jsonContent = indexPatternsResource.getContentAsString(java.nio.charset.StandardCharsets.UTF_8);
             JsonNode rootNode = objectMapper.readTree(jsonContent);
             return rootNode.get("index-pattern").asText();
         } catch (Exception e) {
             // Fallback to default pattern if file not found
-            return "payment-history-MM-yyyy*";
+            log.warn("Failed to read index pattern, using default {}: {}", DEFAULT_INDEX_PATTERN, e.getMessage());
+            return DEFAULT_INDEX_PATTERN;
         }
     }
 
@@ -1,41 +1,93 @@
 package com.paytm.mcpserver.service;
 
-import com.paytm.mcpserver.enums.EsHostEnum;
-import com.paytm.mcpserver.utility.ElasticsearchUtility;
+import com.paytm.mcpserver.config.EsTierProperties;
+import com.paytm.mcpserver.config.EsTierProperties.Tier;
 import com.paytm.mcpserver.utility.DateFormatUtility;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service for selecting optimal Elasticsearch hosts based on date ranges
- * 
- * Host Selection Logic:
+ *
+ * Tiers come from configuration ({@code elasticsearch.tiers}), newest first, e.g.:
  * - PRIMARY: Recent data (last 6 months)
- * - SECONDARY: Medium-term data (6 months to 1 year ago)  
- * - TERTIARY: Historical data (older than 1 year, from April 2023)
- * 
+ * - SECONDARY: Medium-term data (6 months to 18 months ago)
+ * - TERTIARY: Historical data (older than 18 months, from April 2023)
+ *
+ * Tier boundaries are computed once per day into a sorted interval table and
+ * host selection is a binary search over it.
  * Returns multiple hosts if the date range spans across different host periods.
  */
 @Service
+@Log4j2
 public class ElasticsearchHostSelector {
-    
-    private static final LocalDate TERTIARY_START_DATE = LocalDate.of(2023, 4, 1);
-    
-    // Inner record classes to keep everything in one file
-    public record DateRange(LocalDateTime start, LocalDateTime end) {
-        @Override
-        public String toString() {
-            return String.format("%s to %s", start.toLocalDate(), end.toLocalDate());
+
+    private final EsTierProperties tierProperties;
+    private final Map<String, Tier> tiersByName = new LinkedHashMap<>();
+
+    private volatile TierTable tierTable;
+
+    public ElasticsearchHostSelector(EsTierProperties tierProperties) {
+        this.tierProperties = tierProperties;
+    }
+
+    public record HostCoverage(String host, LocalDateTime startDate, LocalDateTime endDate) {}
+
+    @PostConstruct
+    void validateTiers() {
+        List<Tier> tiers = tierProperties.getTiers();
+        if (tiers.isEmpty()) {
+            throw new IllegalStateException("No Elasticsearch tiers configured (elasticsearch.tiers)");
+        }
+
+        LocalDate today = LocalDate.now(DateFormatUtility.IST_ZONE);
+        LocalDate previousLowerBound = today.plusDays(1);
+        for (int i = 0; i < tiers.size(); i++) {
+            Tier tier = tiers.get(i);
+            if (!StringUtils.hasText(tier.getName()) || tier.getDataSourceIds().isEmpty()) {
+                throw new IllegalStateException("Elasticsearch tier #" + i + " needs a name and at least one data source id");
+            }
+            if (tier.getRetention() == null && (tier.getSince() == null || i != tiers.size() - 1)) {
+                throw new IllegalStateException("Elasticsearch tier " + tier.getName()
+                        + " needs a retention (only the oldest tier may use 'since' alone)");
+            }
+            LocalDate lowerBound = tier.lowerBound(today);
+            if (!lowerBound.isBefore(previousLowerBound)) {
+                throw new IllegalStateException("Elasticsearch tiers must be ordered newest first, " + tier.getName()
+                        + " does not reach further back than the previous tier");
+            }
+            previousLowerBound = lowerBound;
+
+            if (tiersByName.put(tier.getName(), tier) != null) {
+                throw new IllegalStateException("Duplicate Elasticsearch tier name: " + tier.getName());
+            }
         }
+        tierTable = buildTierTable(today);
+        log.info("Configured {} Elasticsearch tiers: {}", tiers.size(), tiersByName.keySet());
     }
-    
-    public record HostCoverage(EsHostEnum host, LocalDateTime startDate, LocalDateTime endDate) {}
-    
+
+    /**
+     * Look up a configured tier by the name returned from es_host
+     */
+    public Tier getTier(String name) {
+        Tier tier = tiersByName.get(name);
+        if (tier == null) {
+            throw new IllegalArgumentException("Unknown Elasticsearch host: " + name + ", expected one of " + tiersByName.keySet());
+        }
+        return tier;
+    }
+
     /**
      * Select optimal hosts based on start and end date
      * Returns list of HostCoverage objects if date range spans across different periods
@@ -48,85 +100,96 @@ public class ElasticsearchHostSelector {
                     "⚠️ Start and end dates are required. Call es_dates tool FIRST to get properly formatted dates!"
                 );
             }
-            
-            // Validate ISO 8601 format (ensures es_dates was called)
-            if (!DateFormatUtility.isValidDateFormat(startDate)) {
+
+            // Parse and validate ISO 8601 format in one pass (ensures es_dates was called)
+            LocalDate parsedStart = DateFormatUtility.tryParseDate(startDate);
+            if (parsedStart == null) {
                 throw new IllegalArgumentException(
                     String.format("⚠️ Invalid startDate format: '%s'. Must use es_dates tool first! Expected ISO 8601 format (e.g., 2025-01-15 or 2025-01-15T00:00:00+05:30)", startDate)
                 );
             }
-            
-            if (!DateFormatUtility.isValidDateFormat(endDate)) {
+
+            LocalDate parsedEnd = DateFormatUtility.tryParseDate(endDate);
+            if (parsedEnd == null) {
                 throw new IllegalArgumentException(
                     String.format("⚠️ Invalid endDate format: '%s'. Must use es_dates tool first! Expected ISO 8601 format (e.g., 2025-01-15 or 2025-01-15T23:59:59+05:30)", endDate)
                 );
             }
 
-            // Parse dates in ISO 8601 format
-            LocalDateTime start = DateFormatUtility.parseDate(startDate).atStartOfDay();
-            LocalDateTime end = DateFormatUtility.parseDate(endDate).atTime(23, 59, 59);
-            
-            // Calculate date ranges
-            LocalDateTime now = LocalDateTime.now();
-            DateRange primaryRange = new DateRange(now.minusMonths(6), now);
-            DateRange secondaryRange = new DateRange(now.minusMonths(6).minusDays(365), now.minusMonths(6));
-            DateRange tertiaryRange = new DateRange(TERTIARY_START_DATE.atStartOfDay(), now.minusMonths(6).minusDays(365));
-            
-            // Select multiple hosts
-            List<HostCoverage> coverages = new ArrayList<>();
-            LocalDateTime currentStart = start;
-            
-            // TERTIARY coverage
-            if (currentStart.isBefore(tertiaryRange.end) && end.isAfter(tertiaryRange.start)) {
-                LocalDateTime segmentStart = maxDate(currentStart, tertiaryRange.start);
-                LocalDateTime segmentEnd = minDate(end, tertiaryRange.end);
-                
-                if (!segmentStart.isAfter(segmentEnd)) {
-                    coverages.add(new HostCoverage(EsHostEnum.TERTIARY, segmentStart, segmentEnd));
-                    currentStart = segmentEnd.plusSeconds(1);
-                }
-            }
-            
-            // SECONDARY coverage
-            if (currentStart.isBefore(secondaryRange.end) && end.isAfter(secondaryRange.start)) {
-                LocalDateTime segmentStart = maxDate(currentStart, secondaryRange.start);
-                LocalDateTime segmentEnd = minDate(end, secondaryRange.end);
-                
-                if (!segmentStart.isAfter(segmentEnd)) {
-                    coverages.add(new HostCoverage(EsHostEnum.SECONDARY, segmentStart, segmentEnd));
-                    currentStart = segmentEnd.plusSeconds(1);
-                }
-            }
-            
-            // PRIMARY coverage
-            if (currentStart.isBefore(primaryRange.end) && end.isAfter(primaryRange.start)) {
-                LocalDateTime segmentStart = maxDate(currentStart, primaryRange.start);
-                LocalDateTime segmentEnd = minDate(end, primaryRange.end);
-                
-                if (!segmentStart.isAfter(segmentEnd)) {
-                    coverages.add(new HostCoverage(EsHostEnum.PRIMARY, segmentStart, segmentEnd));
-                }
-            }
-            
-            // Return the list of host coverages
-            return coverages;
-            
+            return currentTierTable().select(parsedStart.atStartOfDay(), parsedEnd.atTime(23, 59, 59));
+
         } catch (Exception e) {
             throw new RuntimeException("Host selection failed: " + e.getMessage(), e);
         }
     }
-    
+
     /**
-     * Get the maximum of two LocalDateTime objects
+     * Get the tier table for today, rebuilding it when the day rolls over
      */
-    private LocalDateTime maxDate(LocalDateTime date1, LocalDateTime date2) {
-        return date1.isAfter(date2) ? date1 : date2;
+    private TierTable currentTierTable() {
+        TierTable table = tierTable;
+        LocalDate today = LocalDate.now(DateFormatUtility.IST_ZONE);
+        if (!table.validFor().equals(today)) {
+            table = buildTierTable(today);
+            tierTable = table;
+            log.debug("Rebuilt Elasticsearch tier table for {}", today);
+        }
+        return table;
+    }
+
+    /**
+     * Build the interval table for a given day, ordered oldest tier first
+     */
+    private TierTable buildTierTable(LocalDate today) {
+        List<Tier> tiers = tierProperties.getTiers();
+        int size = tiers.size();
+        String[] names = new String[size];
+        LocalDateTime[] lowerBounds = new LocalDateTime[size];
+        LocalDateTime[] upperBounds = new LocalDateTime[size];
+        long[] lowerBoundSeconds = new long[size];
+
+        LocalDateTime upperBound = today.atTime(23, 59, 59);
+        for (int i = 0; i < size; i++) {
+            Tier tier = tiers.get(i);
+            int slot = size - 1 - i;
+            LocalDateTime lowerBound = tier.lowerBound(today).atStartOfDay();
+
+            names[slot] = tier.getName();
+            lowerBounds[slot] = lowerBound;
+            upperBounds[slot] = upperBound;
+            lowerBoundSeconds[slot] = lowerBound.toEpochSecond(ZoneOffset.UTC);
+
+            upperBound = lowerBound.minusSeconds(1);
+        }
+        return new TierTable(today, names, lowerBounds, upperBounds, lowerBoundSeconds);
     }
-    
+
     /**
-     * Get the minimum of two LocalDateTime objects
+     * Sorted, non-overlapping tier intervals for one day
      */
-    private LocalDateTime minDate(LocalDateTime date1, LocalDateTime date2) {
-        return date1.isBefore(date2) ? date1 : date2;
+    private record TierTable(LocalDate validFor, String[] names, LocalDateTime[] lowerBounds,
+                             LocalDateTime[] upperBounds, long[] lowerBoundSeconds) {
+
+        List<HostCoverage> select(LocalDateTime start, LocalDateTime end) {
+            List<HostCoverage> coverages = new ArrayList<>(names.length);
+            if (start.isAfter(end)) {
+                return coverages;
+            }
+
+            // Last interval starting at or before the range start (or the oldest one)
+            int index = Arrays.binarySearch(lowerBoundSeconds, start.toEpochSecond(ZoneOffset.UTC));
+            if (index < 0) {
+                index = Math.max(0, -index - 2);
+            }
+
+            for (int i = index; i < names.length && !lowerBounds[i].isAfter(end); i++) {
+                LocalDateTime segmentStart = start.isAfter(lowerBounds[i]) ? start : lowerBounds[i];
+                LocalDateTime segmentEnd = end.isBefore(upperBounds[i]) ? end : upperBounds[i];
+                if (!segmentStart.isAfter(segmentEnd)) {
+                    coverages.add(new HostCoverage(names[i], segmentStart, segmentEnd));
+                }
+            }
+            return coverages;
+        }
     }
 }
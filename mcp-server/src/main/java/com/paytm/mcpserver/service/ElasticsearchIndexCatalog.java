@@ -0,0 +1,193 @@
+package com.paytm.mcpserver.service;
+
+import com.paytm.mcpserver.config.EsTierProperties;
+import com.paytm.mcpserver.config.EsTierProperties.Tier;
+import com.paytm.mcpserver.utility.DateFormatUtility;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cached catalog of the indices that exist on each Redash data source
+ *
+ * Refreshed periodically from the configured {@link IndexCatalogSource}, on its own scheduler thread.
+ * Lookups fail open: while a data source has not been catalogued yet (or its refresh failed) every index
+ * is assumed to exist, and so is an index of a month the snapshot cannot rule out (at or after the month
+ * it was taken in, or after its newest index), e.g. the new month's index created at rollover. The catalog
+ * can only prune searches, never break them.
+ */
+@Service
+@Log4j2
+public class ElasticsearchIndexCatalog {
+
+    @Value("${elasticsearch.index-catalog.enabled:true}")
+    private boolean enabled;
+
+    @Value("${elasticsearch.index-catalog.initial-delay-ms:0}")
+    private long initialDelayMs;
+
+    @Value("${elasticsearch.index-catalog.refresh-interval-ms:900000}")
+    private long refreshIntervalMs;
+
+    private final EsTierProperties tierProperties;
+    private final IndexCatalogSource catalogSource;
+    private final ElasticSearchIndexFetcher indexFetcher;
+
+    private final Map<Integer, Snapshot> snapshotsByDataSource = new ConcurrentHashMap<>();
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+
+    public ElasticsearchIndexCatalog(EsTierProperties tierProperties, IndexCatalogSource catalogSource,
+                                     ElasticSearchIndexFetcher indexFetcher) {
+        this.tierProperties = tierProperties;
+        this.catalogSource = catalogSource;
+        this.indexFetcher = indexFetcher;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("index-catalog-");
+        scheduler.initialize();
+        scheduler.scheduleWithFixedDelay(this::refresh, Instant.now().plusMillis(initialDelayMs),
+                Duration.ofMillis(refreshIntervalMs));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Refresh the catalog of every configured data source
+     */
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+
+        for (Tier tier : tierProperties.getTiers()) {
+            for (Integer dataSourceId : tier.getDataSourceIds()) {
+                try {
+                    YearMonth snapshotMonth = YearMonth.now(DateFormatUtility.IST_ZONE);
+                    Set<String> indices = catalogSource.fetchIndices(tier, dataSourceId);
+                    if (indices.isEmpty()) {
+                        // An empty listing is more likely a broken probe than an empty cluster, keep failing open
+                        log.warn("Index catalog for {} (data source {}) came back empty, not pruning it",
+                                tier.getName(), dataSourceId);
+                        continue;
+                    }
+                    snapshotsByDataSource.put(dataSourceId, snapshot(indices, snapshotMonth));
+                    log.debug("Catalogued {} indices on {} (data source {})", indices.size(), tier.getName(), dataSourceId);
+                } catch (Exception e) {
+                    log.warn("Failed to refresh index catalog for {} (data source {}): {}",
+                            tier.getName(), dataSourceId, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Keep only the indices (or index patterns ending in '*') that exist on a data source
+     */
+    public List<String> retainExisting(int dataSourceId, List<String> indices) {
+        Snapshot known = enabled ? snapshotsByDataSource.get(dataSourceId) : null;
+        if (known == null) {
+            return indices;
+        }
+
+        List<String> existing = new ArrayList<>(indices.size());
+        for (String index : indices) {
+            if (mayExist(known, index)) {
+                existing.add(index);
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Keep only the indices that exist on at least one configured data source
+     */
+    public List<String> retainExistingOnAnyHost(List<String> indices) {
+        if (!enabled) {
+            return indices;
+        }
+
+        List<Snapshot> catalogs = new ArrayList<>();
+        for (Tier tier : tierProperties.getTiers()) {
+            for (Integer dataSourceId : tier.getDataSourceIds()) {
+                Snapshot known = snapshotsByDataSource.get(dataSourceId);
+                if (known == null) {
+                    return indices;
+                }
+                catalogs.add(known);
+            }
+        }
+
+        List<String> existing = new ArrayList<>(indices.size());
+        for (String index : indices) {
+            if (catalogs.stream().anyMatch(known -> mayExist(known, index))) {
+                existing.add(index);
+            }
+        }
+        return existing;
+    }
+
+    private Snapshot snapshot(Set<String> indices, YearMonth snapshotMonth) {
+        YearMonth newestMonth = null;
+        for (String index : indices) {
+            YearMonth month = indexFetcher.getIndexMonth(index);
+            if (month != null && (newestMonth == null || month.isAfter(newestMonth))) {
+                newestMonth = month;
+            }
+        }
+        return new Snapshot(Collections.unmodifiableNavigableSet(new TreeSet<>(indices)), snapshotMonth, newestMonth);
+    }
+
+    /**
+     * Catalogued, or of a month that may have been created since the snapshot
+     */
+    private boolean mayExist(Snapshot known, String index) {
+        if (exists(known.indices(), index)) {
+            return true;
+        }
+        YearMonth month = indexFetcher.getIndexMonth(index);
+        return month != null && (!month.isBefore(known.snapshotMonth())
+                || (known.newestMonth() != null && month.isAfter(known.newestMonth())));
+    }
+
+    private static boolean exists(NavigableSet<String> known, String index) {
+        int wildcard = index.indexOf('*');
+        if (wildcard < 0) {
+            return known.contains(index);
+        }
+        // Prefix lookup on the sorted catalog: payment-history-01-2025* -> first name >= prefix
+        String prefix = index.substring(0, wildcard);
+        String candidate = known.ceiling(prefix);
+        return candidate != null && candidate.startsWith(prefix);
+    }
+
+    // Helper classes
+
+    /**
+     * Indices of a data source, the month the listing was taken in and the newest month it holds
+     */
+    private record Snapshot(NavigableSet<String> indices, YearMonth snapshotMonth, YearMonth newestMonth) {}
+}
@@ -11,6 +11,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.Optional;
 
 /**
  * Service for building Elasticsearch queries using LLM (Ollama Llama3.2)
@@ -24,11 +25,17 @@ import java.time.format.DateTimeFormatter;
 @Log4j2
 public class ElasticsearchQueryBuilderService {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper;
     private final ElasticsearchSchemaFetcher schemaFetcher;
+    private final NearDuplicatePromptCache promptCache;
+    private final McpMetrics metrics;
     
-    public ElasticsearchQueryBuilderService(ElasticsearchSchemaFetcher schemaFetcher) {
+    public ElasticsearchQueryBuilderService(ObjectMapper objectMapper, ElasticsearchSchemaFetcher schemaFetcher,
+                                            NearDuplicatePromptCache promptCache, McpMetrics metrics) {
+        this.objectMapper = objectMapper;
         this.schemaFetcher = schemaFetcher;
+        this.promptCache = promptCache;
+        this.metrics = metrics;
     }
     
 
@@ -54,6 +61,13 @@ public class ElasticsearchQueryBuilderService {
                 throw new IllegalArgumentException("Schema context is required - call es_schema tool first");
             }
 
+            // Reuse the DSL of a previously executed near-duplicate prompt if its literals bind cleanly
+            Optional<NearDuplicatePromptCache.CacheHit> cacheHit = promptCache.lookup(prompt);
+            metrics.recordCacheLookup("prompt", cacheHit.isPresent());
+            if (cacheHit.isPresent()) {
+                return buildCachedQueryResponse(cacheHit.get(), maxResults);
+            }
+
             // Fetch field value mappings automatically
             String fieldMappings = schemaFetcher.fetchFieldMappings();
 
@@ -66,6 +80,25 @@ public class ElasticsearchQueryBuilderService {
     }
 
 
+    /**
+     * Build response for a prompt served from the near-duplicate prompt cache
+     */
+    private String buildCachedQueryResponse(NearDuplicatePromptCache.CacheHit cacheHit, Integer maxResults) throws Exception {
+        ObjectNode query = (ObjectNode) objectMapper.readTree(cacheHit.queryDsl());
+        if (maxResults != null && maxResults > 0) {
+            query.put("size", maxResults);
+        }
+
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("status", "cached");
+        response.put("message", "Query reused from a similar previously executed prompt - pass 'query' directly to es_search");
+        response.set("query", query);
+        response.put("similarity", cacheHit.similarity());
+        response.put("matchedPrompt", cacheHit.matchedPrompt());
+        response.set("cacheStats", promptCache.getStats());
+        return objectMapper.writeValueAsString(response);
+    }
+
     /**
      * Build comprehensive system prompt with provided schema context and field mappings
      */
@@ -24,7 +24,11 @@ public class ElasticsearchSchemaFetcher {
     @Value("${elasticsearch.fieldmappings.file:classpath:schemas/field-value-mappings.json}")
     private String fieldMappingsFilePath;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper;
+
+    public ElasticsearchSchemaFetcher(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
 
     /**
      * Fetch ES schema from JSON file
@@ -3,13 +3,18 @@ package com.paytm.mcpserver.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.paytm.mcpserver.enums.EsHostEnum;
+import com.paytm.mcpserver.config.EsTierProperties.Tier;
+import com.paytm.mcpserver.enums.ExportFormatEnum;
+import com.paytm.mcpserver.enums.SearchStrategyEnum;
 import com.paytm.mcpserver.service.ElasticsearchHostSelector.HostCoverage;
+import com.paytm.mcpserver.utility.JsonCodec;
 
 import lombok.extern.log4j.Log4j2;
+import org.springframework.ai.chat.model.ToolContext;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -32,6 +37,9 @@ public class ElasticsearchService {
     @Autowired
     ElasticSearchIndexFetcher elasticSearchIndexFetcher;
 
+    @Autowired
+    ElasticsearchIndexCatalog indexCatalog;
+
     @Autowired
     private ElasticsearchQueryBuilderService queryBuilderService;
 
@@ -41,9 +49,41 @@ public class ElasticsearchService {
     @Autowired
     private DateParsingService dateParsingService;
 
-    @Tool(name="es_dates", description = "⚠️ CALL THIS FIRST! Parse and return start/end dates in ISO 8601 format. REQUIRED before calling es_host, es_indices, or any date-based queries. If 2 dates provided: return both. If 1 date: treat as start, end=now. If no dates: start=first of month, end=now")
+    @Autowired
+    private NearDuplicatePromptCache promptCache;
+
+    @Autowired
+    private RedashAdmissionController admission;
+
+    @Autowired
+    private SearchCostEstimator costEstimator;
+
+    @Autowired
+    private JsonCodec jsonCodec;
+
+    // Off the startup path, each one is created on the first call of its tool
+    @Lazy
+    @Autowired
+    private SearchBatchService searchBatchService;
+
+    @Lazy
+    @Autowired
+    private DailyRollupService dailyRollupService;
+
+    @Lazy
+    @Autowired
+    private SearchExportService searchExportService;
+
+    @Lazy
+    @Autowired
+    private IncrementalRefreshService incrementalRefreshService;
+
+    @Autowired
+    private StandingQueryService standingQueryService;
+
+    @Tool(name="es_dates", description = "⚠️ CALL THIS FIRST! Parse and return start/end dates in ISO 8601 format. REQUIRED before calling es_host, es_indices, or any date-based queries. If 2 dates provided: return both. If 1 date: treat as start, end=now. If no dates: extracted from userPrompt (e.g. 'last 7 days', 'yesterday', 'this quarter', 'since March', 'FY24'), else start=first of month, end=now")
     public String parseDates(
-            @ToolParam(description = "User prompt containing date information (for future NLP extraction)", required = false) String userPrompt,
+            @ToolParam(description = "User prompt containing date information, dates are extracted from it when no explicit dates are given", required = false) String userPrompt,
             @ToolParam(description = "Explicit start date in ISO 8601 format (e.g., 2025-10-15 or 2025-10-15T00:00:00+05:30)", required = false) String startDate,
             @ToolParam(description = "Explicit end date in ISO 8601 format (e.g., 2025-10-22 or 2025-10-22T23:59:59+05:30)", required = false) String endDate) {
         try {
@@ -73,7 +113,8 @@ public class ElasticsearchService {
     public String fetchEsIndices(@ToolParam(description = "Start date in ISO 8601 format from es_dates tool (e.g., 2025-01-15T00:00:00+05:30 or 2025-01-15)") String startDate,
                                   @ToolParam(description = "End date in ISO 8601 format from es_dates tool (e.g., 2025-01-15T23:59:59+05:30 or 2025-01-15)") String endDate){
         try {
-            List<String> indices = elasticSearchIndexFetcher.findIndicesForDateRange(startDate, endDate);
+            List<String> indices = indexCatalog.retainExistingOnAnyHost(
+                    elasticSearchIndexFetcher.findIndicesForDateRange(startDate, endDate));
             return objectMapper.writeValueAsString(indices);
         } catch (Exception e) {
             return String.format("{\"error\": \"Failed to serialize indices data\", \"message\": \"%s\"}", e.getMessage());
@@ -82,7 +123,7 @@ public class ElasticsearchService {
 
     @Tool(
             name = "es_query",
-            description = "Convert natural language query to Elasticsearch DSL using LLM with schema context. Requires schema context from es_schema tool for proper field mappings."
+            description = "Convert natural language query to Elasticsearch DSL using LLM with schema context. Requires schema context from es_schema tool for proper field mappings. If a similar prompt was executed before, returns the ready query directly (status=cached)."
     )
     public String buildElasticsearchQuery(
             @ToolParam(description = "Natural language query description") String prompt,
@@ -112,50 +153,310 @@ public class ElasticsearchService {
     public String executeElasticsearchSearch(
             @ToolParam(description = "Elasticsearch query DSL JSON") String queryDsl,
             @ToolParam(description = "Host coverages JSON from es_host tool") String hostCoveragesJson,
-            @ToolParam(description = "Comma-separated index names") String indices) {
+            @ToolParam(description = "Comma-separated index names") String indices,
+            @ToolParam(description = "Original natural language prompt given to es_query, lets similar prompts reuse this query", required = false) String prompt,
+            @ToolParam(description = "Set true to return a timing breakdown per host (query creation, Redash queue, polling, fetch, parse) and for the merge", required = false) Boolean profile,
+            @ToolParam(description = "Set true when re-running the same search periodically (monitoring): only documents changed since the previous run are fetched from the newest tier and merged into its result", required = false) Boolean refresh,
+            ToolContext toolContext) {
         try {
             log.info("Executing Elasticsearch search with indices: {}", indices);
 
-            // Parse indices - handle quoted strings and trim whitespace
-            List<String> indexList = Arrays.stream(indices.split(","))
-                    .map(String::trim)
-                    .map(s -> s.replaceAll("^\"|\"$", ""))
-                    .filter(s -> !s.isEmpty())
-                    .toList();
-            
-            log.debug("Parsed index list: {}", indexList);
+            List<String> indexList = parseIndices(indices);
+            List<RedashSearchService.HostInfo> hosts = parseHosts(hostCoveragesJson);
+            boolean refreshMode = Boolean.TRUE.equals(refresh);
 
-            // Parse host coverages - it's a direct array!
-            JsonNode hostCoveragesArray = objectMapper.readTree(hostCoveragesJson);
+            // Searches registered as standing queries are answered from their precomputed snapshot
+            if (!refreshMode) {
+                String standing = standingQueryService.lookup(objectMapper.readTree(queryDsl), indexList, hosts);
+                if (standing != null) {
+                    return standing;
+                }
+            }
 
-            if (!hostCoveragesArray.isArray()) {
-                throw new IllegalArgumentException("Expected array of host coverages");
+            String clientId = RedashAdmissionController.clientId(toolContext);
+
+            // Refresh mode: the previous result plus the documents changed since, when there is one to build on
+            long searchStartedAt = System.currentTimeMillis();
+            if (refreshMode) {
+                String refreshed = incrementalRefreshService.tryRefresh(objectMapper.readTree(queryDsl), indexList, hosts,
+                        Boolean.TRUE.equals(profile), clientId);
+                if (refreshed != null) {
+                    return refreshed;
+                }
             }
 
-            // Build host info list
-            List<RedashSearchService.HostInfo> hosts = new ArrayList<>();
-            for (JsonNode coverage : hostCoveragesArray) {
-                JsonNode hostNode = coverage.get("host");
-                
-                // hostNode is just "PRIMARY" string, not an object
-                // Convert enum string to EsHostEnum to get name and dataSourceId
-                String enumName = hostNode.asText();  // "PRIMARY"
-                EsHostEnum hostEnum = EsHostEnum.valueOf(enumName);  // Get the enum
-                String hostName = hostEnum.getName();  // "UTH_ES_Primary"
-                Integer dataSourceId = hostEnum.getDataSourceId();  // 3
-                
-                hosts.add(new RedashSearchService.HostInfo(hostName, dataSourceId));
+            // Large searches are counted first to decide how (and whether) they are fetched
+            JsonNode queryNode = objectMapper.readTree(queryDsl);
+            // Every Redash job counts against the calling session's rate: the count probe before it runs,
+            // then the pages or terms chunks on every host once the plan is known
+            admission.checkRate(clientId, costEstimator.probeJobs(queryNode, indexList, hosts));
+            SearchCostEstimator.SearchPlan plan = costEstimator.plan(queryNode, indexList, hosts);
+            admission.checkRate(clientId, costEstimator.redashJobs(plan, queryNode, hosts));
+            if (plan.strategy() == SearchStrategyEnum.REFUSE) {
+                log.info("es_search refused: {}", plan.reason());
+                return createRefusedResponse(plan);
             }
 
             // Execute multi-host search
-            return redashSearchService.executeMultiHostSearch(queryDsl, indexList, hosts);
+            RedashSearchService.SearchResult result =
+                    redashSearchService.executeMultiHostSearch(queryDsl, indexList, hosts, Boolean.TRUE.equals(profile), plan);
+
+            // Remember prompt -> DSL only once the query actually ran somewhere
+            if (prompt != null && !prompt.isBlank() && result.successfulHosts() > 0) {
+                promptCache.record(prompt, queryDsl);
+            }
+            if (refreshMode) {
+                return incrementalRefreshService.remember(objectMapper.readTree(queryDsl), indexList, hosts, result.json(),
+                        searchStartedAt);
+            }
+            return result.json();
 
+        } catch (RedashAdmissionController.RejectedException e) {
+            log.warn("es_search rejected: {}", e.getMessage());
+            return createRejectedResponse(e);
         } catch (Exception e) {
             log.error("Failed to execute Elasticsearch search", e);
             return createErrorResponse("Failed to execute Elasticsearch search", e.getMessage());
         }
     }
 
+    @Tool(
+            name = "es_search_batch",
+            description = "Execute several Elasticsearch searches in one call. Searches that only differ in the entityId/txnId/orderId they filter on are run as one Redash search and split back per query. Prefer it over repeated es_search calls"
+    )
+    public String executeElasticsearchSearchBatch(
+            @ToolParam(description = "JSON array of searches: [{\"query\": <query DSL>, \"indices\": \"optional comma-separated index names\", \"hostCoverages\": <optional es_host output>}]") String queriesJson,
+            @ToolParam(description = "Host coverages JSON from es_host tool, used by searches without their own") String hostCoveragesJson,
+            @ToolParam(description = "Comma-separated index names, used by searches without their own") String indices,
+            ToolContext toolContext) {
+        try {
+            JsonNode queriesArray = objectMapper.readTree(queriesJson);
+            if (!queriesArray.isArray() || queriesArray.isEmpty()) {
+                throw new IllegalArgumentException("Expected a non-empty array of searches");
+            }
+
+            List<String> defaultIndices = indices == null ? List.of() : parseIndices(indices);
+            List<RedashSearchService.HostInfo> defaultHosts = hostCoveragesJson == null ? List.of() : parseHosts(hostCoveragesJson);
+
+            List<SearchBatchService.BatchQuery> queries = new ArrayList<>();
+            for (JsonNode item : queriesArray) {
+                JsonNode query = item.path("query");
+                if (query.isTextual()) {
+                    query = objectMapper.readTree(query.asText());
+                } else if (!query.has("query")) {
+                    // The query DSL itself was given instead of a search object
+                    query = item;
+                }
+                List<String> queryIndices = item.hasNonNull("indices") ? parseIndices(item.get("indices").asText()) : defaultIndices;
+                List<RedashSearchService.HostInfo> queryHosts = item.hasNonNull("hostCoverages")
+                        ? parseHosts(item.get("hostCoverages").isTextual() ? item.get("hostCoverages").asText() : item.get("hostCoverages").toString())
+                        : defaultHosts;
+                if (queryIndices.isEmpty() || queryHosts.isEmpty()) {
+                    throw new IllegalArgumentException("Every search needs indices and host coverages");
+                }
+                queries.add(new SearchBatchService.BatchQuery(query, queryIndices, queryHosts));
+            }
+
+            return searchBatchService.execute(queries, RedashAdmissionController.clientId(toolContext));
+
+        } catch (RedashAdmissionController.RejectedException e) {
+            log.warn("es_search_batch rejected: {}", e.getMessage());
+            return createRejectedResponse(e);
+        } catch (Exception e) {
+            log.error("Failed to execute Elasticsearch search batch", e);
+            return createErrorResponse("Failed to execute Elasticsearch search batch", e.getMessage());
+        }
+    }
+
+    @Tool(
+            name = "es_rollup",
+            description = "⚠️ REQUIRES es_dates FIRST! Total count and amount of one user's (entityId) transactions between two dates, grouped by txnType and/or status. Answered from stored daily rollups, much faster than es_search with aggregations for repeated questions"
+    )
+    public String aggregateEntityTransactions(
+            @ToolParam(description = "entityId of the user/customer") String entityId,
+            @ToolParam(description = "Start date in ISO 8601 format from es_dates tool (e.g., 2025-01-15T00:00:00+05:30 or 2025-01-15)") String startDate,
+            @ToolParam(description = "End date in ISO 8601 format from es_dates tool (e.g., 2025-01-15T23:59:59+05:30 or 2025-01-15)") String endDate,
+            @ToolParam(description = "Comma-separated fields to group by: txnType, status. Defaults to txnType,status; empty string for totals only", required = false) String groupBy,
+            ToolContext toolContext) {
+        try {
+            List<String> groupFields = groupBy == null ? List.of("txnType", "status") : Arrays.stream(groupBy.split(","))
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .toList();
+            return dailyRollupService.aggregate(entityId, startDate, endDate, groupFields,
+                    RedashAdmissionController.clientId(toolContext));
+
+        } catch (RedashAdmissionController.RejectedException e) {
+            log.warn("es_rollup rejected: {}", e.getMessage());
+            return createRejectedResponse(e);
+        } catch (Exception e) {
+            log.error("Failed to aggregate transactions of {}", entityId, e);
+            return createErrorResponse("Failed to aggregate transactions", e.getMessage());
+        }
+    }
+
+    @Tool(
+            name = "es_export",
+            description = "Export ALL rows an Elasticsearch query matches (e.g. hundreds of thousands, for reconciliation) to a NDJSON or CSV file on the server's disk. Returns the file path, row counts per host and a SHA-256 of the file instead of the rows. Use es_search to look at rows, es_export when the full result set is needed"
+    )
+    public String exportElasticsearchSearch(
+            @ToolParam(description = "Elasticsearch query DSL JSON, its size is ignored (every matching row is exported)") String queryDsl,
+            @ToolParam(description = "Host coverages JSON from es_host tool") String hostCoveragesJson,
+            @ToolParam(description = "Comma-separated index names") String indices,
+            @ToolParam(description = "File format: ndjson (default) or csv", required = false) String format,
+            ToolContext toolContext) {
+        try {
+            ExportFormatEnum exportFormat = format == null || format.isBlank()
+                    ? ExportFormatEnum.NDJSON : ExportFormatEnum.valueOf(format.trim().toUpperCase());
+            return searchExportService.export(objectMapper.readTree(queryDsl), parseIndices(indices),
+                    parseHosts(hostCoveragesJson), exportFormat, RedashAdmissionController.clientId(toolContext));
+
+        } catch (RedashAdmissionController.RejectedException e) {
+            log.warn("es_export rejected: {}", e.getMessage());
+            return createRejectedResponse(e);
+        } catch (Exception e) {
+            log.error("Failed to export Elasticsearch search", e);
+            return createErrorResponse("Failed to export Elasticsearch search", e.getMessage());
+        }
+    }
+
+    @Tool(
+            name = "es_standing_query",
+            description = "Manage standing queries: searches asked every day that the server runs off-peak on a schedule. An es_search with the same query, indices and hosts is then answered instantly from the precomputed result (metadata.standing_query). Actions: list, add, remove, run"
+    )
+    public String manageStandingQuery(
+            @ToolParam(description = "list (default), add, remove or run") String action,
+            @ToolParam(description = "Name of the standing query (letters, digits, '-' or '_'), required except for list", required = false) String name,
+            @ToolParam(description = "For add: Elasticsearch query DSL JSON, {{startDate}} and {{endDate}} are replaced by the window's dates in es_dates format", required = false) String queryDsl,
+            @ToolParam(description = "For add: date window as es_dates understands it, e.g. 'yesterday', 'last 7 days', 'this month'", required = false) String window,
+            @ToolParam(description = "For add: cron schedule in IST (second minute hour day month weekday), defaults to daily at 05:00", required = false) String schedule) {
+        try {
+            String requested = action == null || action.isBlank() ? "list" : action.trim().toLowerCase();
+            return switch (requested) {
+                case "list" -> objectMapper.writeValueAsString(standingQueryService.list());
+                case "add" -> objectMapper.writeValueAsString(standingQueryService.add(name, queryDsl, window, schedule));
+                case "run" -> objectMapper.writeValueAsString(standingQueryService.runNow(name));
+                case "remove" -> {
+                    ObjectNode response = objectMapper.createObjectNode();
+                    response.put("name", name);
+                    response.put("removed", standingQueryService.remove(name));
+                    yield objectMapper.writeValueAsString(response);
+                }
+                default -> throw new IllegalArgumentException("Unknown action " + action + ", expected list, add, remove or run");
+            };
+
+        } catch (Exception e) {
+            log.error("Failed to manage standing query {}", name, e);
+            return createErrorResponse("Failed to manage standing query", e.getMessage());
+        }
+    }
+
+    @Tool(
+            name = "es_count",
+            description = "Count the documents an Elasticsearch query matches, per host and per monthly index, without fetching them. Use it to check how large a search is before es_search"
+    )
+    public String countElasticsearchDocuments(
+            @ToolParam(description = "Elasticsearch query DSL JSON") String queryDsl,
+            @ToolParam(description = "Host coverages JSON from es_host tool") String hostCoveragesJson,
+            @ToolParam(description = "Comma-separated index names") String indices,
+            ToolContext toolContext) {
+        try {
+            List<String> indexList = parseIndices(indices);
+            List<RedashSearchService.HostInfo> hosts = parseHosts(hostCoveragesJson);
+
+            // The probe runs one Redash job per host unless its counts are cached
+            JsonNode queryNode = objectMapper.readTree(queryDsl);
+            if (!costEstimator.isCountCached(queryNode, indexList, hosts)) {
+                admission.checkRate(RedashAdmissionController.clientId(toolContext), hosts.size());
+            }
+
+            SearchCostEstimator.CountEstimate estimate = costEstimator.count(queryNode, indexList, hosts);
+            return objectMapper.writeValueAsString(estimate.toJson(jsonCodec));
+
+        } catch (RedashAdmissionController.RejectedException e) {
+            log.warn("es_count rejected: {}", e.getMessage());
+            return createRejectedResponse(e);
+        } catch (Exception e) {
+            log.error("Failed to count Elasticsearch documents", e);
+            return createErrorResponse("Failed to count Elasticsearch documents", e.getMessage());
+        }
+    }
+
+    /**
+     * Parse indices - handle quoted strings and trim whitespace
+     */
+    private List<String> parseIndices(String indices) {
+        List<String> indexList = Arrays.stream(indices.split(","))
+                .map(String::trim)
+                .map(s -> s.replaceAll("^\"|\"$", ""))
+                .filter(s -> !s.isEmpty())
+                .toList();
+
+        log.debug("Parsed index list: {}", indexList);
+        return indexList;
+    }
+
+    /**
+     * Build the host info list from the es_host output
+     */
+    private List<RedashSearchService.HostInfo> parseHosts(String hostCoveragesJson) throws Exception {
+        // Parse host coverages - it's a direct array!
+        JsonNode hostCoveragesArray = objectMapper.readTree(hostCoveragesJson);
+
+        if (!hostCoveragesArray.isArray()) {
+            throw new IllegalArgumentException("Expected array of host coverages");
+        }
+
+        List<RedashSearchService.HostInfo> hosts = new ArrayList<>();
+        for (JsonNode coverage : hostCoveragesArray) {
+            JsonNode hostNode = coverage.get("host");
+
+            // hostNode is just the tier name string ("PRIMARY"), resolve it from tier configuration
+            Tier tier = elasticsearchHostSelector.getTier(hostNode.asText());
+            String hostName = tier.getDisplayName();  // "UTH_ES_Primary"
+            List<Integer> dataSourceIds = tier.getDataSourceIds();  // [3], replicas are routed per search
+
+            hosts.add(new RedashSearchService.HostInfo(hostName, dataSourceIds, tier.isImmutable()));
+        }
+        return hosts;
+    }
+
+    /**
+     * Error response for a search too large to fetch, with the row counts it was refused on
+     */
+    private String createRefusedResponse(SearchCostEstimator.SearchPlan plan) {
+        try {
+            ObjectNode errorResponse = objectMapper.createObjectNode();
+            errorResponse.put("error", "Search refused, too many rows");
+            errorResponse.put("message", plan.reason());
+            errorResponse.put("status", "refused");
+            if (plan.estimate() != null) {
+                errorResponse.set("counts", plan.estimate().toJson(jsonCodec));
+            }
+            errorResponse.put("timestamp", System.currentTimeMillis());
+            return objectMapper.writeValueAsString(errorResponse);
+        } catch (Exception e) {
+            return "{\"error\":\"Search refused, too many rows\",\"status\":\"refused\"}";
+        }
+    }
+
+    /**
+     * Error response for a search refused by admission control, with a hint for when to retry
+     */
+    private String createRejectedResponse(RedashAdmissionController.RejectedException rejection) {
+        try {
+            ObjectNode errorResponse = objectMapper.createObjectNode();
+            errorResponse.put("error", "Search rejected, retry later");
+            errorResponse.put("message", rejection.getMessage());
+            errorResponse.put("status", "rejected");
+            errorResponse.put("retry_after_ms", rejection.getRetryAfterMs());
+            errorResponse.put("timestamp", System.currentTimeMillis());
+            return objectMapper.writeValueAsString(errorResponse);
+        } catch (Exception e) {
+            return "{\"error\":\"Search rejected, retry later\",\"status\":\"rejected\"}";
+        }
+    }
+
     /**
      * Create standardized error response
      */
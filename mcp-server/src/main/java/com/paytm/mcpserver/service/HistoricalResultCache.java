@@ -0,0 +1,428 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.paytm.mcpserver.utility.JsonCodec;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Disk cache of Redash search results for tiers whose data no longer changes (e.g. TERTIARY)
+ *
+ * Results are appended to memory-mapped segment files ({@code elasticsearch.result-cache.dir}/slot-S/segment-N.dat)
+ * encoded as Smile, each record carrying the SHA-256 of its key and a CRC32 that is verified on every read.
+ * The key is the canonical query (object fields sorted, so field order does not matter) including its
+ * index list, plus the data source. Queries using date math relative to "now" are not cached.
+ *
+ * The segments are scanned on startup, so results survive restarts. When the records exceed
+ * {@code elasticsearch.result-cache.max-size-bytes} the oldest segment is dropped as a whole.
+ *
+ * Every running instance (e.g. one JVM per client session) locks its own slot directory, up to
+ * {@code elasticsearch.result-cache.max-instances}, so segments are never written by two processes. A slot is
+ * reused by the next instance once its owner exits; without a free slot the cache stays off.
+ */
+@Service
+@Log4j2
+public class HistoricalResultCache {
+
+    private static final int MAGIC = 0x48524331;  // "HRC1"
+    private static final int DIGEST_BYTES = 32;
+    // magic, value length, crc32, key digest
+    private static final int HEADER_BYTES = 12 + DIGEST_BYTES;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    private static final String SLOT_PREFIX = "slot-";
+    private static final String LOCK_FILE = "instance.lock";
+
+    private final JsonCodec jsonCodec;
+    private final ObjectMapper smileMapper = new SmileMapper();
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    // Oldest first, the last one takes the writes
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    // Guards segments and storedBytes, a lock rather than a monitor since segments are mapped, forced and deleted under it
+    private final ReentrantLock lock = new ReentrantLock();
+    private long storedBytes;
+    // Slot directory of this instance and the channel holding its lock until shutdown
+    private Path slotDirectory;
+    private FileChannel slotLock;
+
+    @Value("${elasticsearch.result-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${elasticsearch.result-cache.dir:${user.home}/.elasticsearch-mcp/result-cache}")
+    private Path directory;
+
+    @Value("${elasticsearch.result-cache.segment-size-bytes:67108864}")
+    private int segmentSizeBytes;
+
+    @Value("${elasticsearch.result-cache.max-size-bytes:1073741824}")
+    private long maxSizeBytes;
+
+    @Value("${elasticsearch.result-cache.max-entry-bytes:8388608}")
+    private int maxEntryBytes;
+
+    @Value("${elasticsearch.result-cache.max-instances:4}")
+    private int maxInstances;
+
+    public HistoricalResultCache(JsonCodec jsonCodec) {
+        this.jsonCodec = jsonCodec;
+    }
+
+    @PostConstruct
+    void openSegments() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        slotDirectory = lockSlot();
+        if (slotDirectory == null) {
+            log.warn("All {} result cache slots in {} are held by other instances, caching disabled",
+                    maxInstances, directory.toAbsolutePath());
+            enabled = false;
+            return;
+        }
+        TreeMap<Integer, Path> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.list(slotDirectory)) {
+            paths.forEach(path -> {
+                Integer id = segmentId(path);
+                if (id != null) {
+                    files.put(id, path);
+                }
+            });
+        }
+        lock.lock();
+        try {
+            for (Map.Entry<Integer, Path> file : files.entrySet()) {
+                Segment segment = Segment.open(file.getKey(), file.getValue(), (int) Math.min(Integer.MAX_VALUE, Files.size(file.getValue())));
+                scan(segment);
+                if (segment.used == 0) {
+                    // Opened for writes by a previous run that cached nothing
+                    Files.deleteIfExists(segment.path);
+                    continue;
+                }
+                segments.addLast(segment);
+                storedBytes += segment.used;
+            }
+            // Existing segments stay read-only, writes start in a new one
+            roll();
+        } finally {
+            lock.unlock();
+        }
+        log.info("Historical result cache in {}: {} results, {} bytes in {} segments",
+                slotDirectory.toAbsolutePath(), index.size(), storedBytes, segments.size());
+    }
+
+    /**
+     * Lock the first slot directory no other instance holds, null when all are taken
+     */
+    private Path lockSlot() throws IOException {
+        for (int slot = 0; slot < maxInstances; slot++) {
+            Path candidate = directory.resolve(SLOT_PREFIX + slot);
+            Files.createDirectories(candidate);
+            FileChannel channel = FileChannel.open(candidate.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                // Held by another cache in this JVM
+                lock = null;
+            }
+            if (lock != null) {
+                slotLock = channel;
+                return candidate;
+            }
+            channel.close();
+        }
+        return null;
+    }
+
+    @PreDestroy
+    void flush() {
+        lock.lock();
+        try {
+            for (Segment segment : segments) {
+                segment.buffer.force();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (slotLock != null) {
+            try {
+                // Closing the channel releases the slot for the next instance
+                slotLock.close();
+            } catch (IOException e) {
+                log.warn("Failed to release result cache slot {}: {}", slotDirectory, e.getMessage());
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Cached Redash response of the query on the data source, null on a miss or a failed checksum
+     */
+    public String get(String query, int dataSourceId) {
+        byte[] digest = digest(query, dataSourceId);
+        if (digest == null) {
+            return null;
+        }
+        String key = HexFormat.of().formatHex(digest);
+        Location location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        try {
+            byte[] value = location.segment.read(location.offset, digest);
+            return jsonCodec.write(smileMapper.readTree(value));
+        } catch (Exception e) {
+            index.remove(key, location);
+            log.warn("Dropping cached result {} in {}: {}", key, location.segment.path.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Store the Redash response of the query on the data source
+     */
+    public void put(String query, int dataSourceId, String rawResults) {
+        byte[] digest = digest(query, dataSourceId);
+        if (digest == null) {
+            return;
+        }
+        byte[] value;
+        try {
+            value = smileMapper.writeValueAsBytes(jsonCodec.readTree(rawResults));
+        } catch (IOException e) {
+            log.warn("Not caching unreadable Redash response: {}", e.getMessage());
+            return;
+        }
+        if (value.length > maxEntryBytes || HEADER_BYTES + value.length > segmentSizeBytes) {
+            log.debug("Not caching result of {} bytes", value.length);
+            return;
+        }
+
+        lock.lock();
+        try {
+            Segment active = segments.peekLast();
+            if (active.remaining() < HEADER_BYTES + value.length) {
+                active = roll();
+            }
+            int offset = active.append(digest, value);
+            index.put(HexFormat.of().formatHex(digest), new Location(active, offset));
+            storedBytes += HEADER_BYTES + value.length;
+            evict();
+        } catch (IOException e) {
+            log.warn("Failed to cache result in {}: {}", slotDirectory, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Start a new segment for writes
+     */
+    private Segment roll() throws IOException {
+        int id = segments.isEmpty() ? 1 : segments.peekLast().id + 1;
+        Segment segment = Segment.open(id, slotDirectory.resolve(SEGMENT_PREFIX + id + SEGMENT_SUFFIX), segmentSizeBytes);
+        segments.addLast(segment);
+        return segment;
+    }
+
+    /**
+     * Drop the oldest segments until the stored results fit in max-size-bytes, the active segment stays
+     */
+    private void evict() {
+        while (storedBytes > maxSizeBytes && segments.size() > 1) {
+            Segment oldest = segments.removeFirst();
+            index.values().removeIf(location -> location.segment == oldest);
+            storedBytes -= oldest.used;
+            try {
+                // The mapping stays valid for readers still holding it, it is released with the buffer
+                Files.deleteIfExists(oldest.path);
+            } catch (IOException e) {
+                log.warn("Failed to delete evicted segment {}: {}", oldest.path, e.getMessage());
+            }
+            log.info("Evicted result cache segment {}", oldest.path.getFileName());
+        }
+    }
+
+    /**
+     * Index the valid records of a segment, stopping at the end of the written records or the first damaged one
+     * (e.g. a record half written when the process died)
+     */
+    private void scan(Segment segment) {
+        int offset = 0;
+        while (offset + HEADER_BYTES <= segment.capacity && segment.buffer.getInt(offset) == MAGIC) {
+            int length = segment.buffer.getInt(offset + 4);
+            if (length < 0 || offset + HEADER_BYTES + length > segment.capacity) {
+                break;
+            }
+            byte[] digest = new byte[DIGEST_BYTES];
+            segment.buffer.get(offset + 12, digest);
+            try {
+                segment.read(offset, digest);
+            } catch (IOException e) {
+                log.warn("Result cache segment {} damaged at offset {}: {}", segment.path.getFileName(), offset, e.getMessage());
+                break;
+            }
+            // Later records of the same key replace earlier ones
+            index.put(HexFormat.of().formatHex(digest), new Location(segment, offset));
+            offset += HEADER_BYTES + length;
+        }
+        segment.used = offset;
+    }
+
+    /**
+     * SHA-256 of the canonical query and data source, null when the query is not cacheable
+     */
+    private byte[] digest(String query, int dataSourceId) {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            JsonNode queryNode = jsonCodec.readTree(query);
+            if (referencesNow(queryNode)) {
+                return null;
+            }
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(jsonCodec.writeCanonical(queryNode).getBytes(StandardCharsets.UTF_8));
+            sha256.update(("\n" + dataSourceId).getBytes(StandardCharsets.UTF_8));
+            return sha256.digest();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.debug("Not caching query: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Whether the query uses ES date math from "now", its results move with the clock
+     */
+    private boolean referencesNow(JsonNode node) {
+        if (node.isTextual()) {
+            return node.asText().startsWith("now");
+        }
+        for (Iterator<JsonNode> children = node.elements(); children.hasNext(); ) {
+            if (referencesNow(children.next())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Integer segmentId(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Helper classes
+
+    /**
+     * Segment file mapped in full, records are written at used and never modified afterwards
+     */
+    private static class Segment {
+        final int id;
+        final Path path;
+        final MappedByteBuffer buffer;
+        final int capacity;
+        int used;
+
+        private Segment(int id, Path path, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+        }
+
+        static Segment open(int id, Path path, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                // Mapping past the end grows the file (sparse until written)
+                return new Segment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            }
+        }
+
+        int remaining() {
+            return capacity - used;
+        }
+
+        /**
+         * Write a record at the end of the segment, the caller holds the cache lock
+         */
+        int append(byte[] digest, byte[] value) {
+            int offset = used;
+            CRC32 crc = new CRC32();
+            crc.update(digest);
+            crc.update(value);
+            buffer.putInt(offset + 4, value.length);
+            buffer.putInt(offset + 8, (int) crc.getValue());
+            buffer.put(offset + 12, digest);
+            buffer.put(offset + HEADER_BYTES, value);
+            // Written last, a scan only accepts the record once it is complete
+            buffer.putInt(offset, MAGIC);
+            used = offset + HEADER_BYTES + value.length;
+            return offset;
+        }
+
+        /**
+         * Value of the record at offset, checked against the expected key digest and the checksum
+         */
+        byte[] read(int offset, byte[] expectedDigest) throws IOException {
+            if (buffer.getInt(offset) != MAGIC) {
+                throw new IOException("no record at offset " + offset);
+            }
+            int length = buffer.getInt(offset + 4);
+            byte[] digest = new byte[DIGEST_BYTES];
+            buffer.get(offset + 12, digest);
+            if (!Arrays.equals(digest, expectedDigest)) {
+                throw new IOException("key mismatch at offset " + offset);
+            }
+            byte[] value = new byte[length];
+            buffer.get(offset + HEADER_BYTES, value);
+            CRC32 crc = new CRC32();
+            crc.update(digest);
+            crc.update(value);
+            if ((int) crc.getValue() != buffer.getInt(offset + 8)) {
+                throw new IOException("checksum mismatch at offset " + offset);
+            }
+            return value;
+        }
+    }
+
+    private record Location(Segment segment, int offset) {}
+}
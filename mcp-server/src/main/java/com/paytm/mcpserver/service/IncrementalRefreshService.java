@@ -0,0 +1,297 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.paytm.mcpserver.config.EsTierProperties;
+import com.paytm.mcpserver.utility.JsonCodec;
+import com.paytm.mcpserver.utility.SortOrderUtility;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Refresh mode of es_search for agents re-running the same query every few minutes
+ *
+ * The response of a full search is kept per canonical query (plus indices and hosts) together with a
+ * watermark: the highest value of the first {@code elasticsearch.refresh.watermark-fields} field present in
+ * its rows (docUpdatedDate, else txnDate), or the time of the search when no row has one. A refresh only
+ * searches the newest tier for documents at or after watermark - lookback (indexing lag), replaces the cached
+ * rows with the same key field and keeps the newest tier's top size rows in the query's sort. Rows of older
+ * tiers are kept as they were.
+ *
+ * A full search is needed (tryRefresh returns null) when nothing is cached, the entry is older than
+ * full-refresh-interval, the delta search failed or it filled its size (more rows may have changed).
+ * Documents updated so that they no longer match the query stay in the result until the next full search.
+ */
+@Service
+@Lazy
+@Log4j2
+public class IncrementalRefreshService {
+
+    private static final ZoneOffset IST = ZoneOffset.ofHoursMinutes(5, 30);
+
+    private final RedashSearchService redashSearchService;
+    private final EsTierProperties tierProperties;
+    private final RedashAdmissionController admission;
+    private final JsonCodec jsonCodec;
+
+    @Value("${elasticsearch.refresh.watermark-fields:docUpdatedDate,txnDate}")
+    private List<String> watermarkFields;
+
+    @Value("${elasticsearch.refresh.key-field:txnId}")
+    private String keyField;
+
+    @Value("${elasticsearch.refresh.lookback:PT5M}")
+    private Duration lookback;
+
+    @Value("${elasticsearch.refresh.full-refresh-interval:PT30M}")
+    private Duration fullRefreshInterval;
+
+    @Value("${elasticsearch.refresh.max-entries:200}")
+    private int maxEntries;
+
+    @Value("${elasticsearch.refresh.max-rows:5000}")
+    private int maxRows;
+
+    // Access-ordered, the least recently refreshed query is dropped first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    public IncrementalRefreshService(RedashSearchService redashSearchService, EsTierProperties tierProperties,
+                                     RedashAdmissionController admission, JsonCodec jsonCodec) {
+        this.redashSearchService = redashSearchService;
+        this.tierProperties = tierProperties;
+        this.admission = admission;
+        this.jsonCodec = jsonCodec;
+    }
+
+    /**
+     * Previous response of the query brought up to date with the documents changed since, null when a full
+     * search is needed
+     * The delta search counts as one Redash job against the client's rate, RejectedException when over it
+     */
+    public String tryRefresh(JsonNode queryNode, List<String> indices, List<RedashSearchService.HostInfo> hosts,
+                             boolean profile, String clientId) throws IOException {
+        if (!isRefreshable(queryNode)) {
+            return null;
+        }
+        String key = key(queryNode, indices, hosts);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null || System.currentTimeMillis() - entry.fullSearchAt > fullRefreshInterval.toMillis()) {
+            return null;
+        }
+
+        // A lock rather than a monitor, the delta search blocks on Redash and must not pin a virtual thread
+        entry.lock.lock();
+        try {
+            String newestTier = tierProperties.getTiers().get(0).getDisplayName();
+            RedashSearchService.HostInfo newestHost = hosts.stream()
+                    .filter(host -> host.hostName.equals(newestTier))
+                    .findFirst()
+                    .orElse(null);
+            int deltaRows = 0;
+            JsonNode deltaProfile = null;
+            String watermark = entry.watermark;
+            if (newestHost != null) {
+                admission.checkRate(clientId, 1);
+                ObjectNode deltaQuery = deltaQuery(queryNode, watermark);
+                JsonNode delta = jsonCodec.readTree(redashSearchService.executeMultiHostSearch(
+                        jsonCodec.write(deltaQuery), indices, List.of(newestHost), profile, null).json());
+                JsonNode rows = delta.path("query_result").path("data").path("rows");
+                if (!"success".equals(delta.path("host_summary").path(0).path("status").asText()) || !rows.isArray()) {
+                    log.info("Delta search of {} failed, running a full search", newestTier);
+                    return null;
+                }
+                if (rows.size() >= deltaQuery.path("size").asInt(10)) {
+                    log.info("Delta search of {} returned a full page, running a full search", newestTier);
+                    return null;
+                }
+                deltaRows = rows.size();
+                deltaProfile = delta.get("profile");
+                merge(entry, rows, newestTier, queryNode);
+                watermark = watermark(rows, watermark);
+                entry.watermark = watermark;
+            }
+
+            ObjectNode response = entry.response.deepCopy();
+            ObjectNode refresh = ((ObjectNode) response.path("metadata")).putObject("refresh");
+            refresh.put("mode", "delta");
+            refresh.put("delta_rows", deltaRows);
+            refresh.put("watermark", watermark);
+            refresh.put("full_search_age_ms", System.currentTimeMillis() - entry.fullSearchAt);
+            if (deltaProfile != null) {
+                response.set("profile", deltaProfile);
+            }
+            return jsonCodec.write(response);
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * Keep the response of a full search as the base of later refreshes, returns it with the refresh metadata
+     */
+    public String remember(JsonNode queryNode, List<String> indices, List<RedashSearchService.HostInfo> hosts,
+                           String responseJson, long searchStartedAt) throws IOException {
+        JsonNode response = jsonCodec.readTree(responseJson);
+        JsonNode rows = response.path("query_result").path("data").path("rows");
+        if (!isRefreshable(queryNode) || !response.path("query_result").isObject() || !rows.isArray()
+                || response.has("errors") || response.path("metadata").path("truncated").asBoolean()
+                || rows.size() > maxRows) {
+            return responseJson;
+        }
+        String start = OffsetDateTime.ofInstant(Instant.ofEpochMilli(searchStartedAt), IST).toString();
+        Entry entry = new Entry((ObjectNode) response, watermark(rows, null), System.currentTimeMillis());
+        if (entry.watermark == null) {
+            entry.watermark = start;
+        }
+        synchronized (entries) {
+            entries.put(key(queryNode, indices, hosts), entry);
+            if (entries.size() > maxEntries) {
+                entries.remove(entries.keySet().iterator().next());
+            }
+        }
+        ObjectNode withRefresh = entry.response.deepCopy();
+        ObjectNode refresh = ((ObjectNode) withRefresh.path("metadata")).putObject("refresh");
+        refresh.put("mode", "full");
+        refresh.put("watermark", entry.watermark);
+        return jsonCodec.write(withRefresh);
+    }
+
+    /**
+     * Row searches only, aggregations and explicit paging are always searched in full
+     */
+    private static boolean isRefreshable(JsonNode queryNode) {
+        return !queryNode.has("aggs") && !queryNode.has("aggregations") && !queryNode.has("from")
+                && !queryNode.has("search_after");
+    }
+
+    private String key(JsonNode queryNode, List<String> indices, List<RedashSearchService.HostInfo> hosts)
+            throws IOException {
+        StringBuilder key = new StringBuilder(jsonCodec.writeCanonical(queryNode)).append('|').append(indices);
+        for (RedashSearchService.HostInfo host : hosts) {
+            key.append('|').append(host.hostName);
+        }
+        return key.toString();
+    }
+
+    /**
+     * The query restricted to documents whose watermark field is at or after watermark - lookback
+     */
+    private ObjectNode deltaQuery(JsonNode queryNode, String watermark) {
+        ObjectNode deltaQuery = queryNode.deepCopy();
+        ObjectNode bool = jsonCodec.createObjectNode();
+        bool.putArray("must").add(queryNode.has("query") ? queryNode.get("query") : matchAll());
+        // A document matches when any watermark field moved past the mark, ES date math handles the lookback
+        ObjectNode changed = bool.putArray("filter").addObject().putObject("bool");
+        ArrayNode should = changed.putArray("should");
+        for (String field : watermarkFields) {
+            should.addObject().putObject("range").putObject(field)
+                    .put("gte", watermark + "||-" + lookback.toSeconds() + "s");
+        }
+        changed.put("minimum_should_match", 1);
+        deltaQuery.putObject("query").set("bool", bool);
+        return deltaQuery;
+    }
+
+    private ObjectNode matchAll() {
+        ObjectNode matchAll = jsonCodec.createObjectNode();
+        matchAll.putObject("match_all");
+        return matchAll;
+    }
+
+    /**
+     * Replace the newest tier's cached rows by their changed versions, keeping its top size rows in the query's
+     * sort, then order all rows newest first as es_search does
+     */
+    private void merge(Entry entry, JsonNode deltaRows, String newestTier, JsonNode queryNode) {
+        ArrayNode rows = (ArrayNode) entry.response.path("query_result").path("data").path("rows");
+        Set<String> changedKeys = new LinkedHashSet<>();
+        deltaRows.forEach(row -> changedKeys.add(row.path(keyField).asText()));
+
+        List<JsonNode> newestRows = new ArrayList<>();
+        List<JsonNode> otherRows = new ArrayList<>();
+        for (JsonNode row : rows) {
+            if (!newestTier.equals(row.path("_source_host").asText())) {
+                otherRows.add(row);
+            } else if (!changedKeys.contains(row.path(keyField).asText())) {
+                newestRows.add(row);
+            }
+        }
+        deltaRows.forEach(newestRows::add);
+        newestRows.sort(SortOrderUtility.rowComparator(queryNode.get("sort")));
+        int size = queryNode.path("size").asInt(10);
+        if (newestRows.size() > size) {
+            newestRows = newestRows.subList(0, size);
+        }
+
+        List<JsonNode> merged = new ArrayList<>(otherRows);
+        merged.addAll(newestRows);
+        merged.sort(Comparator.comparing((JsonNode row) -> row.path("txnDate").asText()).reversed());
+        rows.removeAll();
+        merged.forEach(rows::add);
+
+        ObjectNode metadata = (ObjectNode) entry.response.path("metadata");
+        metadata.put("total_rows", merged.size());
+        metadata.put("returned_rows", merged.size());
+        for (JsonNode host : entry.response.path("host_summary")) {
+            if (newestTier.equals(host.path("host").asText())) {
+                ((ObjectNode) host).put("rowCount", newestRows.size());
+            }
+        }
+    }
+
+    /**
+     * Highest watermark field value of the rows (text compare, ES dates share one format), at least previous
+     */
+    private String watermark(JsonNode rows, String previous) {
+        String watermark = previous;
+        for (JsonNode row : rows) {
+            for (String field : watermarkFields) {
+                JsonNode value = row.get(field);
+                if (value != null && value.isTextual()) {
+                    if (watermark == null || value.asText().compareTo(watermark) > 0) {
+                        watermark = value.asText();
+                    }
+                    break;
+                }
+            }
+        }
+        return watermark;
+    }
+
+    // Helper classes
+
+    /**
+     * Cached response of a query, guarded by its own lock while it is refreshed
+     */
+    private static class Entry {
+        final ObjectNode response;
+        final long fullSearchAt;
+        final ReentrantLock lock = new ReentrantLock();
+        String watermark;
+
+        Entry(ObjectNode response, String watermark, long fullSearchAt) {
+            this.response = response;
+            this.watermark = watermark;
+            this.fullSearchAt = fullSearchAt;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.paytm.mcpserver.service;
+
+import com.paytm.mcpserver.config.EsTierProperties.Tier;
+
+import java.util.Set;
+
+/**
+ * Source of the index names that exist on a Redash data source
+ * Selected with {@code elasticsearch.index-catalog.source} (redash or stub)
+ */
+public interface IndexCatalogSource {
+
+    /**
+     * Fetch the names of the indices holding data on a data source of a tier
+     */
+    Set<String> fetchIndices(Tier tier, Integer dataSourceId);
+}
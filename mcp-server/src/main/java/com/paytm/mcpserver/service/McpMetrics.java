@@ -0,0 +1,225 @@
+package com.paytm.mcpserver.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer instrumentation for MCP tools and the Redash query lifecycle
+ *
+ * Meters (exposed through the actuator prometheus endpoint):
+ * - mcp.tool.duration{tool, outcome}: per tool call latency
+ * - mcp.tool.in_flight: tool calls currently running
+ * - mcp.cache.lookups{cache, result}: cache hits and misses
+ * - redash.search.host.duration{host, data_source, outcome}: per host search latency
+ * - redash.phase.duration{phase}: create, execute, poll (each request), fetch and merge latency
+ * - redash.poll.attempts / redash.poll.timeouts: job polling
+ * - redash.errors{phase}: failed Redash calls
+ * - redash.jobs.in_flight: Redash queries currently being created, executed or polled
+ * - redash.admission.queue_depth / redash.admission.permits_available: bulkhead state
+ * - redash.admission.lane.waiting{lane} / redash.admission.lane.running{lane}: priority lane state
+ * - redash.admission.wait{lane}: time searches spent queued for a Redash slot
+ * - redash.admission.rejections{reason, lane}: rate_limited, queue_full or queue_timeout
+ * - redash.routing.outstanding / redash.routing.latency_ewma_ms / redash.routing.healthy{data_source}: replica routing
+ * - mcp.virtual_threads.pinned{frame}: virtual threads blocked while pinned to their carrier (virtual-thread mode)
+ */
+@Service
+public class McpMetrics {
+
+    public static final String PHASE_CREATE = "create";
+    public static final String PHASE_EXECUTE = "execute";
+    public static final String PHASE_POLL = "poll";
+    public static final String PHASE_FETCH = "fetch";
+    public static final String PHASE_MERGE = "merge";
+
+    private final MeterRegistry registry;
+    private final AtomicInteger toolsInFlight = new AtomicInteger();
+    private final AtomicInteger jobsInFlight = new AtomicInteger();
+    private final Counter pollAttempts;
+    private final Counter pollTimeouts;
+
+    public McpMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        registry.gauge("mcp.tool.in_flight", toolsInFlight);
+        registry.gauge("redash.jobs.in_flight", jobsInFlight);
+        this.pollAttempts = Counter.builder("redash.poll.attempts")
+                .description("Redash job status requests")
+                .register(registry);
+        this.pollTimeouts = Counter.builder("redash.poll.timeouts")
+                .description("Redash jobs still running after the max poll attempts")
+                .register(registry);
+    }
+
+    /**
+     * Wrap a tool callback so every call is timed under its tool name
+     */
+    public ToolCallback timed(ToolCallback delegate) {
+        return new TimedToolCallback(delegate);
+    }
+
+    /**
+     * Record the duration of a search on one host, outcome is success, error or skipped
+     */
+    public void recordHostSearch(String host, int dataSourceId, String outcome, long nanos) {
+        Timer.builder("redash.search.host.duration")
+                .tag("host", host)
+                .tag("data_source", String.valueOf(dataSourceId))
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record the duration of one Redash phase
+     */
+    public void recordPhase(String phase, long nanos) {
+        Timer.builder("redash.phase.duration")
+                .tag("phase", phase)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPollAttempt() {
+        pollAttempts.increment();
+    }
+
+    public void recordPollTimeout() {
+        pollTimeouts.increment();
+    }
+
+    public void recordRedashError(String phase) {
+        registry.counter("redash.errors", "phase", phase).increment();
+    }
+
+    public void recordCacheLookup(String cache, boolean hit) {
+        registry.counter("mcp.cache.lookups", "cache", cache, "result", hit ? "hit" : "miss").increment();
+    }
+
+    /**
+     * Expose the admission queue and the free Redash slots
+     */
+    public void registerAdmissionGauges(Supplier<Number> queued, Supplier<Number> available) {
+        Gauge.builder("redash.admission.queue_depth", queued)
+                .description("Searches waiting for a Redash slot")
+                .register(registry);
+        Gauge.builder("redash.admission.permits_available", available)
+                .description("Redash job slots not taken by a search")
+                .register(registry);
+    }
+
+    /**
+     * Expose the waiting searches and running jobs of a priority lane
+     */
+    public void registerAdmissionLane(String lane, Supplier<Number> waiting, Supplier<Number> running) {
+        Gauge.builder("redash.admission.lane.waiting", waiting).tag("lane", lane).register(registry);
+        Gauge.builder("redash.admission.lane.running", running).tag("lane", lane).register(registry);
+    }
+
+    /**
+     * Expose the routing stats of a data source: searches in flight, EWMA latency and health (1 or 0)
+     */
+    public void registerDataSource(int dataSourceId, Supplier<Number> outstanding, Supplier<Number> ewmaLatencyMs,
+                                   Supplier<Number> healthy) {
+        String tag = String.valueOf(dataSourceId);
+        Gauge.builder("redash.routing.outstanding", outstanding).tag("data_source", tag).register(registry);
+        Gauge.builder("redash.routing.latency_ewma_ms", ewmaLatencyMs).tag("data_source", tag).register(registry);
+        Gauge.builder("redash.routing.healthy", healthy).tag("data_source", tag).register(registry);
+    }
+
+    public void recordAdmissionWait(String lane, long nanos) {
+        registry.timer("redash.admission.wait", "lane", lane).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordAdmissionRejection(String reason, String lane) {
+        registry.counter("redash.admission.rejections", "reason", reason, "lane", lane).increment();
+    }
+
+    /**
+     * Record a virtual thread that blocked while pinned, frame is the innermost application frame of its stack
+     */
+    public void recordVirtualThreadPinned(String frame, long nanos) {
+        registry.timer("mcp.virtual_threads.pinned", "frame", frame).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void jobStarted() {
+        jobsInFlight.incrementAndGet();
+    }
+
+    public void jobFinished() {
+        jobsInFlight.decrementAndGet();
+    }
+
+    /**
+     * Tools report failures as an error JSON rather than throwing, detect it from the start of the result
+     * (which the tool result converter may have turned into an escaped JSON string)
+     */
+    static boolean isErrorResult(String result) {
+        if (result == null) {
+            return false;
+        }
+        StringBuilder head = new StringBuilder(16);
+        for (int i = 0; i < result.length() && i < 64 && head.length() < 8; i++) {
+            char c = result.charAt(i);
+            if (c == '\\' && i + 1 < result.length() && result.charAt(i + 1) != '"') {
+                i++;  // escaped whitespace such as \n
+            } else if (c != '\\' && c != '"' && !Character.isWhitespace(c)) {
+                head.append(c);
+            }
+        }
+        return head.toString().startsWith("{error:");
+    }
+
+    // Helper classes
+    private class TimedToolCallback implements ToolCallback {
+        private final ToolCallback delegate;
+        private final String toolName;
+
+        TimedToolCallback(ToolCallback delegate) {
+            this.delegate = delegate;
+            this.toolName = delegate.getToolDefinition().name();
+        }
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return delegate.getToolDefinition();
+        }
+
+        @Override
+        public ToolMetadata getToolMetadata() {
+            return delegate.getToolMetadata();
+        }
+
+        @Override
+        public String call(String toolInput) {
+            return call(toolInput, null);
+        }
+
+        @Override
+        public String call(String toolInput, ToolContext toolContext) {
+            Timer.Sample sample = Timer.start(registry);
+            toolsInFlight.incrementAndGet();
+            String outcome = "exception";
+            try {
+                String result = toolContext == null ? delegate.call(toolInput) : delegate.call(toolInput, toolContext);
+                outcome = isErrorResult(result) ? "error" : "success";
+                return result;
+            } finally {
+                toolsInFlight.decrementAndGet();
+                sample.stop(Timer.builder("mcp.tool.duration")
+                        .tag("tool", toolName)
+                        .tag("outcome", outcome)
+                        .register(registry));
+            }
+        }
+    }
+}
@@ -0,0 +1,562 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.paytm.mcpserver.utility.DateFormatUtility;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Near-duplicate prompt cache for generated Elasticsearch queries
+ *
+ * Prompts are normalized (literals such as ids, mobile numbers and dates are replaced
+ * by typed placeholders), shingled into word 1/2-grams and summarised as a MinHash
+ * signature. Candidates are found through LSH banding and accepted when the estimated
+ * Jaccard similarity exceeds the configured threshold and the literals of the new
+ * prompt bind cleanly into the cached DSL.
+ *
+ * Everything is in-process and bounded by {@code elasticsearch.prompt-cache.max-entries} (LRU).
+ */
+@Service
+@Log4j2
+public class NearDuplicatePromptCache {
+
+    private static final int NUM_HASHES = 64;
+    private static final int BANDS = 16;
+    private static final int ROWS_PER_BAND = NUM_HASHES / BANDS;
+
+    // Literal tokens: anything carrying a digit or '@' (ids, mobiles, dates, VPAs), or quoted text
+    private static final Pattern LITERAL_PATTERN = Pattern.compile(
+            "\"([^\"]+)\"|'([^']+)'|([A-Za-z0-9._:+\\-]*[0-9@][A-Za-z0-9@._:+\\-]*)");
+    private static final Pattern WORD_PATTERN = Pattern.compile("[a-z]+|<[a-z]+>");
+    private static final Pattern ISO_DATE_PATTERN = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+    private static final Pattern NUMERIC_PATTERN = Pattern.compile("\\d+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[.:,]+$");
+    // Paging of the cached DSL, never rebound to a literal of the prompt
+    private static final Set<String> PAGING_FIELDS = Set.of("size", "from");
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "an", "the", "of", "for", "to", "in", "on", "by", "with", "and", "or", "me", "my",
+            "show", "get", "give", "find", "fetch", "list", "all", "please", "i", "need", "want",
+            "query", "elasticsearch", "es", "is", "are", "was", "were", "which", "that", "from");
+
+    private static final long[] SEEDS = new long[NUM_HASHES];
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            seed = mix64(seed + i);
+            SEEDS[i] = seed;
+        }
+    }
+
+    @Value("${elasticsearch.prompt-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${elasticsearch.prompt-cache.max-entries:2000}")
+    private int maxEntries;
+
+    @Value("${elasticsearch.prompt-cache.similarity-threshold:0.85}")
+    private double similarityThreshold;
+
+    @Value("${elasticsearch.schema.file:classpath:schemas/elasticsearch-schema.json}")
+    private Resource schemaResource;
+
+    @Value("${elasticsearch.fieldmappings.file:classpath:schemas/field-value-mappings.json}")
+    private Resource fieldMappingsResource;
+
+    private final ObjectMapper objectMapper;
+
+    // Access-ordered map gives LRU eviction; all access is guarded by "this"
+    private final LinkedHashMap<Long, CacheEntry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<Long, List<Long>> bandBuckets = new HashMap<>();
+    private final Map<String, Long> entryIdsByPrompt = new HashMap<>();
+
+    // Words that change query semantics (aliases and value mappings), differences here are never tolerated
+    private Set<String> domainVocabulary = Set.of();
+
+    private long nextEntryId = 1;
+    private long lookups;
+    private long hits;
+    private long misses;
+    private long rejections;
+    private long evictions;
+
+    public NearDuplicatePromptCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    void loadDomainVocabulary() {
+        Set<String> vocabulary = new HashSet<>();
+        collectVocabulary(schemaResource, "aliases", vocabulary);
+        collectVocabulary(fieldMappingsResource, "valueMapping", vocabulary);
+        domainVocabulary = Set.copyOf(vocabulary);
+        log.info("Prompt cache initialised (enabled={}, maxEntries={}, threshold={}, vocabulary={} words)",
+                enabled, maxEntries, similarityThreshold, domainVocabulary.size());
+    }
+
+    /**
+     * Look up a cached DSL for a prompt that is a near-duplicate of a previously executed one
+     *
+     * @param prompt Natural language prompt
+     * @return Cache hit with the DSL re-bound to the literals of this prompt, if any
+     */
+    public Optional<CacheHit> lookup(String prompt) {
+        if (!enabled || !StringUtils.hasText(prompt)) {
+            return Optional.empty();
+        }
+
+        PromptShape shape = PromptShape.of(prompt);
+        long[] signature = signature(shape.shingles());
+
+        synchronized (this) {
+            lookups++;
+
+            CacheEntry best = null;
+            double bestSimilarity = 0;
+            for (long candidateId : candidates(signature)) {
+                CacheEntry candidate = entries.get(candidateId);
+                if (candidate == null) {
+                    continue;
+                }
+                double similarity = estimateSimilarity(signature, candidate.signature);
+                if (similarity > bestSimilarity) {
+                    best = candidate;
+                    bestSimilarity = similarity;
+                }
+            }
+
+            if (best == null || bestSimilarity < similarityThreshold) {
+                misses++;
+                return Optional.empty();
+            }
+
+            Optional<String> boundDsl = bind(best, shape);
+            if (boundDsl.isEmpty()) {
+                rejections++;
+                log.debug("Rejected near-duplicate prompt (similarity {}): '{}' ~ '{}'", bestSimilarity, prompt, best.prompt);
+                return Optional.empty();
+            }
+
+            hits++;
+            log.debug("Prompt cache hit (similarity {}): '{}' ~ '{}'", bestSimilarity, prompt, best.prompt);
+            return Optional.of(new CacheHit(boundDsl.get(), bestSimilarity, best.prompt));
+        }
+    }
+
+    /**
+     * Remember the DSL that was successfully executed for a prompt
+     */
+    public void record(String prompt, String queryDsl) {
+        if (!enabled || !StringUtils.hasText(prompt) || !StringUtils.hasText(queryDsl)) {
+            return;
+        }
+
+        JsonNode dslNode;
+        try {
+            dslNode = objectMapper.readTree(queryDsl);
+        } catch (Exception e) {
+            log.debug("Not caching prompt, DSL is not valid JSON: {}", e.getMessage());
+            return;
+        }
+        if (!dslNode.isObject()) {
+            return;
+        }
+
+        PromptShape shape = PromptShape.of(prompt);
+        long[] signature = signature(shape.shingles());
+
+        synchronized (this) {
+            Long existingId = entryIdsByPrompt.get(shape.normalized());
+            if (existingId != null) {
+                remove(existingId);
+            }
+
+            long id = nextEntryId++;
+            CacheEntry entry = new CacheEntry(id, prompt, shape, signature, dslNode,
+                    LocalDate.now(DateFormatUtility.IST_ZONE));
+            entries.put(id, entry);
+            entryIdsByPrompt.put(shape.normalized(), id);
+            for (long bucketKey : bandKeys(signature)) {
+                bandBuckets.computeIfAbsent(bucketKey, k -> new ArrayList<>(2)).add(id);
+            }
+
+            while (entries.size() > maxEntries) {
+                Iterator<Long> eldest = entries.keySet().iterator();
+                remove(eldest.next());
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Hit rate and rejection counters
+     */
+    public synchronized ObjectNode getStats() {
+        ObjectNode stats = objectMapper.createObjectNode();
+        stats.put("entries", entries.size());
+        stats.put("lookups", lookups);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("rejections", rejections);
+        stats.put("evictions", evictions);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hits / lookups);
+        return stats;
+    }
+
+    /**
+     * Rebind the literals of the new prompt into the cached DSL
+     * Returns empty when the prompts differ in a semantically meaningful way
+     */
+    private Optional<String> bind(CacheEntry entry, PromptShape shape) {
+        // Domain words (status values, txn types, field aliases) must match exactly
+        Set<String> difference = new HashSet<>(entry.shape.words());
+        difference.addAll(shape.words());
+        Set<String> common = new HashSet<>(entry.shape.words());
+        common.retainAll(shape.words());
+        difference.removeAll(common);
+        for (String word : difference) {
+            if (domainVocabulary.contains(word)) {
+                return Optional.empty();
+            }
+        }
+
+        List<Literal> oldLiterals = entry.shape.literals();
+        List<Literal> newLiterals = shape.literals();
+        if (oldLiterals.size() != newLiterals.size()) {
+            return Optional.empty();
+        }
+
+        Map<String, String> substitutions = new LinkedHashMap<>();
+        for (int i = 0; i < oldLiterals.size(); i++) {
+            Literal oldLiteral = oldLiterals.get(i);
+            Literal newLiteral = newLiterals.get(i);
+            if (oldLiteral.kind() != newLiteral.kind()) {
+                return Optional.empty();
+            }
+            // Long numbers of different length are different kinds of identifier (mobile vs user id)
+            if (oldLiteral.kind() == LiteralKind.NUMBER && oldLiteral.value().length() != newLiteral.value().length()
+                    && Math.max(oldLiteral.value().length(), newLiteral.value().length()) >= 10) {
+                return Optional.empty();
+            }
+            String previous = substitutions.putIfAbsent(oldLiteral.value(), newLiteral.value());
+            if (previous != null && !previous.equals(newLiteral.value())) {
+                return Optional.empty();
+            }
+        }
+        substitutions.entrySet().removeIf(e -> e.getKey().equals(e.getValue()));
+
+        // A literal that is contained in another one cannot be replaced unambiguously
+        for (String a : substitutions.keySet()) {
+            for (String b : substitutions.keySet()) {
+                if (!a.equals(b) && b.contains(a)) {
+                    return Optional.empty();
+                }
+            }
+        }
+
+        // Whole-token matches only, allowing the "91" prefix added to mobile numbers
+        Map<String, Pattern> patterns = new HashMap<>();
+        substitutions.keySet().forEach(oldValue -> patterns.put(oldValue,
+                Pattern.compile("(?<![0-9A-Za-z])(91)?" + Pattern.quote(oldValue) + "(?![0-9A-Za-z])")));
+
+        JsonNode dsl = entry.dsl.deepCopy();
+        Map<String, Integer> occurrences = new HashMap<>();
+        boolean[] unboundDate = new boolean[1];
+        boolean[] typeMismatch = new boolean[1];
+        JsonNode rebound = rebind(dsl, substitutions, patterns, occurrences, shape.literalValues(), unboundDate, typeMismatch);
+        if (typeMismatch[0]) {
+            return Optional.empty();
+        }
+
+        for (String oldValue : substitutions.keySet()) {
+            if (occurrences.getOrDefault(oldValue, 0) == 0) {
+                return Optional.empty();
+            }
+        }
+
+        // Dates computed from relative expressions ("last 7 days") are only valid on the day they were generated
+        if (unboundDate[0] && !entry.createdOn.equals(LocalDate.now(DateFormatUtility.IST_ZONE))) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(objectMapper.writeValueAsString(rebound));
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    private JsonNode rebind(JsonNode node, Map<String, String> substitutions, Map<String, Pattern> patterns,
+                            Map<String, Integer> occurrences, Set<String> promptLiterals, boolean[] unboundDate,
+                            boolean[] typeMismatch) {
+        if (node.isObject()) {
+            ObjectNode objectNode = (ObjectNode) node;
+            List<String> fieldNames = new ArrayList<>();
+            objectNode.fieldNames().forEachRemaining(fieldNames::add);
+            for (String fieldName : fieldNames) {
+                if (!PAGING_FIELDS.contains(fieldName)) {
+                    objectNode.set(fieldName, rebind(objectNode.get(fieldName), substitutions, patterns, occurrences,
+                            promptLiterals, unboundDate, typeMismatch));
+                }
+            }
+            return objectNode;
+        }
+        if (node.isArray()) {
+            ArrayNode arrayNode = (ArrayNode) node;
+            for (int i = 0; i < arrayNode.size(); i++) {
+                arrayNode.set(i, rebind(arrayNode.get(i), substitutions, patterns, occurrences, promptLiterals, unboundDate,
+                        typeMismatch));
+            }
+            return arrayNode;
+        }
+        if (node.isNumber()) {
+            String replacement = substitutions.get(node.asText());
+            if (replacement == null) {
+                return node;
+            }
+            // Stays a number: a replacement that is not one, or would lose leading zeros ("00123"), cannot be bound
+            if (!NUMERIC_PATTERN.matcher(replacement).matches()
+                    || !new BigInteger(replacement).toString().equals(replacement)) {
+                typeMismatch[0] = true;
+                return node;
+            }
+            occurrences.merge(node.asText(), 1, Integer::sum);
+            // BigInteger: ids such as card or order numbers can exceed a long
+            return objectMapper.getNodeFactory().numberNode(new BigInteger(replacement));
+        }
+        if (node.isTextual()) {
+            String value = node.asText();
+            String replaced = value;
+            for (Map.Entry<String, String> substitution : substitutions.entrySet()) {
+                Matcher matcher = patterns.get(substitution.getKey()).matcher(replaced);
+                if (matcher.find()) {
+                    occurrences.merge(substitution.getKey(), 1, Integer::sum);
+                    replaced = matcher.replaceAll("$1" + Matcher.quoteReplacement(substitution.getValue()));
+                }
+            }
+            if (replaced.equals(value) && ISO_DATE_PATTERN.matcher(value).find()
+                    && promptLiterals.stream().noneMatch(value::contains)) {
+                unboundDate[0] = true;
+            }
+            return replaced.equals(value) ? node : TextNode.valueOf(replaced);
+        }
+        return node;
+    }
+
+    private void remove(long id) {
+        CacheEntry removed = entries.remove(id);
+        if (removed == null) {
+            return;
+        }
+        entryIdsByPrompt.remove(removed.shape.normalized(), id);
+        for (long bucketKey : bandKeys(removed.signature)) {
+            List<Long> bucket = bandBuckets.get(bucketKey);
+            if (bucket != null) {
+                bucket.remove(id);
+                if (bucket.isEmpty()) {
+                    bandBuckets.remove(bucketKey);
+                }
+            }
+        }
+    }
+
+    private Set<Long> candidates(long[] signature) {
+        Set<Long> candidateIds = new HashSet<>();
+        for (long bucketKey : bandKeys(signature)) {
+            List<Long> bucket = bandBuckets.get(bucketKey);
+            if (bucket != null) {
+                candidateIds.addAll(bucket);
+            }
+        }
+        return candidateIds;
+    }
+
+    private static long[] bandKeys(long[] signature) {
+        long[] keys = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long key = band;
+            for (int row = 0; row < ROWS_PER_BAND; row++) {
+                key = mix64(key * 31 + signature[band * ROWS_PER_BAND + row]);
+            }
+            keys[band] = key;
+        }
+        return keys;
+    }
+
+    private static long[] signature(Set<String> shingles) {
+        long[] signature = new long[NUM_HASHES];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (String shingle : shingles) {
+            long base = fnv1a64(shingle);
+            for (int i = 0; i < NUM_HASHES; i++) {
+                long hash = mix64(base ^ SEEDS[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static double estimateSimilarity(long[] a, long[] b) {
+        int equal = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / NUM_HASHES;
+    }
+
+    private static long fnv1a64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private void collectVocabulary(Resource resource, String fieldName, Set<String> vocabulary) {
+        try {
+            JsonNode root = objectMapper.readTree(resource.getContentAsString(StandardCharsets.UTF_8));
+            for (JsonNode node : root.findValues(fieldName)) {
+                List<String> phrases = new ArrayList<>();
+                if (node.isArray()) {
+                    node.forEach(alias -> phrases.add(alias.asText()));
+                } else if (node.isObject()) {
+                    node.fieldNames().forEachRemaining(phrases::add);
+                }
+                for (String phrase : phrases) {
+                    Matcher matcher = WORD_PATTERN.matcher(phrase.toLowerCase(Locale.ROOT));
+                    while (matcher.find()) {
+                        if (!STOPWORDS.contains(matcher.group())) {
+                            vocabulary.add(matcher.group());
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to load prompt cache vocabulary from {}: {}", resource, e.getMessage());
+        }
+    }
+
+    // Helper classes
+    public record CacheHit(String queryDsl, double similarity, String matchedPrompt) {}
+
+    private enum LiteralKind { NUMBER, DATE, HANDLE, TOKEN, QUOTED }
+
+    private record Literal(LiteralKind kind, String value) {}
+
+    private record PromptShape(String normalized, Set<String> words, Set<String> shingles,
+                               List<Literal> literals, Set<String> literalValues) {
+
+        static PromptShape of(String prompt) {
+            List<Literal> literals = new ArrayList<>();
+            StringBuilder normalized = new StringBuilder();
+            Matcher matcher = LITERAL_PATTERN.matcher(prompt);
+            int last = 0;
+            while (matcher.find()) {
+                normalized.append(prompt, last, matcher.start()).append(' ');
+                Literal literal = toLiteral(matcher);
+                literals.add(literal);
+                normalized.append('<').append(literal.kind().name().toLowerCase(Locale.ROOT)).append("> ");
+                last = matcher.end();
+            }
+            normalized.append(prompt.substring(last));
+
+            List<String> tokens = new ArrayList<>();
+            Matcher words = WORD_PATTERN.matcher(normalized.toString().toLowerCase(Locale.ROOT));
+            while (words.find()) {
+                if (!STOPWORDS.contains(words.group())) {
+                    tokens.add(words.group());
+                }
+            }
+
+            Set<String> shingles = new HashSet<>(tokens);
+            for (int i = 0; i + 1 < tokens.size(); i++) {
+                shingles.add(tokens.get(i) + ' ' + tokens.get(i + 1));
+            }
+
+            Set<String> literalValues = new HashSet<>();
+            literals.forEach(l -> literalValues.add(l.value()));
+
+            return new PromptShape(String.join(" ", tokens), Set.copyOf(tokens), shingles,
+                    List.copyOf(literals), literalValues);
+        }
+
+        private static Literal toLiteral(Matcher matcher) {
+            if (matcher.group(1) != null) {
+                return new Literal(LiteralKind.QUOTED, matcher.group(1));
+            }
+            if (matcher.group(2) != null) {
+                return new Literal(LiteralKind.QUOTED, matcher.group(2));
+            }
+            // Strip trailing sentence punctuation ("user 123." -> "123")
+            String value = TRAILING_PUNCTUATION.matcher(matcher.group(3)).replaceAll("");
+            if (value.startsWith("+") && NUMERIC_PATTERN.matcher(value.substring(1)).matches()) {
+                value = value.substring(1);
+            }
+            if (NUMERIC_PATTERN.matcher(value).matches()) {
+                return new Literal(LiteralKind.NUMBER, value);
+            }
+            if (ISO_DATE_PATTERN.matcher(value).lookingAt()) {
+                return new Literal(LiteralKind.DATE, value);
+            }
+            if (value.contains("@")) {
+                return new Literal(LiteralKind.HANDLE, value);
+            }
+            return new Literal(LiteralKind.TOKEN, value);
+        }
+    }
+
+    private static final class CacheEntry {
+        final long id;
+        final String prompt;
+        final PromptShape shape;
+        final long[] signature;
+        final JsonNode dsl;
+        final LocalDate createdOn;
+
+        CacheEntry(long id, String prompt, PromptShape shape, long[] signature, JsonNode dsl, LocalDate createdOn) {
+            this.id = id;
+            this.prompt = prompt;
+            this.shape = shape;
+            this.signature = signature;
+            this.dsl = dsl;
+            this.createdOn = createdOn;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.paytm.mcpserver.utility.JsonCodec;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+import reactor.util.retry.Retry;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * Non-blocking Redash API client, used for searches when {@code redash.client.mode=reactive}
+ *
+ * The query lifecycle of RedashClient (create, execute, poll the job, fetch the result) composed as one
+ * Mono on a few event-loop threads ({@code redash.reactive.event-loop-threads}): no thread is held while
+ * Redash runs the job, polls wait on a timer. Every request has the read timeout; requests that can be
+ * repeated safely (job polls, result fetches) are retried on connection errors, timeouts and 5xx responses,
+ * create and execute only when the connection could not be opened, so that no duplicate job is started.
+ */
+@Service
+@ConditionalOnProperty(name = "redash.client.mode", havingValue = "reactive")
+@Log4j2
+public class ReactiveRedashClient {
+
+    @Value("${redash.base-url:http://10.84.84.143:5000}")
+    private String redashBaseUrl;
+
+    @Value("${redash.api-key}")
+    private String apiKey;
+
+    @Value("${redash.poll-interval:2000}")
+    private long redashPollInterval;
+
+    @Value("${redash.max-poll-attempts:15}")
+    private int redashMaxPollAttempts;
+
+    @Value("${redash.connection-timeout:5000}")
+    private int connectionTimeout;
+
+    @Value("${redash.read-timeout:30000}")
+    private int readTimeout;
+
+    @Value("${redash.reactive.event-loop-threads:4}")
+    private int eventLoopThreads;
+
+    @Value("${redash.reactive.max-connections:1000}")
+    private int maxConnections;
+
+    @Value("${redash.reactive.max-retries:2}")
+    private int maxRetries;
+
+    @Value("${redash.reactive.retry-backoff-ms:250}")
+    private long retryBackoffMs;
+
+    @Value("${redash.reactive.max-response-bytes:268435456}")
+    private int maxResponseBytes;
+
+    private final WebClient.Builder webClientBuilder;
+    private final McpMetrics metrics;
+    private final JsonCodec jsonCodec;
+    private LoopResources loopResources;
+    private ConnectionProvider connectionProvider;
+    private WebClient webClient;
+
+    public ReactiveRedashClient(WebClient.Builder webClientBuilder, McpMetrics metrics, JsonCodec jsonCodec) {
+        this.webClientBuilder = webClientBuilder;
+        this.metrics = metrics;
+        this.jsonCodec = jsonCodec;
+    }
+
+    @PostConstruct
+    void init() {
+        loopResources = LoopResources.create("redash-reactive", eventLoopThreads, true);
+        connectionProvider = ConnectionProvider.builder("redash")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(readTimeout))
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .runOn(loopResources)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectionTimeout)
+                .responseTimeout(Duration.ofMillis(readTimeout));
+        // Built from the Boot builder so its JSON codecs use the shared ObjectMapper
+        webClient = webClientBuilder
+                .baseUrl(redashBaseUrl)
+                .defaultHeader("Authorization", "Key " + apiKey)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxResponseBytes))
+                .build();
+        log.info("Reactive Redash client: {} event-loop threads, {} connections", eventLoopThreads, maxConnections);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        connectionProvider.dispose();
+        loopResources.dispose();
+    }
+
+    /**
+     * Create a query on a data source and emit its raw Redash result,
+     * filling the per phase timings into the profile when one is given
+     */
+    public Mono<String> runQuery(String query, Integer dataSourceId, String queryName, RedashClient.QueryProfile profile) {
+        return Mono.defer(() -> {
+            metrics.jobStarted();
+            long createStart = System.nanoTime();
+            return createQuery(query, dataSourceId, queryName)
+                    .flatMap(queryId -> {
+                        if (profile != null) {
+                            profile.createNanos = System.nanoTime() - createStart;
+                        }
+                        return executeQuery(queryId, profile);
+                    })
+                    .doFinally(signal -> metrics.jobFinished());
+        });
+    }
+
+    /**
+     * Create query in Redash
+     */
+    private Mono<Integer> createQuery(String query, Integer dataSourceId, String queryName) {
+        Map<String, Object> requestBody = Map.of(
+                "query", query,
+                "data_source_id", dataSourceId,
+                "name", queryName + "-" + System.currentTimeMillis()
+        );
+        Mono<ResponseEntity<String>> request = webClient.post()
+                .uri("/api/queries")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestBody)
+                .retrieve()
+                .toEntity(String.class);
+        return timed(McpMetrics.PHASE_CREATE, request, ReactiveRedashClient::isConnectFailure)
+                .map(response -> {
+                    JsonNode body = readTree(response.getBody());
+                    if (body == null || !body.path("id").isInt()) {
+                        throw new IllegalStateException("Failed to create Redash query");
+                    }
+                    int queryId = body.get("id").asInt();
+                    log.debug("Created Redash query with ID: {} ({})", queryId, queryName);
+                    return queryId;
+                })
+                .onErrorMap(e -> new RuntimeException("Failed to create Redash query " + queryName, e));
+    }
+
+    /**
+     * Execute Redash query and emit its results, polling the job when Redash did not have them cached
+     */
+    private Mono<String> executeQuery(Integer queryId, RedashClient.QueryProfile profile) {
+        Mono<ResponseEntity<String>> request = webClient.post()
+                .uri("/api/queries/{id}/results", queryId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .toEntity(String.class);
+        long executeStart = System.nanoTime();
+        return timed(McpMetrics.PHASE_EXECUTE, request, ReactiveRedashClient::isConnectFailure)
+                .flatMap(response -> {
+                    if (profile != null) {
+                        profile.executeNanos = System.nanoTime() - executeStart;
+                    }
+                    String body = response.getBody();
+                    if (body == null) {
+                        return Mono.error(new IllegalStateException("Empty response from query execution"));
+                    }
+                    String responseType = responseType(body);
+                    if ("job".equals(responseType)) {
+                        String jobId = readTree(body).path("job").path("id").asText();
+                        log.debug("Query execution started with job ID: {}", jobId);
+                        return poll(jobId, profile, System.nanoTime(), 0).flatMap(queryResultId -> fetch(queryResultId, profile));
+                    }
+                    if ("query_result".equals(responseType)) {
+                        log.debug("Query returned cached results");
+                        if (profile != null) {
+                            profile.cachedResult = true;
+                            profile.bytesReceived = RedashClient.responseSize(response);
+                        }
+                        return Mono.just(body);
+                    }
+                    return Mono.error(new IllegalStateException("Unexpected response format from Redash: " + body));
+                })
+                .onErrorMap(e -> new RuntimeException("Failed to execute Redash query", e));
+    }
+
+    /**
+     * Poll the job every poll-interval until it finished, at most max-poll-attempts times
+     */
+    private Mono<Integer> poll(String jobId, RedashClient.QueryProfile profile, long pollStart, int attempt) {
+        if (attempt >= redashMaxPollAttempts) {
+            metrics.recordPollTimeout();
+            metrics.recordRedashError(McpMetrics.PHASE_POLL);
+            if (profile != null) {
+                profile.pollWaitNanos = System.nanoTime() - pollStart;
+            }
+            return Mono.error(new IllegalStateException("Job polling timeout after " + attempt + " attempts"));
+        }
+        metrics.recordPollAttempt();
+        Mono<ResponseEntity<String>> request = webClient.get()
+                .uri("/api/jobs/{id}", jobId)
+                .retrieve()
+                .toEntity(String.class);
+        return timed(McpMetrics.PHASE_POLL, request, ReactiveRedashClient::isRetryable)
+                .flatMap(response -> {
+                    long requestEnd = System.nanoTime();
+                    JsonNode job = readTree(response.getBody()).path("job");
+                    int status = job.path("status").asInt();
+                    if (profile != null) {
+                        profile.pollCount = attempt + 1;
+                        profile.pollWaitNanos = requestEnd - pollStart;
+                        // Status 1 = queued, the job left the queue by the first poll that sees it started or done
+                        if (status != 1 && profile.queuedNanos < 0) {
+                            profile.queuedNanos = requestEnd - pollStart;
+                        }
+                    }
+                    if (status == 3) {
+                        int queryResultId = job.path("query_result_id").asInt();
+                        log.debug("Job {} completed successfully with result ID: {}", jobId, queryResultId);
+                        return Mono.just(queryResultId);
+                    }
+                    if (status == 4) {
+                        metrics.recordRedashError(McpMetrics.PHASE_POLL);
+                        return Mono.error(new IllegalStateException("Redash job failed: " + job.path("error").asText()));
+                    }
+                    // Still processing (status 1 or 2), the next poll runs on a timer
+                    return Mono.delay(Duration.ofMillis(redashPollInterval))
+                            .then(Mono.defer(() -> poll(jobId, profile, pollStart, attempt + 1)));
+                });
+    }
+
+    private Mono<String> fetch(Integer queryResultId, RedashClient.QueryProfile profile) {
+        Mono<ResponseEntity<String>> request = webClient.get()
+                .uri("/api/query_results/{id}", queryResultId)
+                .retrieve()
+                .toEntity(String.class);
+        long fetchStart = System.nanoTime();
+        return timed(McpMetrics.PHASE_FETCH, request, ReactiveRedashClient::isRetryable)
+                .map(response -> {
+                    if (profile != null) {
+                        profile.fetchNanos = System.nanoTime() - fetchStart;
+                        profile.bytesReceived = RedashClient.responseSize(response);
+                    }
+                    if (response.getBody() == null) {
+                        throw new IllegalStateException("Empty response from Redash results fetch");
+                    }
+                    log.debug("Successfully retrieved results for query result ID: {}", queryResultId);
+                    return response.getBody();
+                });
+    }
+
+    /**
+     * One Redash request with the read timeout, retries of the failures retryable accepts and phase metrics
+     */
+    private Mono<ResponseEntity<String>> timed(String phase, Mono<ResponseEntity<String>> request,
+                                               Predicate<Throwable> retryable) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            return request.timeout(Duration.ofMillis(readTimeout))
+                    .doFinally(signal -> metrics.recordPhase(phase, System.nanoTime() - startNanos));
+        })
+                .retryWhen(Retry.backoff(maxRetries, Duration.ofMillis(retryBackoffMs))
+                        .filter(retryable)
+                        .doBeforeRetry(retry -> log.debug("Retrying Redash {} after {}", phase, retry.failure().toString()))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .doOnError(e -> metrics.recordRedashError(phase));
+    }
+
+    private String responseType(String body) {
+        try {
+            return RedashClient.firstFieldName(jsonCodec, body);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable Redash response: " + e.getMessage(), e);
+        }
+    }
+
+    private JsonNode readTree(String body) {
+        try {
+            return jsonCodec.readTree(body);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable Redash response: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The request never reached Redash, repeating it cannot start a second job
+     */
+    private static boolean isConnectFailure(Throwable e) {
+        return e instanceof WebClientRequestException && e.getCause() instanceof ConnectException;
+    }
+
+    private static boolean isRetryable(Throwable e) {
+        return e instanceof WebClientRequestException || e instanceof TimeoutException
+                || (e instanceof WebClientResponseException response && response.getStatusCode().is5xxServerError());
+    }
+}
@@ -0,0 +1,422 @@
+package com.paytm.mcpserver.service;
+
+import com.paytm.mcpserver.enums.SearchLaneEnum;
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.mcp.McpToolUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control in front of Redash
+ *
+ * - Token bucket per MCP client session: each Redash job of a search takes one token, a client that
+ *   runs out is rejected with the time until enough tokens are back; a search of more jobs than the burst
+ *   is admitted on a full bucket and leaves it in debt, so the client waits for every job it ran
+ * - Global bulkhead on outstanding Redash jobs: jobs beyond the limit wait in a bounded queue,
+ *   they are rejected right away when the queue is full or after the max queue wait
+ * - Priority lanes (see {@link SearchLaneClassifier}): each lane has its own job budget within the
+ *   bulkhead, freed slots go to the waiting lanes by weighted fair (stride) scheduling, so bulk scans
+ *   keep progressing without taking the slots interactive searches need
+ *
+ * Rejections carry a retry-after hint so the calling agent can back off instead of looping.
+ */
+@Service
+@Log4j2
+public class RedashAdmissionController {
+
+    public static final String ANONYMOUS_CLIENT = "anonymous";
+
+    @Value("${redash.admission.max-outstanding-jobs:5}")
+    private int maxOutstandingJobs;
+
+    @Value("${redash.admission.max-queued:20}")
+    private int maxQueued;
+
+    @Value("${redash.admission.max-queue-wait-ms:10000}")
+    private long maxQueueWaitMs;
+
+    @Value("${redash.lanes.interactive.max-jobs:5}")
+    private int interactiveMaxJobs;
+
+    @Value("${redash.lanes.interactive.weight:4}")
+    private int interactiveWeight;
+
+    @Value("${redash.lanes.bulk.max-jobs:3}")
+    private int bulkMaxJobs;
+
+    @Value("${redash.lanes.bulk.weight:1}")
+    private int bulkWeight;
+
+    @Value("${redash.rate-limit.enabled:true}")
+    private boolean rateLimitEnabled;
+
+    @Value("${redash.rate-limit.jobs-per-second:1.0}")
+    private double jobsPerSecond;
+
+    @Value("${redash.rate-limit.burst:10}")
+    private int burst;
+
+    @Value("${redash.rate-limit.idle-eviction-ms:600000}")
+    private long idleEvictionMs;
+
+    private final McpMetrics metrics;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Lane[] lanes = new Lane[SearchLaneEnum.values().length];
+    private volatile int outstanding;
+    private volatile int queued;
+    private double virtualTime;
+    private volatile double ewmaJobMs = 1000;
+
+    public RedashAdmissionController(McpMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (maxOutstandingJobs < 1 || burst < 1 || jobsPerSecond <= 0) {
+            throw new IllegalStateException("redash.admission.max-outstanding-jobs, redash.rate-limit.burst and "
+                    + "redash.rate-limit.jobs-per-second must be positive");
+        }
+        if (interactiveMaxJobs < 1 || interactiveWeight < 1 || bulkMaxJobs < 1 || bulkWeight < 1) {
+            throw new IllegalStateException("redash.lanes.*.max-jobs and redash.lanes.*.weight must be positive");
+        }
+        addLane(SearchLaneEnum.INTERACTIVE, interactiveMaxJobs, interactiveWeight);
+        addLane(SearchLaneEnum.BULK, bulkMaxJobs, bulkWeight);
+        metrics.registerAdmissionGauges(() -> queued, () -> maxOutstandingJobs - outstanding);
+        log.info("Redash admission: {} outstanding jobs, {} queued, lanes {}, rate limit {} ({}/s, burst {})",
+                maxOutstandingJobs, maxQueued, lanes, rateLimitEnabled ? "on" : "off", jobsPerSecond, burst);
+    }
+
+    private void addLane(SearchLaneEnum name, int maxJobs, int weight) {
+        Lane lane = new Lane(name, Math.min(maxJobs, maxOutstandingJobs), weight);
+        lanes[name.ordinal()] = lane;
+        metrics.registerAdmissionLane(name.name(), () -> lane.waiting.size(), () -> lane.running);
+    }
+
+    /**
+     * Identify the MCP session a tool call belongs to
+     * The client Implementation is created once per session at initialize, its identity tells sessions
+     * of the same client apart (the exchange itself is created per call)
+     */
+    public static String clientId(ToolContext toolContext) {
+        if (toolContext == null) {
+            return ANONYMOUS_CLIENT;
+        }
+        return McpToolUtils.getMcpExchange(toolContext)
+                .map(McpSyncServerExchange::getClientInfo)
+                .map(clientInfo -> clientInfo.name() + "#" + Integer.toHexString(System.identityHashCode(clientInfo)))
+                .orElse(ANONYMOUS_CLIENT);
+    }
+
+    /**
+     * Take one token per Redash job from the client's bucket, the full count even beyond the burst
+     *
+     * @throws RejectedException when the client is over its rate
+     */
+    public void checkRate(String clientId, int jobs) {
+        if (!rateLimitEnabled || jobs <= 0) {
+            return;
+        }
+        TokenBucket bucket = buckets.computeIfAbsent(clientId, id -> new TokenBucket(burst, System.nanoTime()));
+        long retryAfterMs = bucket.tryTake(jobs, burst, jobsPerSecond, System.nanoTime());
+        if (retryAfterMs > 0) {
+            metrics.recordAdmissionRejection("rate_limited", "none");
+            log.warn("Client {} rate limited, retry after {}ms", clientId, retryAfterMs);
+            throw new RejectedException("Too many Redash queries from this client", retryAfterMs);
+        }
+    }
+
+    /**
+     * Job budget of a lane, the most Redash jobs its searches run at once
+     */
+    public int getMaxJobs(SearchLaneEnum laneName) {
+        return lanes[laneName.ordinal()].maxJobs;
+    }
+
+    /**
+     * Reserve slots in a lane for the given number of Redash jobs, waiting in the bounded queue when
+     * the lane budget or the bulkhead is used up
+     * The returned permits must be closed, jobs may hand their slot back earlier with {@link JobPermits#release}
+     *
+     * @throws RejectedException when the queue is full or the wait times out
+     */
+    public JobPermits acquireJobs(SearchLaneEnum laneName, int jobs) {
+        Lane lane = lanes[laneName.ordinal()];
+        int permits = Math.min(Math.max(jobs, 0), lane.maxJobs);
+        long waitStart = System.nanoTime();
+
+        lock.lock();
+        try {
+            if (permits == 0) {
+                return new JobPermits(lane, 0);
+            }
+            // Nobody waiting: take the slots directly if they are free
+            if (queued == 0 && fits(lane, permits)) {
+                take(lane, permits);
+                return new JobPermits(lane, permits);
+            }
+            if (queued >= maxQueued) {
+                metrics.recordAdmissionRejection("queue_full", laneName.name());
+                throw new RejectedException("Redash is busy, admission queue is full", retryAfterMs(lane));
+            }
+
+            Waiter waiter = new Waiter(permits, lock.newCondition());
+            if (lane.waiting.isEmpty()) {
+                // A lane coming back from idle does not get credit for the time it was not competing
+                lane.pass = Math.max(lane.pass, virtualTime);
+            }
+            lane.waiting.add(waiter);
+            queued++;
+            dispatch();
+
+            long remaining = TimeUnit.MILLISECONDS.toNanos(maxQueueWaitMs);
+            try {
+                while (!waiter.granted && remaining > 0) {
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abandon(lane, waiter);
+                throw new RejectedException("Interrupted while waiting for a Redash slot", retryAfterMs(lane));
+            }
+            if (!waiter.granted) {
+                abandon(lane, waiter);
+                metrics.recordAdmissionRejection("queue_timeout", laneName.name());
+                throw new RejectedException("Redash is busy, no slot freed up within " + maxQueueWaitMs + "ms",
+                        retryAfterMs(lane));
+            }
+            return new JobPermits(lane, permits);
+        } finally {
+            lock.unlock();
+            metrics.recordAdmissionWait(laneName.name(), System.nanoTime() - waitStart);
+        }
+    }
+
+    /**
+     * Drop buckets of sessions that have been idle and full again for the idle eviction time,
+     * a bucket still paying off a debt is kept
+     */
+    @Scheduled(fixedDelayString = "${redash.rate-limit.idle-eviction-ms:600000}")
+    public void evictIdleBuckets() {
+        long idleSince = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(idleEvictionMs);
+        buckets.values().removeIf(bucket -> bucket.fullBefore(idleSince));
+    }
+
+    /**
+     * Hand freed slots to waiting searches, always to the head of the lane with the lowest pass among the
+     * lanes whose head fits (lock held)
+     */
+    private void dispatch() {
+        while (true) {
+            Lane next = null;
+            for (Lane lane : lanes) {
+                Waiter head = lane.waiting.peek();
+                if (head != null && fits(lane, head.permits) && (next == null || lane.pass < next.pass)) {
+                    next = lane;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+
+            Waiter waiter = next.waiting.poll();
+            queued--;
+            take(next, waiter.permits);
+            virtualTime = next.pass;
+            next.pass += 1.0 / next.weight;
+            waiter.granted = true;
+            waiter.condition.signal();
+        }
+    }
+
+    private boolean fits(Lane lane, int permits) {
+        return lane.running + permits <= lane.maxJobs && outstanding + permits <= maxOutstandingJobs;
+    }
+
+    private void take(Lane lane, int permits) {
+        lane.running += permits;
+        outstanding += permits;
+    }
+
+    private void release(Lane lane, int permits) {
+        lock.lock();
+        try {
+            lane.running -= permits;
+            outstanding -= permits;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Give up waiting (lock held), a waiter granted in the meantime hands its slots back
+     */
+    private void abandon(Lane lane, Waiter waiter) {
+        if (waiter.granted) {
+            lane.running -= waiter.permits;
+            outstanding -= waiter.permits;
+        } else {
+            lane.waiting.remove(waiter);
+            queued--;
+        }
+        // The abandoned waiter may have been blocking the ones behind it
+        dispatch();
+    }
+
+    /**
+     * Expected wait for a slot: the lane queue ahead drains at most its budget at a time, one average job each
+     */
+    private long retryAfterMs(Lane lane) {
+        int rounds = lane.waiting.size() / lane.maxJobs + 1;
+        return Math.max(100, Math.round(ewmaJobMs * rounds));
+    }
+
+    private void recordJobTime(long millis) {
+        ewmaJobMs = 0.2 * millis + 0.8 * ewmaJobMs;
+    }
+
+    // Helper classes
+
+    /**
+     * Slots held by one search, every slot is returned at the latest on close
+     */
+    public class JobPermits implements AutoCloseable {
+        private final Lane lane;
+        private final long acquiredAt = System.currentTimeMillis();
+        private int held;
+
+        private JobPermits(Lane lane, int held) {
+            this.lane = lane;
+            this.held = held;
+        }
+
+        public SearchLaneEnum getLane() {
+            return lane.name;
+        }
+
+        /**
+         * Slots still held, at most the lane's job budget whatever number of jobs was asked for
+         */
+        public synchronized int getHeld() {
+            return held;
+        }
+
+        /**
+         * Return the slot of one finished job
+         */
+        public synchronized void release() {
+            if (held > 0) {
+                held--;
+                RedashAdmissionController.this.release(lane, 1);
+                recordJobTime(System.currentTimeMillis() - acquiredAt);
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            if (held > 0) {
+                RedashAdmissionController.this.release(lane, held);
+                held = 0;
+            }
+        }
+    }
+
+    /**
+     * Admission refused, retryAfterMs is a hint for when the same request is likely to be admitted
+     */
+    public static class RejectedException extends RuntimeException {
+        private final long retryAfterMs;
+
+        public RejectedException(String message, long retryAfterMs) {
+            super(message);
+            this.retryAfterMs = retryAfterMs;
+        }
+
+        public long getRetryAfterMs() {
+            return retryAfterMs;
+        }
+    }
+
+    /**
+     * Job budget and scheduling state of one lane, guarded by the controller lock
+     * (running is read without it by the gauges)
+     */
+    private static class Lane {
+        private final SearchLaneEnum name;
+        private final int maxJobs;
+        private final int weight;
+        private final ArrayDeque<Waiter> waiting = new ArrayDeque<>();
+        private volatile int running;
+        private double pass;
+
+        Lane(SearchLaneEnum name, int maxJobs, int weight) {
+            this.name = name;
+            this.maxJobs = maxJobs;
+            this.weight = weight;
+        }
+
+        @Override
+        public String toString() {
+            return name + "(max " + maxJobs + ", weight " + weight + ")";
+        }
+    }
+
+    private static class Waiter {
+        private final int permits;
+        private final Condition condition;
+        private boolean granted;
+
+        Waiter(int permits, Condition condition) {
+            this.permits = permits;
+            this.condition = condition;
+        }
+    }
+
+    /**
+     * Tokens may go negative: a take of more than the capacity needs a full bucket and leaves the rest as debt
+     */
+    private static class TokenBucket {
+        private double tokens;
+        private long refilledAt;
+        private volatile long fullAt;
+
+        TokenBucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.refilledAt = now;
+            this.fullAt = now;
+        }
+
+        /**
+         * Take the tokens if available, otherwise return the milliseconds until they will be
+         */
+        synchronized long tryTake(int count, int capacity, double perSecond, long now) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) / 1e9 * perSecond);
+            refilledAt = now;
+            // Beyond the capacity the bucket never holds count tokens, a full bucket is enough
+            double needed = Math.min(count, capacity);
+            if (tokens >= needed) {
+                tokens -= count;
+                fullAt = now + (long) ((capacity - tokens) / perSecond * 1e9);
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((needed - tokens) / perSecond * 1000));
+        }
+
+        boolean fullBefore(long nanos) {
+            return fullAt - nanos < 0;
+        }
+    }
+}
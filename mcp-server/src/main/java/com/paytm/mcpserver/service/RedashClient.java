@@ -0,0 +1,330 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.paytm.mcpserver.utility.JsonCodec;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Redash API client
+ *
+ * Wraps the Redash query lifecycle: create query, trigger execution,
+ * poll the job until completion and fetch the query result.
+ */
+@Service
+@Log4j2
+public class RedashClient {
+
+    @Value("${redash.base-url:http://10.84.84.143:5000}")
+    private String redashBaseUrl;
+
+    @Value("${redash.api-key}")
+    private String apiKey;
+
+    @Value("${redash.poll-interval:2000}")
+    private long redashPollInterval;
+
+    @Value("${redash.max-poll-attempts:15}")
+    private int redashMaxPollAttempts;
+
+    private final RestTemplate restTemplate;
+    private final McpMetrics metrics;
+    private final JsonCodec jsonCodec;
+
+    public RedashClient(RestTemplate restTemplate, McpMetrics metrics, JsonCodec jsonCodec) {
+        this.restTemplate = restTemplate;
+        this.metrics = metrics;
+        this.jsonCodec = jsonCodec;
+    }
+
+    /**
+     * Create a query on a data source and return its raw Redash result
+     */
+    public String runQuery(String query, Integer dataSourceId, String queryName) {
+        return runQuery(query, dataSourceId, queryName, null);
+    }
+
+    /**
+     * Create a query on a data source and return its raw Redash result,
+     * filling the per phase timings into the profile when one is given
+     */
+    public String runQuery(String query, Integer dataSourceId, String queryName, QueryProfile profile) {
+        metrics.jobStarted();
+        try {
+            long createStart = System.nanoTime();
+            Integer queryId = createQuery(query, dataSourceId, queryName);
+            if (profile != null) {
+                profile.createNanos = System.nanoTime() - createStart;
+            }
+            return executeQuery(queryId, profile);
+        } finally {
+            metrics.jobFinished();
+        }
+    }
+
+    /**
+     * Create query in Redash
+     */
+    public Integer createQuery(String query, Integer dataSourceId, String queryName) {
+        long startNanos = System.nanoTime();
+        try {
+            String url = redashBaseUrl + "/api/queries";
+
+            Map<String, Object> requestBody = Map.of(
+                "query", query,
+                "data_source_id", dataSourceId,
+                "name", queryName + "-" + System.currentTimeMillis()
+            );
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("Authorization", "Key " + apiKey);
+            headers.setContentType(MediaType.APPLICATION_JSON);
+
+            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+
+            @SuppressWarnings("rawtypes")
+            ResponseEntity<Map> response = restTemplate.postForEntity(url, entity, Map.class);
+
+            @SuppressWarnings("unchecked")
+            Map<String, Object> responseBody = response.getBody();
+            if (responseBody != null && responseBody.containsKey("id")) {
+                Integer queryId = (Integer) responseBody.get("id");
+                log.debug("Created Redash query with ID: {} ({})", queryId, queryName);
+                return queryId;
+            }
+
+            throw new RuntimeException("Failed to create Redash query");
+
+        } catch (Exception e) {
+            metrics.recordRedashError(McpMetrics.PHASE_CREATE);
+            throw new RuntimeException("Failed to create Redash query " + queryName, e);
+        } finally {
+            metrics.recordPhase(McpMetrics.PHASE_CREATE, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Execute Redash query and get results
+     */
+    public String executeQuery(Integer queryId) {
+        return executeQuery(queryId, null);
+    }
+
+    private String executeQuery(Integer queryId, QueryProfile profile) {
+        String phase = McpMetrics.PHASE_EXECUTE;
+        try {
+            // Step 1: Trigger query execution
+            String executeUrl = redashBaseUrl + "/api/queries/" + queryId + "/results";
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("Authorization", "Key " + apiKey);
+            headers.setContentType(MediaType.APPLICATION_JSON);
+
+            HttpEntity<Void> entity = new HttpEntity<>(headers);
+            long executeStart = System.nanoTime();
+            ResponseEntity<String> executeResponse = restTemplate.postForEntity(executeUrl, entity, String.class);
+            long executeNanos = System.nanoTime() - executeStart;
+            metrics.recordPhase(McpMetrics.PHASE_EXECUTE, executeNanos);
+            if (profile != null) {
+                profile.executeNanos = executeNanos;
+            }
+
+            if (executeResponse.getBody() == null) {
+                throw new RuntimeException("Empty response from query execution");
+            }
+
+            // Step 2: Check if response has "job" (async) or "query_result" (cached)
+            // Cached results carry the whole row payload, only the first field is read to tell them apart
+            String responseType = firstFieldName(jsonCodec, executeResponse.getBody());
+            log.debug("Query execution response type: {}", responseType);
+
+            if ("job".equals(responseType)) {
+                // Async execution - need to poll
+                JsonNode response = jsonCodec.readTree(executeResponse.getBody());
+                String jobId = response.get("job").get("id").asText();
+                log.debug("Query execution started with job ID: {}", jobId);
+
+                // Step 3: Poll for job completion
+                phase = McpMetrics.PHASE_POLL;
+                Integer queryResultId = pollForJobCompletion(jobId, profile);
+
+                // Step 4: Fetch actual results
+                phase = McpMetrics.PHASE_FETCH;
+                String resultsUrl = redashBaseUrl + "/api/query_results/" + queryResultId;
+                long fetchStart = System.nanoTime();
+                ResponseEntity<String> resultsResponse = restTemplate.exchange(
+                    resultsUrl,
+                    org.springframework.http.HttpMethod.GET,
+                    entity,
+                    String.class
+                );
+                long fetchNanos = System.nanoTime() - fetchStart;
+                metrics.recordPhase(McpMetrics.PHASE_FETCH, fetchNanos);
+                if (profile != null) {
+                    profile.fetchNanos = fetchNanos;
+                    profile.bytesReceived = responseSize(resultsResponse);
+                }
+
+                if (resultsResponse.getBody() != null) {
+                    log.debug("Successfully retrieved results for query result ID: {}", queryResultId);
+                    return resultsResponse.getBody();
+                }
+
+                throw new RuntimeException("Empty response from Redash results fetch");
+
+            } else if ("query_result".equals(responseType)) {
+                // Cached results - return immediately
+                log.debug("Query returned cached results");
+                if (profile != null) {
+                    profile.cachedResult = true;
+                    profile.bytesReceived = responseSize(executeResponse);
+                }
+                return executeResponse.getBody();
+
+            } else {
+                // Unexpected response format
+                log.error("Unexpected Redash response format: {}", executeResponse.getBody());
+                throw new RuntimeException("Unexpected response format from Redash: " + executeResponse.getBody());
+            }
+
+        } catch (Exception e) {
+            metrics.recordRedashError(phase);
+            throw new RuntimeException("Failed to execute Redash query", e);
+        }
+    }
+
+    /**
+     * Poll Redash job until completion
+     */
+    private Integer pollForJobCompletion(String jobId, QueryProfile profile) {
+        String jobUrl = redashBaseUrl + "/api/jobs/" + jobId;
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", "Key " + apiKey);
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+
+        long pollStart = System.nanoTime();
+        int attempts = 0;
+        while (attempts < redashMaxPollAttempts) {
+            try {
+                metrics.recordPollAttempt();
+                long requestStart = System.nanoTime();
+                ResponseEntity<String> jobResponse = restTemplate.exchange(
+                    jobUrl,
+                    org.springframework.http.HttpMethod.GET,
+                    entity,
+                    String.class
+                );
+                long requestEnd = System.nanoTime();
+                metrics.recordPhase(McpMetrics.PHASE_POLL, requestEnd - requestStart);
+
+                JsonNode jobStatus = jsonCodec.readTree(jobResponse.getBody());
+                int status = jobStatus.get("job").get("status").asInt();
+
+                if (profile != null) {
+                    profile.pollCount = attempts + 1;
+                    profile.pollWaitNanos = requestEnd - pollStart;
+                    // Status 1 = queued, the job left the queue by the first poll that sees it started or done
+                    if (status != 1 && profile.queuedNanos < 0) {
+                        profile.queuedNanos = requestEnd - pollStart;
+                    }
+                }
+
+                // Status 3 = success
+                if (status == 3) {
+                    Integer queryResultId = jobStatus.get("job").get("query_result_id").asInt();
+                    log.debug("Job {} completed successfully with result ID: {}", jobId, queryResultId);
+                    return queryResultId;
+                }
+
+                // Status 4 = failure
+                if (status == 4) {
+                    String error = jobStatus.get("job").get("error").asText();
+                    throw new RuntimeException("Redash job failed: " + error);
+                }
+
+                // Still processing (status 1 or 2), wait and retry
+                Thread.sleep(redashPollInterval);
+                attempts++;
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Job polling interrupted", e);
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to poll job status", e);
+            }
+        }
+
+        metrics.recordPollTimeout();
+        if (profile != null) {
+            profile.pollWaitNanos = System.nanoTime() - pollStart;
+        }
+        throw new RuntimeException("Job polling timeout after " + attempts + " attempts");
+    }
+
+    /**
+     * Name of the first field of a JSON object, without parsing the rest of it
+     */
+    static String firstFieldName(JsonCodec jsonCodec, String json) throws IOException {
+        try (JsonParser parser = jsonCodec.getFactory().createParser(json)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT && parser.nextToken() == JsonToken.FIELD_NAME) {
+                return parser.currentName();
+            }
+            return null;
+        }
+    }
+
+    static long responseSize(ResponseEntity<String> response) {
+        long contentLength = response.getHeaders().getContentLength();
+        if (contentLength >= 0) {
+            return contentLength;
+        }
+        return response.getBody() == null ? 0 : response.getBody().length();
+    }
+
+    /**
+     * Timing breakdown of one Redash query, filled in by runQuery when profiling is requested
+     * Queued time is measured at poll granularity (first poll that no longer sees the job queued)
+     */
+    public static class QueryProfile {
+        long createNanos;
+        long executeNanos;
+        long queuedNanos = -1;
+        int pollCount;
+        long pollWaitNanos;
+        long fetchNanos;
+        long bytesReceived;
+        boolean cachedResult;
+
+        /**
+         * Write the breakdown in milliseconds into the given node
+         */
+        public ObjectNode writeTo(ObjectNode node) {
+            node.put("createMs", toMillis(createNanos));
+            node.put("executeMs", toMillis(executeNanos));
+            node.put("cachedResult", cachedResult);
+            node.put("queuedMs", toMillis(Math.max(queuedNanos, 0)));
+            node.put("pollCount", pollCount);
+            node.put("pollWaitMs", toMillis(pollWaitNanos));
+            node.put("fetchMs", toMillis(fetchNanos));
+            node.put("bytesReceived", bytesReceived);
+            return node;
+        }
+
+        static double toMillis(long nanos) {
+            return Math.round(nanos / 10_000.0) / 100.0;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.paytm.mcpserver.config.EsTierProperties.Tier;
+import com.paytm.mcpserver.enums.SearchLaneEnum;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Index catalog source listing indices through Redash
+ *
+ * Runs a size-0 terms aggregation on _index over the index wildcard, so only
+ * indices that exist and hold documents on the data source are returned.
+ */
+@Service
+@Log4j2
+@ConditionalOnProperty(name = "elasticsearch.index-catalog.source", havingValue = "redash", matchIfMissing = true)
+public class RedashIndexCatalogSource implements IndexCatalogSource {
+
+    private static final String AGGREGATION_NAME = "indices";
+
+    private final RedashClient redashClient;
+    private final ElasticSearchIndexFetcher indexFetcher;
+    private final RedashAdmissionController admission;
+    private final ObjectMapper objectMapper;
+
+    public RedashIndexCatalogSource(RedashClient redashClient, ElasticSearchIndexFetcher indexFetcher,
+                                    RedashAdmissionController admission, ObjectMapper objectMapper) {
+        this.redashClient = redashClient;
+        this.indexFetcher = indexFetcher;
+        this.admission = admission;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Set<String> fetchIndices(Tier tier, Integer dataSourceId) {
+        // Catalog queries take a Redash slot in the bulk lane, behind interactive searches
+        try (RedashAdmissionController.JobPermits permits = admission.acquireJobs(SearchLaneEnum.BULK, 1)) {
+            String rawResults = redashClient.runQuery(buildCatalogQuery(), dataSourceId,
+                    "MCP-IndexCatalog-" + tier.getDisplayName());
+
+            JsonNode rows = objectMapper.readTree(rawResults).path("query_result").path("data").path("rows");
+            Set<String> indices = new HashSet<>();
+            for (JsonNode row : rows) {
+                // Redash flattens the terms buckets into rows keyed by the aggregation name
+                JsonNode indexName = row.has(AGGREGATION_NAME) ? row.get(AGGREGATION_NAME) : row.get("key");
+                if (indexName != null && indexName.isTextual()) {
+                    indices.add(indexName.asText());
+                }
+            }
+            return indices;
+
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to list indices on data source " + dataSourceId + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Build the cat-indices style query: {"index": "payment-history-*", "size": 0, "aggs": {...}}
+     */
+    private String buildCatalogQuery() throws Exception {
+        ObjectNode query = objectMapper.createObjectNode();
+        query.put("index", indexFetcher.getIndexWildcard());
+        query.put("size", 0);
+        ObjectNode terms = query.putObject("aggs").putObject(AGGREGATION_NAME).putObject("terms");
+        terms.put("field", "_index");
+        terms.put("size", 10000);
+        return objectMapper.writeValueAsString(query);
+    }
+}
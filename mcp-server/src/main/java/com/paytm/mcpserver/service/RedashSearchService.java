@@ -1,91 +1,304 @@
 package com.paytm.mcpserver.service;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.paytm.mcpserver.enums.SearchLaneEnum;
+import com.paytm.mcpserver.enums.SearchStrategyEnum;
+import com.paytm.mcpserver.utility.JsonCodec;
+import com.paytm.mcpserver.utility.SortOrderUtility;
+import com.paytm.mcpserver.utility.ThreadUtility;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 @Service
 @Log4j2
 public class RedashSearchService {
     
-    @Value("${redash.base-url:http://10.84.84.143:5000}")
-    private String redashBaseUrl;
+    private static final String INDEX_AGGREGATION = "indices";
+    // Rows are returned newest first, rows without txnDate last
+    private static final Comparator<JsonNode> TXN_DATE_DESCENDING = Comparator.comparing(
+            (JsonNode row) -> row.has("txnDate") ? row.get("txnDate").asText() : "").reversed();
     
-    @Value("${redash.api-key}")
-    private String apiKey;
+    private final RedashClient redashClient;
+    // Only with redash.client.mode=reactive, Redash I/O of host searches then runs on its event loop
+    // and the rest of the pipeline (routing, result cache, parsing) on the bounded elastic scheduler
+    private final ReactiveRedashClient reactiveRedashClient;
+    private final DataSourceRouter dataSourceRouter;
+    private final ElasticsearchIndexCatalog indexCatalog;
+    private final RedashAdmissionController admission;
+    private final SearchLaneClassifier laneClassifier;
+    private final TermsQueryChunker termsChunker;
+    private final HistoricalResultCache resultCache;
+    private final SpillingRowMerger rowMerger;
+    private final McpMetrics metrics;
+    private final JsonCodec jsonCodec;
+    // Fan-out threads, their number is bounded by the Redash slots handed out by admission control
+    private final ExecutorService hostExecutor;
     
-    @Value("${redash.timeout:30000}")
-    private long redashTimeout;
-    
-    @Value("${redash.poll-interval:2000}")
-    private long redashPollInterval;
-    
-    @Value("${redash.max-poll-attempts:15}")
-    private int redashMaxPollAttempts;
-    
-    @Value("${redash.connection-timeout:5000}")
-    private int redashConnectionTimeout;
-    
-    @Value("${redash.read-timeout:30000}")
-    private int redashReadTimeout;
-    
-    @Value("${redash.max-concurrent-searches:5}")
-    private int redashMaxConcurrentSearches;
-    
-    private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    
-    public RedashSearchService(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    public RedashSearchService(RedashClient redashClient, @Nullable ReactiveRedashClient reactiveRedashClient,
+                               DataSourceRouter dataSourceRouter,
+                               ElasticsearchIndexCatalog indexCatalog, RedashAdmissionController admission,
+                               SearchLaneClassifier laneClassifier, TermsQueryChunker termsChunker,
+                               HistoricalResultCache resultCache, SpillingRowMerger rowMerger, McpMetrics metrics,
+                               JsonCodec jsonCodec, @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.redashClient = redashClient;
+        this.reactiveRedashClient = reactiveRedashClient;
+        this.dataSourceRouter = dataSourceRouter;
+        this.indexCatalog = indexCatalog;
+        this.admission = admission;
+        this.laneClassifier = laneClassifier;
+        this.termsChunker = termsChunker;
+        this.resultCache = resultCache;
+        this.rowMerger = rowMerger;
+        this.metrics = metrics;
+        this.jsonCodec = jsonCodec;
+        this.hostExecutor = ThreadUtility.newFanOutExecutor("redash-search-", virtualThreads);
     }
     
     /**
      * Execute search on multiple hosts and combine results
+     * With profile enabled the response carries a timing breakdown per host and for the merge
+     * The search is classified into a priority lane and a Redash slot is reserved per host in that lane,
+     * RejectedException is thrown when admission is refused. Hosts are then searched in parallel,
+     * each host running the pages the plan gives it (one query as given without a plan).
      */
-    public String executeMultiHostSearch(String esQuery, List<String> indices, List<HostInfo> hosts) {
-        log.info("Executing search on {} hosts with {} indices", hosts.size(), indices.size());
+    public SearchResult executeMultiHostSearch(String esQuery, List<String> indices, List<HostInfo> hosts, boolean profile,
+                                               SearchCostEstimator.SearchPlan plan) {
+        log.info("Executing search on {} hosts with {} indices ({})", hosts.size(), indices.size(),
+                plan == null ? SearchStrategyEnum.DIRECT : plan.strategy());
         
         try {
-            // 1. Build complete query with indices
-            String completeQuery = buildCompleteQuery(esQuery, indices);
-            log.debug("Built complete query: {}", completeQuery);
+            // 1. Parse the ES query once, the complete query is built per host from the indices it holds
+            long parseStart = System.nanoTime();
+            JsonNode queryNode = jsonCodec.readTree(esQuery);
+            ObjectNode searchProfile = null;
+            if (profile) {
+                searchProfile = jsonCodec.createObjectNode();
+                searchProfile.put("parseQueryMs", RedashClient.QueryProfile.toMillis(System.nanoTime() - parseStart));
+                if (plan != null) {
+                    searchProfile.put("strategy", plan.strategy().name());
+                    searchProfile.put("strategyReason", plan.reason());
+                }
+            }
+            
+            if (plan != null && plan.strategy() == SearchStrategyEnum.EMPTY) {
+                // The count probe found no rows, every host is reported as skipped
+                List<HostResult> skipped = hosts.stream()
+                        .map(host -> HostResult.skipped(host.hostName, 0))
+                        .toList();
+                return combineResults(skipped, searchProfile);
+            }
             
-            // 2. Execute search on all hosts
-            List<HostResult> hostResults = new ArrayList<>();
-            for (HostInfo host : hosts) {
-                HostResult result = searchOnHost(completeQuery, host);
-                hostResults.add(result);
+            // An oversized terms filter is searched in chunks, only for searches that are not paged already
+            List<JsonNode> chunks = plan == null || plan.pages().isEmpty() ? termsChunker.split(queryNode) : List.of();
+            if (profile && !chunks.isEmpty()) {
+                searchProfile.put("termsChunks", chunks.size());
             }
             
-            // 3. Combine results from all hosts
-            return combineResults(hostResults);
+            // 2. Wait for Redash slots in the search's lane
+            SearchLaneEnum lane = laneClassifier.classify(queryNode, indices.size(), hosts.size());
+            long admissionStart = System.nanoTime();
+            int jobs = hosts.size() * Math.max(1, chunks.size());
+            try (RedashAdmissionController.JobPermits permits = admission.acquireJobs(lane, jobs)) {
+                log.debug("Search admitted in lane {}", lane);
+                if (profile) {
+                    searchProfile.put("lane", lane.name());
+                    searchProfile.put("admissionMs", RedashClient.QueryProfile.toMillis(System.nanoTime() - admissionStart));
+                }
+                
+                // 3. Execute search on all hosts, each host hands its slot back as soon as it is done
+                List<HostResult> hostResults = chunks.isEmpty()
+                        ? onHosts(hosts, permits,
+                                host -> searchOnHost(queryNode, indices, host, profile, plan == null ? null : plan.pagesFor(host.hostName)))
+                        : searchChunksOnHosts(queryNode, chunks, indices, hosts, profile, permits);
+                
+                // 4. Combine results from all hosts
+                return combineResults(hostResults, searchProfile);
+            }
             
+        } catch (RedashAdmissionController.RejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Multi-host search failed", e);
-            return createErrorResponse("Multi-host search failed: " + e.getMessage());
+            return new SearchResult(createErrorResponse("Multi-host search failed: " + e.getMessage()), 0);
+        }
+    }
+    
+    /**
+     * Count the rows the query matches on every host, per requested index
+     * A size-0 probe with a terms aggregation on _index, run in the interactive lane
+     */
+    public List<HostCount> countOnHosts(JsonNode queryNode, List<String> indices, List<HostInfo> hosts) {
+        try (RedashAdmissionController.JobPermits permits = admission.acquireJobs(SearchLaneEnum.INTERACTIVE, hosts.size())) {
+            return onHosts(hosts, permits, host -> countOnHost(queryNode, indices, host));
+        }
+    }
+    
+    /**
+     * Run the call for every host concurrently, the results keep the order of the hosts
+     * Each host hands its slot back as soon as it is done. Reactive calls are all in flight at once while the
+     * calling thread waits; blocking calls run on the fan-out pool, a single host on the calling thread.
+     */
+    private <T> List<T> onHosts(List<HostInfo> hosts, RedashAdmissionController.JobPermits permits, Function<HostInfo, Mono<T>> call) {
+        if (reactiveRedashClient != null) {
+            return Flux.fromIterable(hosts)
+                    .flatMapSequential(host -> call.apply(host).doFinally(signal -> permits.release()))
+                    .collectList()
+                    .block();
+        }
+        if (hosts.size() == 1) {
+            try {
+                return List.of(call.apply(hosts.get(0)).block());
+            } finally {
+                permits.release();
+            }
+        }
+        
+        List<CompletableFuture<T>> calls = new ArrayList<>(hosts.size());
+        for (HostInfo host : hosts) {
+            calls.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return call.apply(host).block();
+                } finally {
+                    permits.release();
+                }
+            }, hostExecutor));
+        }
+        return calls.stream().map(CompletableFuture::join).toList();
+    }
+    
+    /**
+     * Search every chunk on every host, with as many concurrent jobs as slots were granted
+     * The chunk results of a host are merged with the sort of the query and truncated to its size
+     */
+    private List<HostResult> searchChunksOnHosts(JsonNode queryNode, List<JsonNode> chunks, List<String> indices,
+                                                 List<HostInfo> hosts, boolean profile,
+                                                 RedashAdmissionController.JobPermits permits) {
+        int tasks = hosts.size() * chunks.size();
+        int workers = Math.min(tasks, Math.max(1, permits.getHeld()));
+        HostResult[] results = new HostResult[tasks];
+        if (reactiveRedashClient != null) {
+            // As many chunk searches in flight as slots were granted
+            Flux.range(0, tasks)
+                    .flatMapSequential(task -> searchOnHost(chunks.get(task % chunks.size()), indices,
+                            hosts.get(task / chunks.size()), profile, null), workers)
+                    .index()
+                    .doOnNext(result -> results[result.getT1().intValue()] = result.getT2())
+                    .blockLast();
+            // Slots are handed back before the chunks are merged, as the blocking workers do
+            permits.close();
+        } else {
+            AtomicInteger next = new AtomicInteger();
+            Runnable worker = () -> {
+                try {
+                    for (int task = next.getAndIncrement(); task < tasks; task = next.getAndIncrement()) {
+                        HostInfo host = hosts.get(task / chunks.size());
+                        results[task] = searchOnHost(chunks.get(task % chunks.size()), indices, host, profile, null).block();
+                    }
+                } finally {
+                    permits.release();
+                }
+            };
+            
+            List<CompletableFuture<Void>> running = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                running.add(CompletableFuture.runAsync(worker, hostExecutor));
+            }
+            running.forEach(CompletableFuture::join);
+        }
+        
+        Comparator<JsonNode> order = SortOrderUtility.rowComparator(queryNode.get("sort"));
+        int size = queryNode.path("size").asInt(10);
+        List<HostResult> hostResults = new ArrayList<>(hosts.size());
+        for (int h = 0; h < hosts.size(); h++) {
+            hostResults.add(mergeChunks(hosts.get(h), List.of(results).subList(h * chunks.size(), (h + 1) * chunks.size()),
+                    order, size, profile));
+        }
+        return hostResults;
+    }
+    
+    /**
+     * Merge the chunk results of one host, the host fails when any of its chunks failed
+     */
+    private HostResult mergeChunks(HostInfo host, List<HostResult> chunkResults, Comparator<JsonNode> order, int size,
+                                   boolean profile) {
+        long executionTime = 0;
+        ObjectNode hostProfile = profile ? jsonCodec.createObjectNode() : null;
+        ArrayNode chunkProfiles = profile ? hostProfile.putArray("chunks") : null;
+        List<JsonNode> rows = new ArrayList<>();
+        String error = null;
+        for (HostResult chunk : chunkResults) {
+            executionTime = Math.max(executionTime, chunk.executionTime);
+            if (profile && chunk.profile != null) {
+                chunkProfiles.add(chunk.profile);
+            }
+            if (!chunk.isSuccess()) {
+                error = error == null ? chunk.error : error;
+                continue;
+            }
+            for (String rawPage : chunk.rawPages) {
+                convertRedashResultsToEsFormat(rawPage).path("rows").forEach(rows::add);
+            }
+        }
+        int dataSourceId = chunkResults.get(0).dataSourceId;
+        if (error == null && chunkResults.stream().allMatch(chunk -> chunk.skipped)) {
+            return HostResult.skipped(host.hostName, dataSourceId);
+        }
+        if (error != null) {
+            return new HostResult(host.hostName, dataSourceId, List.of(), error, executionTime, hostProfile);
         }
+        
+        // Every chunk is sorted already, a stable sort keeps ties in chunk order
+        rows.sort(order);
+        ArrayNode merged = jsonCodec.createArrayNode();
+        rows.stream().limit(size).forEach(merged::add);
+        return new HostResult(host.hostName, dataSourceId, merged, executionTime, hostProfile);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        hostExecutor.shutdownNow();
     }
     
     /**
      * Build complete query by combining ES query with indices
      */
-    private String buildCompleteQuery(String esQuery, List<String> indices) {
+    String buildCompleteQuery(JsonNode queryNode, List<String> indices) {
+        return buildCompleteQuery(queryNode, indices, null);
+    }
+    
+    /**
+     * Build complete query for one page, from and size of the page replace the requested size
+     */
+    String buildCompleteQuery(JsonNode queryNode, List<String> indices, Page page) {
         try {
-            JsonNode queryNode = objectMapper.readTree(esQuery);
-            ObjectNode completeQuery = objectMapper.createObjectNode();
+            ObjectNode completeQuery = jsonCodec.createObjectNode();
             
             // Add index
             completeQuery.put("index", String.join(",", indices));
@@ -94,12 +307,18 @@ public class RedashSearchService {
             if (queryNode.has("query")) {
                 completeQuery.set("query", queryNode.get("query"));
             }
-            if (queryNode.has("size")) {
+            if (page != null) {
+                completeQuery.put("from", page.from());
+                completeQuery.put("size", page.size());
+            } else if (queryNode.has("size")) {
                 completeQuery.set("size", queryNode.get("size"));
             }
             if (queryNode.has("sort")) {
                 completeQuery.set("sort", queryNode.get("sort"));
             }
+            if (queryNode.has("search_after") && page == null) {
+                completeQuery.set("search_after", queryNode.get("search_after"));
+            }
             if (queryNode.has("aggs")) {
                 completeQuery.set("aggs", queryNode.get("aggs"));
             }
@@ -107,7 +326,7 @@ public class RedashSearchService {
                 completeQuery.set("_source", queryNode.get("_source"));
             }
             
-            return objectMapper.writeValueAsString(completeQuery);
+            return jsonCodec.write(completeQuery);
             
         } catch (Exception e) {
             throw new RuntimeException("Failed to build complete query", e);
@@ -115,221 +334,265 @@ public class RedashSearchService {
     }
     
     /**
-     * Execute search on a single host and return ES format data
+     * Execute search on a single host and return the raw Redash bodies, one per page
+     * The data source is picked among the host replicas by the DataSourceRouter,
+     * indices that do not exist on that data source are pruned from the query
+     * Without pages the query runs once as given, pages run one after the other on the same data source
+     * Failures are returned as a failed HostResult, the Mono does not error
      */
-    private HostResult searchOnHost(String query, HostInfo host) {
-        long startTime = System.currentTimeMillis();
-        
-        try {
-            log.debug("Searching on host: {} with dataSourceId: {}", host.hostName, host.dataSourceId);
-            
-            // Create Redash query
-            Integer queryId = createRedashQuery(query, host.dataSourceId, host.hostName);
-            
-            // Execute and get raw results
-            String rawResults = executeRedashQuery(queryId);
-            
-            // Convert Redash results to ES format
-            Object esFormatResults = convertRedashResultsToEsFormat(rawResults);
-            
-            long executionTime = System.currentTimeMillis() - startTime;
-            log.debug("Search completed on {} in {}ms", host.hostName, executionTime);
-            
-            return new HostResult(host.hostName, esFormatResults, null, executionTime);
+    private Mono<HostResult> searchOnHost(JsonNode queryNode, List<String> indices, HostInfo host, boolean profile, List<Page> pages) {
+        return offEventLoop(Mono.defer(() -> {
+            int dataSourceId = dataSourceRouter.acquire(host.dataSourceIds);
+            List<String> hostIndices = indexCatalog.retainExisting(dataSourceId, indices);
+            if (hostIndices.isEmpty() || (pages != null && pages.isEmpty())) {
+                log.debug("Skipping {}: none of {} exist on data source {} or hold matching rows", host.hostName, indices, dataSourceId);
+                dataSourceRouter.cancel(dataSourceId);
+                metrics.recordHostSearch(host.hostName, dataSourceId, "skipped", 0);
+                return Mono.just(HostResult.skipped(host.hostName, dataSourceId));
+            }
             
-        } catch (Exception e) {
-            long executionTime = System.currentTimeMillis() - startTime;
-            log.error("Search failed on {} after {}ms", host.hostName, executionTime, e);
-            return new HostResult(host.hostName, null, e.getMessage(), executionTime);
-        }
+            long startTime = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
+            // error until the host succeeded, cached when Redash was not used
+            AtomicReference<String> outcome = new AtomicReference<>("error");
+            ObjectNode hostProfile = profile ? jsonCodec.createObjectNode() : null;
+            boolean cacheable = host.immutable && resultCache.isEnabled();
+            List<String> queries = new ArrayList<>(pages == null ? 1 : pages.size());
+            List<String> rawPages = new ArrayList<>(pages == null ? 1 : pages.size());
+            // One breakdown per query, null for pages served from the cache
+            RedashClient.QueryProfile[] queryProfiles = new RedashClient.QueryProfile[pages == null ? 1 : pages.size()];
+            
+            return Mono.fromCallable(() -> {
+                        log.debug("Searching on host: {} with dataSourceId: {}", host.hostName, dataSourceId);
+                        if (pages == null) {
+                            queries.add(buildCompleteQuery(queryNode, hostIndices));
+                        } else {
+                            for (Page page : pages) {
+                                queries.add(buildCompleteQuery(queryNode, page.indices() == null ? hostIndices : page.indices(), page));
+                            }
+                        }
+                        log.debug("Built {} queries for {}: {}", queries.size(), host.hostName, queries.get(0));
+                        
+                        // Pages of an immutable tier already fetched once are read from the disk cache
+                        int cacheHits = 0;
+                        for (String query : queries) {
+                            String cached = cacheable ? resultCache.get(query, dataSourceId) : null;
+                            if (cacheable) {
+                                metrics.recordCacheLookup("historical-results", cached != null);
+                            }
+                            if (cached != null) {
+                                cacheHits++;
+                            }
+                            rawPages.add(cached);
+                        }
+                        if (profile) {
+                            hostProfile.put("buildQueryMs", RedashClient.QueryProfile.toMillis(System.nanoTime() - startNanos));
+                            hostProfile.put("pages", queries.size());
+                            if (cacheable) {
+                                hostProfile.put("cachedPages", cacheHits);
+                            }
+                        }
+                        return cacheHits;
+                    })
+                    .flatMap(cacheHits -> {
+                        if (cacheHits == queries.size()) {
+                            log.debug("Served {} from the result cache", host.hostName);
+                            outcome.set("cached");
+                            return Mono.just(new HostResult(host.hostName, dataSourceId, rawPages, null,
+                                    System.currentTimeMillis() - startTime, hostProfile));
+                        }
+                        
+                        // Create Redash queries, execute them and get raw results, they are parsed once when merging
+                        return Flux.range(0, queries.size())
+                                .filter(i -> rawPages.get(i) == null)
+                                .concatMap(i -> runQuery(queries.get(i), dataSourceId, "MCP-Search-" + host.hostName,
+                                        queryProfiles[i] = profile ? new RedashClient.QueryProfile() : null)
+                                        .doOnNext(rawResults -> {
+                                            if (cacheable) {
+                                                resultCache.put(queries.get(i), dataSourceId, rawResults);
+                                            }
+                                            rawPages.set(i, rawResults);
+                                        }))
+                                .then(Mono.fromCallable(() -> {
+                                    if (profile) {
+                                        writeQueryProfiles(hostProfile, queryProfiles, rawPages);
+                                    }
+                                    long executionTime = System.currentTimeMillis() - startTime;
+                                    log.debug("Search completed on {} in {}ms", host.hostName, executionTime);
+                                    outcome.set("success");
+                                    return new HostResult(host.hostName, dataSourceId, rawPages, null, executionTime, hostProfile);
+                                }));
+                    })
+                    .onErrorResume(e -> {
+                        long executionTime = System.currentTimeMillis() - startTime;
+                        log.error("Search failed on {} after {}ms", host.hostName, executionTime, e);
+                        if (profile) {
+                            writeQueryProfiles(hostProfile, queryProfiles, rawPages);
+                        }
+                        return Mono.just(new HostResult(host.hostName, dataSourceId, List.of(), e.getMessage(), executionTime, hostProfile));
+                    })
+                    .doFinally(signal -> {
+                        if ("cached".equals(outcome.get())) {
+                            // Redash was not used, the data source keeps its latency and health stats
+                            dataSourceRouter.cancel(dataSourceId);
+                        } else {
+                            dataSourceRouter.release(dataSourceId, System.currentTimeMillis() - startTime, "success".equals(outcome.get()));
+                        }
+                        metrics.recordHostSearch(host.hostName, dataSourceId, outcome.get(), System.nanoTime() - startNanos);
+                    });
+        }));
     }
     
     /**
-     * Convert Redash wrapper to ES format data
+     * Timing breakdown of the host's Redash queries: inline for a single query, as pageProfiles with one
+     * entry per page otherwise (cached for pages read from the result cache, skipped for pages not run)
      */
-    private Object convertRedashResultsToEsFormat(String rawResults) {
-        try {
-            JsonNode redashResults = objectMapper.readTree(rawResults);
-            
-            // Extract the actual ES response from Redash wrapper
-            JsonNode queryResultNode = redashResults.get("query_result");
-            if (queryResultNode != null && queryResultNode.has("data")) {
-                JsonNode dataNode = queryResultNode.get("data");
-                return dataNode;
+    private static void writeQueryProfiles(ObjectNode hostProfile, RedashClient.QueryProfile[] queryProfiles,
+                                           List<String> rawPages) {
+        if (queryProfiles.length == 1) {
+            if (queryProfiles[0] != null) {
+                queryProfiles[0].writeTo(hostProfile);
+            }
+            return;
+        }
+        ArrayNode pageProfiles = hostProfile.putArray("pageProfiles");
+        for (int i = 0; i < queryProfiles.length; i++) {
+            ObjectNode pageProfile = pageProfiles.addObject();
+            if (queryProfiles[i] != null) {
+                queryProfiles[i].writeTo(pageProfile);
+            } else {
+                pageProfile.put(i < rawPages.size() && rawPages.get(i) != null ? "cached" : "skipped", true);
             }
-            
-            // Fallback to original if structure is different
-            return redashResults;
-            
-        } catch (Exception e) {
-            log.warn("Failed to convert Redash results to ES format", e);
-            return rawResults; // Return raw string if parsing fails
         }
     }
     
     /**
-     * Create query in Redash
+     * Run one Redash query, on the event loop in reactive mode, else on the subscribing thread
+     * In reactive mode the response is handed off the event loop, what follows parses it and writes the result cache
      */
-    private Integer createRedashQuery(String query, Integer dataSourceId, String hostName) {
-        try {
-            String url = redashBaseUrl + "/api/queries";
-            
-            Map<String, Object> requestBody = Map.of(
-                "query", query,
-                "data_source_id", dataSourceId,
-                "name", "MCP-Search-" + hostName + "-" + System.currentTimeMillis()
-            );
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", "Key " + apiKey);
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-            
-            @SuppressWarnings("rawtypes")
-            ResponseEntity<Map> response = restTemplate.postForEntity(url, entity, Map.class);
-            
-            @SuppressWarnings("unchecked")
-            Map<String, Object> responseBody = response.getBody();
-            if (responseBody != null && responseBody.containsKey("id")) {
-                Integer queryId = (Integer) responseBody.get("id");
-                log.debug("Created Redash query with ID: {} for host: {}", queryId, hostName);
-                return queryId;
-            }
-            
-            throw new RuntimeException("Failed to create Redash query");
-            
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to create Redash query for " + hostName, e);
+    private Mono<String> runQuery(String query, int dataSourceId, String queryName, RedashClient.QueryProfile queryProfile) {
+        if (reactiveRedashClient != null) {
+            return reactiveRedashClient.runQuery(query, dataSourceId, queryName, queryProfile)
+                    .publishOn(Schedulers.boundedElastic());
         }
+        return Mono.fromCallable(() -> redashClient.runQuery(query, dataSourceId, queryName, queryProfile));
     }
     
     /**
-     * Execute Redash query and get results
+     * Count the rows matching the query on a single host, per requested index
+     * Redash flattens the _index buckets into rows, concrete index names are summed into the
+     * requested (wildcard) index they start with
      */
-    private String executeRedashQuery(Integer queryId) {
-        try {
-            // Step 1: Trigger query execution
-            String executeUrl = redashBaseUrl + "/api/queries/" + queryId + "/results";
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", "Key " + apiKey);
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            
-            HttpEntity<Void> entity = new HttpEntity<>(headers);
-            ResponseEntity<String> executeResponse = restTemplate.postForEntity(executeUrl, entity, String.class);
-            
-            if (executeResponse.getBody() == null) {
-                throw new RuntimeException("Empty response from query execution");
+    private Mono<HostCount> countOnHost(JsonNode queryNode, List<String> indices, HostInfo host) {
+        return offEventLoop(Mono.defer(() -> {
+            int dataSourceId = dataSourceRouter.acquire(host.dataSourceIds);
+            Map<String, Long> counts = new LinkedHashMap<>();
+            indices.forEach(index -> counts.put(index, 0L));
+            List<String> hostIndices = indexCatalog.retainExisting(dataSourceId, indices);
+            if (hostIndices.isEmpty()) {
+                dataSourceRouter.cancel(dataSourceId);
+                return Mono.just(new HostCount(host.hostName, dataSourceId, counts, null, true));
             }
             
-            // Step 2: Parse response - could be job or cached results
-            JsonNode response = objectMapper.readTree(executeResponse.getBody());
-            log.debug("Query execution response: {}", response);
-            
-            // Check if response has "job" (async) or "query_result" (cached)
-            if (response.has("job")) {
-                // Async execution - need to poll
-                String jobId = response.get("job").get("id").asText();
-                log.debug("Query execution started with job ID: {}", jobId);
-                
-                // Step 3: Poll for job completion
-                Integer queryResultId = pollForJobCompletion(jobId);
-                
-                // Step 4: Fetch actual results
-                String resultsUrl = redashBaseUrl + "/api/query_results/" + queryResultId;
-                ResponseEntity<String> resultsResponse = restTemplate.exchange(
-                    resultsUrl, 
-                    org.springframework.http.HttpMethod.GET, 
-                    entity, 
-                    String.class
-                );
-                
-                if (resultsResponse.getBody() != null) {
-                    log.debug("Successfully retrieved results for query result ID: {}", queryResultId);
-                    return resultsResponse.getBody();
-                }
-                
-                throw new RuntimeException("Empty response from Redash results fetch");
-                
-            } else if (response.has("query_result")) {
-                // Cached results - return immediately
-                log.debug("Query returned cached results");
-                return executeResponse.getBody();
-                
-            } else {
-                // Unexpected response format
-                log.error("Unexpected Redash response format: {}", response);
-                throw new RuntimeException("Unexpected response format from Redash: " + response);
+            AtomicReference<Boolean> success = new AtomicReference<>(false);
+            return Mono.fromCallable(() -> {
+                        ObjectNode countQuery = jsonCodec.createObjectNode();
+                        countQuery.put("index", String.join(",", hostIndices));
+                        if (queryNode.has("query")) {
+                            countQuery.set("query", queryNode.get("query"));
+                        }
+                        countQuery.put("size", 0);
+                        ObjectNode terms = countQuery.putObject("aggs").putObject(INDEX_AGGREGATION).putObject("terms");
+                        terms.put("field", "_index");
+                        terms.put("size", 10000);
+                        return jsonCodec.write(countQuery);
+                    })
+                    .flatMap(countQuery -> runQuery(countQuery, dataSourceId, "MCP-Count-" + host.hostName, null))
+                    .map(rawResults -> {
+                        for (JsonNode row : convertRedashResultsToEsFormat(rawResults).path("rows")) {
+                            JsonNode indexName = row.has(INDEX_AGGREGATION) ? row.get(INDEX_AGGREGATION) : row.get("key");
+                            String requested = indexName == null ? null : requestedIndex(indexName.asText(), hostIndices);
+                            if (requested != null) {
+                                counts.merge(requested, row.path("doc_count").asLong(), Long::sum);
+                            }
+                        }
+                        success.set(true);
+                        return new HostCount(host.hostName, dataSourceId, counts, null, false);
+                    })
+                    .onErrorResume(e -> {
+                        log.warn("Count failed on {}: {}", host.hostName, e.getMessage());
+                        return Mono.just(new HostCount(host.hostName, dataSourceId, Map.of(), e.getMessage(), false));
+                    })
+                    .doFinally(signal -> dataSourceRouter.releaseProbe(dataSourceId, success.get()));
+        }));
+    }
+    
+    /**
+     * In reactive mode a host call starts on the bounded elastic scheduler, never on the event loop: routing,
+     * the index catalog and the result cache block, and the next chunk is subscribed when the previous one completes
+     */
+    private <T> Mono<T> offEventLoop(Mono<T> call) {
+        return reactiveRedashClient == null ? call : call.subscribeOn(Schedulers.boundedElastic());
+    }
+    
+    /**
+     * The requested index a concrete index belongs to, e.g. payment-history-01-2025-v2 to payment-history-01-2025*
+     */
+    private static String requestedIndex(String concreteIndex, List<String> requested) {
+        for (String index : requested) {
+            boolean wildcard = index.endsWith("*");
+            String prefix = wildcard ? index.substring(0, index.length() - 1) : index;
+            if (wildcard ? concreteIndex.startsWith(prefix) : concreteIndex.equals(prefix)) {
+                return index;
             }
-            
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to execute Redash query", e);
         }
+        return null;
     }
     
     /**
-     * Poll Redash job until completion
+     * Convert Redash wrapper to ES format data
      */
-    private Integer pollForJobCompletion(String jobId) {
-        String jobUrl = redashBaseUrl + "/api/jobs/" + jobId;
-        
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Authorization", "Key " + apiKey);
-        HttpEntity<Void> entity = new HttpEntity<>(headers);
-        
-        int attempts = 0;
-        while (attempts < redashMaxPollAttempts) {
-            try {
-                ResponseEntity<String> jobResponse = restTemplate.exchange(
-                    jobUrl, 
-                    org.springframework.http.HttpMethod.GET, 
-                    entity, 
-                    String.class
-                );
-                
-                JsonNode jobStatus = objectMapper.readTree(jobResponse.getBody());
-                int status = jobStatus.get("job").get("status").asInt();
-                
-                // Status 3 = success
-                if (status == 3) {
-                    Integer queryResultId = jobStatus.get("job").get("query_result_id").asInt();
-                    log.debug("Job {} completed successfully with result ID: {}", jobId, queryResultId);
-                    return queryResultId;
-                }
-                
-                // Status 4 = failure
-                if (status == 4) {
-                    String error = jobStatus.get("job").get("error").asText();
-                    throw new RuntimeException("Redash job failed: " + error);
-                }
-                
-                // Still processing (status 1 or 2), wait and retry
-                Thread.sleep(redashPollInterval);
-                attempts++;
-                
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new RuntimeException("Job polling interrupted", e);
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to poll job status", e);
+    private JsonNode convertRedashResultsToEsFormat(String rawResults) {
+        if (rawResults == null) {
+            return jsonCodec.createObjectNode();
+        }
+        try {
+            JsonNode redashResults = jsonCodec.readTree(rawResults);
+            
+            // Extract the actual ES response from Redash wrapper
+            JsonNode queryResultNode = redashResults.get("query_result");
+            if (queryResultNode != null && queryResultNode.has("data")) {
+                JsonNode dataNode = queryResultNode.get("data");
+                return dataNode;
             }
+            
+            // Fallback to original if structure is different
+            return redashResults;
+            
+        } catch (Exception e) {
+            log.warn("Failed to convert Redash results to ES format", e);
+            return jsonCodec.createObjectNode(); // No rows if parsing fails
         }
-        
-        throw new RuntimeException("Job polling timeout after " + attempts + " attempts");
     }
     
     /**
      * Combine ES format results from all hosts
+     * With merge dedupe enabled a row already returned by an earlier host is dropped and counted in metadata
+     * When a search profile is given, merge and serialization timings are added to it and it is returned with the response
      */
-    private String combineResults(List<HostResult> hostResults) {
-        try {
-            ObjectNode combinedResponse = objectMapper.createObjectNode();
-            ArrayNode allRows = objectMapper.createArrayNode();
-            ArrayNode hostSummary = objectMapper.createArrayNode();
+    SearchResult combineResults(List<HostResult> hostResults, ObjectNode searchProfile) {
+        long mergeStart = System.nanoTime();
+        // Rows of a single host already in txnDate order are copied as raw JSON instead of being parsed and re-sorted,
+        // other rows go through a merge that spills to disk past its heap budget
+        PassthroughRows passthrough = passthroughRows(hostResults);
+        try (SpillingRowMerger.Merge merge = passthrough == null ? rowMerger.open(TXN_DATE_DESCENDING) : null) {
+            ObjectNode combinedResponse = jsonCodec.createObjectNode();
+            ArrayNode hostSummary = jsonCodec.createArrayNode();
             
             int totalRows = 0;
+            int duplicateRows = 0;
             int successfulHosts = 0;
+            int skippedHosts = 0;
             List<String> errors = new ArrayList<>();
             long totalExecutionTime = 0;
             
@@ -337,38 +600,68 @@ public class RedashSearchService {
             for (HostResult hostResult : hostResults) {
                 totalExecutionTime += hostResult.executionTime;
                 
-                ObjectNode hostInfo = objectMapper.createObjectNode();
+                ObjectNode hostInfo = jsonCodec.createObjectNode();
                 hostInfo.put("host", hostResult.hostName);
+                hostInfo.put("dataSourceId", hostResult.dataSourceId);
                 hostInfo.put("executionTimeMs", hostResult.executionTime);
+                if (hostResult.profile != null) {
+                    hostInfo.set("profile", hostResult.profile);
+                }
                 
                 if (!hostResult.isSuccess()) {
                     // Host failed
                     hostInfo.put("status", "error");
                     hostInfo.put("error", hostResult.error);
                     errors.add(hostResult.hostName + ": " + hostResult.error);
+                } else if (hostResult.skipped) {
+                    // Not searched: none of the indices exist there, or the count probe found no rows
+                    skippedHosts++;
+                    hostInfo.put("status", "skipped");
+                } else if (passthrough != null && passthrough.host == hostResult) {
+                    totalRows += passthrough.rowCount;
+                    successfulHosts++;
+                    hostInfo.put("status", "success");
+                    hostInfo.put("rowCount", passthrough.rowCount);
                 } else {
-                    // Host succeeded - extract rows from ES data
+                    // Host succeeded - parse its rows, they are owned by this merge and tagged in place
                     try {
-                        JsonNode esData = objectMapper.valueToTree(hostResult.results);
-                        JsonNode rows = esData.get("rows");
-                        
-                        if (rows != null && rows.isArray()) {
-                            int hostRowCount = 0;
-                            for (JsonNode row : rows) {
-                                ObjectNode rowWithHost = (ObjectNode) row.deepCopy();
-                                rowWithHost.put("_source_host", hostResult.hostName);
-                                allRows.add(rowWithHost);
-                                hostRowCount++;
+                        long parseStart = System.nanoTime();
+                        int hostRowCount = 0;
+                        int hostDuplicateCount = 0;
+                        merge.nextHost();
+                        List<JsonNode> pages = new ArrayList<>();
+                        if (hostResult.rows != null) {
+                            pages.add(jsonCodec.createObjectNode().set("rows", hostResult.rows));
+                        }
+                        for (String rawPage : hostResult.rawPages) {
+                            pages.add(convertRedashResultsToEsFormat(rawPage));
+                        }
+                        for (JsonNode page : pages) {
+                            JsonNode rows = page.get("rows");
+                            if (rows != null && rows.isArray()) {
+                                for (JsonNode row : rows) {
+                                    ObjectNode rowWithHost = (ObjectNode) row;
+                                    rowWithHost.put("_source_host", hostResult.hostName);
+                                    if (merge.add(rowWithHost)) {
+                                        hostRowCount++;
+                                    } else {
+                                        hostDuplicateCount++;
+                                    }
+                                }
                             }
-                            
-                            totalRows += hostRowCount;
-                            successfulHosts++;
-                            hostInfo.put("status", "success");
-                            hostInfo.put("rowCount", hostRowCount);
-                        } else {
-                            hostInfo.put("status", "success");
-                            hostInfo.put("rowCount", 0);
-                            successfulHosts++;
+                        }
+                        
+                        totalRows += hostRowCount;
+                        duplicateRows += hostDuplicateCount;
+                        successfulHosts++;
+                        hostInfo.put("status", "success");
+                        hostInfo.put("rowCount", hostRowCount);
+                        if (hostDuplicateCount > 0) {
+                            // Rows already returned by a host listed before this one
+                            hostInfo.put("duplicateCount", hostDuplicateCount);
+                        }
+                        if (hostResult.profile != null) {
+                            hostResult.profile.put("parseMs", RedashClient.QueryProfile.toMillis(System.nanoTime() - parseStart));
                         }
                     } catch (Exception e) {
                         hostInfo.put("status", "error");
@@ -380,22 +673,39 @@ public class RedashSearchService {
                 hostSummary.add(hostInfo);
             }
             
-            // Sort results by txnDate (descending)
-            sortResultsByDate(allRows);
-            
             // Build final response in ES format
-            ObjectNode dataNode = objectMapper.createObjectNode();
-            dataNode.set("rows", allRows);
-            dataNode.put("columns", extractColumnNames(allRows));
+            ObjectNode dataNode = jsonCodec.createObjectNode();
+            int returnedRows = totalRows;
+            SpillingRowMerger.MergedRows merged = null;
+            if (passthrough != null) {
+                dataNode.putRawValue("rows", new RawValue(passthrough.rowsJson));
+                dataNode.put("columns", passthrough.columns);
+            } else {
+                // Sorted by txnDate (descending) and cut at max-response-bytes
+                merged = merge.finish();
+                returnedRows = merged.returnedRows();
+                dataNode.putRawValue("rows", new RawValue(merged.rowsJson()));
+                dataNode.put("columns", merged.columns());
+            }
             
-            ObjectNode queryResultNode = objectMapper.createObjectNode();
+            ObjectNode queryResultNode = jsonCodec.createObjectNode();
             queryResultNode.set("data", dataNode);
             queryResultNode.put("runtime", totalExecutionTime / 1000.0); // Convert to seconds
             
             // Add metadata
-            ObjectNode metadata = objectMapper.createObjectNode();
+            ObjectNode metadata = jsonCodec.createObjectNode();
             metadata.put("total_rows", totalRows);
+            metadata.put("returned_rows", returnedRows);
+            metadata.put("truncated", returnedRows < totalRows);
+            if (returnedRows < totalRows) {
+                metadata.put("truncation_reason", "Response limited to " + rowMerger.getMaxResponseBytes()
+                        + " bytes of rows, " + (totalRows - returnedRows) + " rows left out");
+            }
+            if (rowMerger.isDedupeEnabled()) {
+                metadata.put("duplicates_removed", duplicateRows);
+            }
             metadata.put("successful_hosts", successfulHosts);
+            metadata.put("skipped_hosts", skippedHosts);
             metadata.put("total_hosts", hostResults.size());
             metadata.put("execution_time_ms", totalExecutionTime);
             metadata.put("search_type", hostResults.size() > 1 ? "multi_host" : "single_host");
@@ -405,62 +715,184 @@ public class RedashSearchService {
             combinedResponse.set("metadata", metadata);
             
             if (!errors.isEmpty()) {
-                ArrayNode errorArray = objectMapper.createArrayNode();
+                ArrayNode errorArray = jsonCodec.createArrayNode();
                 errors.forEach(errorArray::add);
                 combinedResponse.set("errors", errorArray);
             }
             
-            return objectMapper.writeValueAsString(combinedResponse);
+            long mergeNanos = System.nanoTime() - mergeStart;
+            metrics.recordPhase(McpMetrics.PHASE_MERGE, mergeNanos);
+            
+            if (searchProfile != null) {
+                // Serialize the rows on their own so the time spent on them can be reported in the same response
+                long serializeStart = System.nanoTime();
+                String queryResultJson = jsonCodec.write(queryResultNode);
+                combinedResponse.putRawValue("query_result", new RawValue(queryResultJson));
+                searchProfile.put("mergeMs", RedashClient.QueryProfile.toMillis(mergeNanos));
+                searchProfile.put("rowsPassthrough", passthrough != null);
+                searchProfile.put("serializeMs", RedashClient.QueryProfile.toMillis(System.nanoTime() - serializeStart));
+                searchProfile.put("responseRows", returnedRows);
+                if (merged != null) {
+                    searchProfile.put("spilledRuns", merged.spilledRuns());
+                    searchProfile.put("spilledBytes", merged.spilledBytes());
+                }
+                combinedResponse.set("profile", searchProfile);
+            }
+            
+            return new SearchResult(jsonCodec.write(combinedResponse), successfulHosts);
             
         } catch (Exception e) {
             throw new RuntimeException("Failed to combine results", e);
         }
     }
     
+    /**
+     * Rows of the only host that returned a body, copied with a streaming parser
+     * Null when several hosts or pages returned rows or the body cannot be passed through as is
+     */
+    private PassthroughRows passthroughRows(List<HostResult> hostResults) {
+        HostResult candidate = null;
+        for (HostResult hostResult : hostResults) {
+            if (hostResult.rows != null) {
+                return null;
+            }
+            if (hostResult.isSuccess() && !hostResult.rawPages.isEmpty()) {
+                if (candidate != null || hostResult.rawPages.size() > 1) {
+                    return null;
+                }
+                candidate = hostResult;
+            }
+        }
+        if (candidate == null) {
+            return null;
+        }
+        
+        long copyStart = System.nanoTime();
+        try {
+            PassthroughRows rows = copyRows(candidate);
+            long maxBytes = rowMerger.getMaxResponseBytes();
+            if (rows != null && rows.rowsJson.length() > maxBytes / 3
+                    && rows.rowsJson.getBytes(StandardCharsets.UTF_8).length > maxBytes) {
+                // Too large to return as is, the merge truncates it
+                return null;
+            }
+            if (rows != null && candidate.profile != null) {
+                candidate.profile.put("parseMs", RedashClient.QueryProfile.toMillis(System.nanoTime() - copyStart));
+            }
+            return rows;
+        } catch (IOException e) {
+            log.debug("Redash rows of {} cannot be passed through: {}", candidate.hostName, e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Copy query_result.data.rows of a Redash body into a JSON array with _source_host appended to every row
+     * Gives up (null) as soon as the body has an unexpected shape or a row is out of txnDate order,
+     * so that the output is the same the tree merge would produce
+     */
+    private PassthroughRows copyRows(HostResult hostResult) throws IOException {
+        JsonFactory factory = jsonCodec.getFactory();
+        String rawResults = hostResult.rawPages.get(0);
+        StringWriter rowsJson = new StringWriter(rawResults.length());
+        try (JsonParser parser = factory.createParser(rawResults);
+             JsonGenerator generator = factory.createGenerator(rowsJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT
+                    || !moveToField(parser, "query_result", JsonToken.START_OBJECT)
+                    || !moveToField(parser, "data", JsonToken.START_OBJECT)
+                    || !moveToField(parser, "rows", JsonToken.START_ARRAY)) {
+                return null;
+            }
+            
+            String columns = "No columns";
+            String previousDate = null;
+            int rowCount = 0;
+            generator.writeStartArray();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                List<String> fields = rowCount == 0 ? new ArrayList<>() : null;
+                String txnDate = "";
+                generator.writeStartObject();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if ("_source_host".equals(field)) {
+                        return null;
+                    }
+                    if ("txnDate".equals(field)) {
+                        // Same key as sortResultsByDate (JsonNode.asText), other value types go through the tree merge
+                        if (value == JsonToken.VALUE_STRING) {
+                            txnDate = parser.getText();
+                        } else if (value == JsonToken.VALUE_NULL) {
+                            txnDate = "null";
+                        } else {
+                            return null;
+                        }
+                    }
+                    generator.writeFieldName(field);
+                    generator.copyCurrentStructure(parser);
+                    if (fields != null) {
+                        fields.add(field);
+                    }
+                }
+                if (previousDate != null && txnDate.compareTo(previousDate) > 0) {
+                    return null;
+                }
+                previousDate = txnDate;
+                generator.writeStringField("_source_host", hostResult.hostName);
+                generator.writeEndObject();
+                if (fields != null) {
+                    fields.add("_source_host");
+                    columns = String.join(",", fields);
+                }
+                rowCount++;
+            }
+            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                return null;
+            }
+            generator.writeEndArray();
+            generator.flush();
+            return new PassthroughRows(hostResult, rowsJson.toString(), columns, rowCount);
+        }
+    }
+    
+    /**
+     * Advance the parser to the value of the given field of the current object
+     */
+    private static boolean moveToField(JsonParser parser, String name, JsonToken expected) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (name.equals(field)) {
+                return value == expected;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+    
     /**
      * Sort results by transaction date (descending)
      */
-    private void sortResultsByDate(ArrayNode allRows) {
+    void sortResultsByDate(ArrayNode allRows) {
         List<JsonNode> sortedRows = new ArrayList<>();
         allRows.forEach(sortedRows::add);
         
-        sortedRows.sort((a, b) -> {
-            try {
-                String dateA = a.has("txnDate") ? a.get("txnDate").asText() : "";
-                String dateB = b.has("txnDate") ? b.get("txnDate").asText() : "";
-                return dateB.compareTo(dateA); // Descending
-            } catch (Exception e) {
-                return 0;
-            }
-        });
+        sortedRows.sort(TXN_DATE_DESCENDING);
         
         allRows.removeAll();
         sortedRows.forEach(allRows::add);
     }
     
-    /**
-     * Extract column names from results
-     */
-    private String extractColumnNames(ArrayNode rows) {
-        if (rows.size() > 0) {
-            JsonNode firstRow = rows.get(0);
-            List<String> columns = new ArrayList<>();
-            firstRow.fieldNames().forEachRemaining(columns::add);
-            return String.join(",", columns);
-        }
-        return "No columns";
-    }
-    
     /**
      * Create error response
      */
     private String createErrorResponse(String message) {
         try {
-            ObjectNode errorResponse = objectMapper.createObjectNode();
+            ObjectNode errorResponse = jsonCodec.createObjectNode();
             errorResponse.put("error", message);
             errorResponse.put("status", "error");
             errorResponse.put("timestamp", System.currentTimeMillis());
-            return objectMapper.writeValueAsString(errorResponse);
+            return jsonCodec.write(errorResponse);
         } catch (Exception e) {
             return "{\"error\":\"Failed to create error response\",\"status\":\"error\"}";
         }
@@ -469,25 +901,91 @@ public class RedashSearchService {
     // Helper classes
     public static class HostInfo {
         public final String hostName;
-        public final Integer dataSourceId;
+        public final List<Integer> dataSourceIds;  // Equivalent replicas serving this host
+        public final boolean immutable;  // Results can be served from the disk result cache
         
-        public HostInfo(String hostName, Integer dataSourceId) {
+        public HostInfo(String hostName, List<Integer> dataSourceIds) {
+            this(hostName, dataSourceIds, false);
+        }
+        
+        public HostInfo(String hostName, List<Integer> dataSourceIds, boolean immutable) {
             this.hostName = hostName;
-            this.dataSourceId = dataSourceId;
+            this.dataSourceIds = dataSourceIds;
+            this.immutable = immutable;
         }
     }
     
-    private static class HostResult {
+    /**
+     * es_search response and the number of hosts it got rows from
+     */
+    public record SearchResult(String json, int successfulHosts) {}
+    
+    /**
+     * One query of a paged search: from/size over the given indices (all indices of the host when null)
+     */
+    public record Page(List<String> indices, int from, int size) {}
+    
+    /**
+     * Rows matched per requested index on a host, error is set when the count failed
+     * Skipped when none of the indices exist on the host, the counts are then all zero
+     */
+    public record HostCount(String hostName, int dataSourceId, Map<String, Long> counts, String error, boolean skipped) {
+        
+        public long total() {
+            return counts.values().stream().mapToLong(Long::longValue).sum();
+        }
+        
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+    
+    static class HostResult {
         public final String hostName;
-        public final Object results;  // Direct ES data object
+        public final int dataSourceId;
+        public final List<String> rawPages;  // Redash response bodies, one per page, empty when the host was skipped or failed
+        public final ArrayNode rows;  // Rows already merged from terms chunks, null otherwise
         public final String error;
         public final long executionTime;
+        public final ObjectNode profile;  // Timing breakdown, only when profiling
+        public final boolean skipped;  // Not searched, no index or no matching rows on the host
 
-        public HostResult(String hostName, Object results, String error, long executionTime) {
+        public HostResult(String hostName, int dataSourceId, List<String> rawPages, String error, long executionTime,
+                          ObjectNode profile) {
             this.hostName = hostName;
-            this.results = results;
+            this.dataSourceId = dataSourceId;
+            this.rawPages = rawPages;
+            this.rows = null;
             this.error = error;
             this.executionTime = executionTime;
+            this.profile = profile;
+            this.skipped = false;
+        }
+
+        private HostResult(String hostName, int dataSourceId) {
+            this.hostName = hostName;
+            this.dataSourceId = dataSourceId;
+            this.rawPages = List.of();
+            this.rows = null;
+            this.error = null;
+            this.executionTime = 0;
+            this.profile = null;
+            this.skipped = true;
+        }
+
+        public static HostResult skipped(String hostName, int dataSourceId) {
+            return new HostResult(hostName, dataSourceId);
+        }
+
+        public HostResult(String hostName, int dataSourceId, ArrayNode rows, long executionTime, ObjectNode profile) {
+            this.hostName = hostName;
+            this.dataSourceId = dataSourceId;
+            this.rawPages = List.of();
+            this.rows = rows;
+            this.error = null;
+            this.executionTime = executionTime;
+            this.profile = profile;
+            this.skipped = false;
         }
         
         public boolean isSuccess() {
@@ -495,4 +993,6 @@ public class RedashSearchService {
         }
         
     }
-}
\ No newline at end of file
+    
+    private record PassthroughRows(HostResult host, String rowsJson, String columns, int rowCount) {}
+}
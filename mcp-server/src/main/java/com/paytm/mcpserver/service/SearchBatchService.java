@@ -0,0 +1,510 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.paytm.mcpserver.enums.SearchLaneEnum;
+import com.paytm.mcpserver.enums.SearchStrategyEnum;
+import com.paytm.mcpserver.utility.JsonCodec;
+import com.paytm.mcpserver.utility.ThreadUtility;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Executes a batch of searches with as few Redash jobs as possible
+ *
+ * Redash runs one search body per job, so there is no _msearch. Instead, queries that only differ
+ * in the value of a term/terms filter on a key field (e.g. entityId) and share indices, hosts, sort
+ * and _source are combined into one search with a terms filter on all their values. The rows are
+ * de-multiplexed back per query on the key field.
+ *
+ * A combined search returns the top rows of the union, so a query is complete when its host returned
+ * fewer rows than the combined size (and the response was not truncated) or the query got all the rows
+ * it asked for. Queries that may be missing rows, and queries that cannot be combined, are searched on
+ * their own.
+ */
+@Service
+@Lazy
+@Log4j2
+public class SearchBatchService {
+
+    private static final String KEY_PLACEHOLDER = "__batch_key__";
+    private static final String KEYWORD_SUFFIX = ".keyword";
+
+    private final RedashSearchService redashSearchService;
+    private final SearchCostEstimator costEstimator;
+    private final RedashAdmissionController admission;
+    private final JsonCodec jsonCodec;
+    // Groups and single queries run concurrently, at most the interactive lane's job budget at a time
+    private final ExecutorService batchExecutor;
+
+    @Value("${elasticsearch.search-batch.max-queries:50}")
+    private int maxQueries;
+
+    @Value("${elasticsearch.search-batch.key-fields:entityId,txnId,orderId}")
+    private Set<String> keyFields;
+
+    @Value("${elasticsearch.search-batch.max-combined-size:1000}")
+    private int maxCombinedSize;
+
+    @Value("${elasticsearch.search-batch.max-combined-values:500}")
+    private int maxCombinedValues;
+
+    public SearchBatchService(RedashSearchService redashSearchService, SearchCostEstimator costEstimator,
+                              RedashAdmissionController admission, JsonCodec jsonCodec,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.redashSearchService = redashSearchService;
+        this.costEstimator = costEstimator;
+        this.admission = admission;
+        this.jsonCodec = jsonCodec;
+        this.batchExecutor = ThreadUtility.newFanOutExecutor("redash-batch-", virtualThreads);
+    }
+
+    /**
+     * Run the batch, results are returned in the order of the queries
+     * Every Redash job counts against the client's rate as its search is issued (combined searches, searches of
+     * single queries and fallbacks, with their count probes and pages), a search over the rate is answered with
+     * status "rejected". No more searches run at once than the interactive lane has job slots, so a batch waits
+     * here rather than filling the admission queue
+     */
+    public String execute(List<BatchQuery> queries, String clientId) throws Exception {
+        if (queries.size() > maxQueries) {
+            throw new IllegalArgumentException("At most " + maxQueries + " queries can be batched, got " + queries.size());
+        }
+
+        List<Group> groups = group(queries);
+        log.info("Batch of {} queries runs as {} searches", queries.size(), groups.size());
+
+        List<Runnable> runs = new ArrayList<>(groups.size());
+        for (Group group : groups) {
+            runs.add(() -> run(group, clientId));
+        }
+        runBounded(runs);
+
+        // Queries a combined search may have cut short are searched on their own
+        List<BatchQuery> fallbacks = queries.stream().filter(query -> query.result == null).toList();
+        List<Runnable> fallbackRuns = new ArrayList<>(fallbacks.size());
+        for (BatchQuery query : fallbacks) {
+            fallbackRuns.add(() -> query.result = searchSingle(query, clientId));
+        }
+        runBounded(fallbackRuns);
+
+        ObjectNode response = jsonCodec.createObjectNode();
+        ArrayNode results = response.putArray("results");
+        int combined = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            ObjectNode result = results.addObject();
+            result.put("query", i);
+            result.set("response", queries.get(i).result);
+            if (queries.get(i).combined) {
+                combined++;
+            }
+        }
+        ObjectNode metadata = response.putObject("metadata");
+        metadata.put("queries", queries.size());
+        metadata.put("combined_queries", combined);
+        metadata.put("searches", groups.size() + fallbacks.size());
+        metadata.put("fallback_searches", fallbacks.size());
+        return jsonCodec.write(response);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchExecutor.shutdownNow();
+    }
+
+    /**
+     * Run the searches on the batch executor, at most the interactive lane's job budget at once, and wait for all of them
+     */
+    private void runBounded(List<Runnable> searches) throws InterruptedException {
+        Semaphore running = new Semaphore(admission.getMaxJobs(SearchLaneEnum.INTERACTIVE));
+        List<CompletableFuture<Void>> runs = new ArrayList<>(searches.size());
+        for (Runnable search : searches) {
+            running.acquire();
+            runs.add(CompletableFuture.runAsync(search, batchExecutor).whenComplete((ignored, e) -> running.release()));
+        }
+        CompletableFuture.allOf(runs.toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * Group the queries that can share a search, every other query gets a group of its own
+     */
+    private List<Group> group(List<BatchQuery> queries) {
+        Map<String, List<Group>> byTemplate = new LinkedHashMap<>();
+        List<Group> groups = new ArrayList<>();
+        for (BatchQuery query : queries) {
+            Template template = template(query);
+            if (template == null) {
+                groups.add(new Group(null, List.of(query)));
+                continue;
+            }
+            query.keyValues = template.values;
+
+            List<Group> candidates = byTemplate.computeIfAbsent(template.key, key -> new ArrayList<>());
+            Group target = candidates.isEmpty() ? null : candidates.get(candidates.size() - 1);
+            if (target == null || !target.fits(query)) {
+                target = new Group(template, new ArrayList<>());
+                candidates.add(target);
+                groups.add(target);
+            }
+            target.queries.add(query);
+        }
+        return groups;
+    }
+
+    private void run(Group group, String clientId) {
+        if (group.queries.size() == 1) {
+            BatchQuery query = group.queries.get(0);
+            query.result = searchSingle(query, clientId);
+            return;
+        }
+        try {
+            ObjectNode combinedQuery = group.template.query.deepCopy();
+            replacePlaceholder(combinedQuery, "query", group.template.field, group.values());
+            combinedQuery.put("size", group.size());
+            BatchQuery first = group.queries.get(0);
+            admission.checkRate(clientId, costEstimator.redashJobs(SearchCostEstimator.SearchPlan.direct(), combinedQuery, first.hosts));
+            RedashSearchService.SearchResult result = redashSearchService.executeMultiHostSearch(
+                    jsonCodec.write(combinedQuery), first.indices, first.hosts, false, null);
+            demultiplex(group, jsonCodec.readTree(result.json()));
+        } catch (RedashAdmissionController.RejectedException e) {
+            group.queries.forEach(query -> query.result = rejectedResponse(e));
+        } catch (Exception e) {
+            log.warn("Combined search of {} queries failed, searching them one by one: {}", group.queries.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Hand the rows of a combined search to the queries holding their key value
+     */
+    private void demultiplex(Group group, JsonNode combined) {
+        JsonNode rows = combined.path("query_result").path("data").path("rows");
+        if (!rows.isArray() || combined.has("error")) {
+            return;
+        }
+
+        // Hosts that filled the combined size may have dropped rows of any query, and so may every host
+        // when the merged response was truncated
+        int combinedSize = group.size();
+        boolean truncated = combined.path("metadata").path("truncated").asBoolean();
+        Set<String> fullHosts = new LinkedHashSet<>();
+        for (JsonNode host : combined.path("host_summary")) {
+            String status = host.path("status").asText();
+            if ("skipped".equals(status)) {
+                continue;
+            }
+            if (!"success".equals(status)) {
+                return;
+            }
+            if (truncated || host.path("rowCount").asInt() >= combinedSize) {
+                fullHosts.add(host.path("host").asText());
+            }
+        }
+
+        Map<String, List<BatchQuery>> queriesByValue = new HashMap<>();
+        for (BatchQuery query : group.queries) {
+            query.rows = jsonCodec.createArrayNode();
+            query.rowsPerHost = new HashMap<>();
+            for (String value : query.keyValues) {
+                queriesByValue.computeIfAbsent(value, key -> new ArrayList<>()).add(query);
+            }
+        }
+
+        String field = group.template.field;
+        for (JsonNode row : rows) {
+            String host = row.path("_source_host").asText();
+            List<BatchQuery> owners = queriesByValue.getOrDefault(row.path(field).asText(), List.of());
+            for (BatchQuery query : owners) {
+                // Every host returns up to size rows of its own, as es_search does
+                int hostRows = query.rowsPerHost.merge(host, 1, Integer::sum);
+                if (hostRows <= query.size) {
+                    query.rows.add(row);
+                }
+            }
+        }
+
+        for (BatchQuery query : group.queries) {
+            boolean complete = fullHosts.stream().allMatch(host -> query.rowsPerHost.getOrDefault(host, 0) >= query.size);
+            if (complete) {
+                query.result = demultiplexedResponse(query, combined);
+                query.combined = true;
+            }
+        }
+    }
+
+    private ObjectNode demultiplexedResponse(BatchQuery query, JsonNode combined) {
+        ObjectNode response = jsonCodec.createObjectNode();
+        ObjectNode data = response.putObject("query_result").putObject("data");
+        data.set("rows", query.rows);
+        List<String> columns = new ArrayList<>();
+        if (!query.rows.isEmpty()) {
+            query.rows.get(0).fieldNames().forEachRemaining(columns::add);
+        }
+        data.put("columns", columns.isEmpty() ? "No columns" : String.join(",", columns));
+
+        ObjectNode metadata = ((ObjectNode) combined.path("metadata")).deepCopy();
+        metadata.put("total_rows", query.rows.size());
+        metadata.put("batched", true);
+        response.set("metadata", metadata);
+        return response;
+    }
+
+    private JsonNode searchSingle(BatchQuery query, String clientId) {
+        try {
+            admission.checkRate(clientId, costEstimator.probeJobs(query.query, query.indices, query.hosts));
+            SearchCostEstimator.SearchPlan plan = costEstimator.plan(query.query, query.indices, query.hosts);
+            admission.checkRate(clientId, costEstimator.redashJobs(plan, query.query, query.hosts));
+            if (plan.strategy() == SearchStrategyEnum.REFUSE) {
+                ObjectNode refused = jsonCodec.createObjectNode();
+                refused.put("error", "Search refused, too many rows");
+                refused.put("message", plan.reason());
+                refused.put("status", "refused");
+                return refused;
+            }
+            RedashSearchService.SearchResult result = redashSearchService.executeMultiHostSearch(
+                    jsonCodec.write(query.query), query.indices, query.hosts, false, plan);
+            return jsonCodec.readTree(result.json());
+        } catch (RedashAdmissionController.RejectedException e) {
+            return rejectedResponse(e);
+        } catch (Exception e) {
+            log.error("Batched search failed", e);
+            ObjectNode error = jsonCodec.createObjectNode();
+            error.put("error", "Failed to execute Elasticsearch search");
+            error.put("message", e.getMessage());
+            error.put("status", "error");
+            return error;
+        }
+    }
+
+    private ObjectNode rejectedResponse(RedashAdmissionController.RejectedException rejection) {
+        ObjectNode rejected = jsonCodec.createObjectNode();
+        rejected.put("error", "Search rejected, retry later");
+        rejected.put("message", rejection.getMessage());
+        rejected.put("status", "rejected");
+        rejected.put("retry_after_ms", rejection.getRetryAfterMs());
+        return rejected;
+    }
+
+    /**
+     * The query with its single key filter replaced by a placeholder, null when it cannot be combined
+     */
+    private Template template(BatchQuery query) {
+        JsonNode queryNode = query.query;
+        if (queryNode.has("aggs") || queryNode.has("aggregations") || queryNode.has("from") || !queryNode.has("query")) {
+            return null;
+        }
+        ObjectNode copy = queryNode.deepCopy();
+        copy.remove("size");
+        List<KeyFilter> filters = new ArrayList<>();
+        if (!findKeyFilters(copy, "query", false, filters) || filters.size() != 1) {
+            return null;
+        }
+
+        KeyFilter filter = filters.get(0);
+        if (!returnsField(queryNode.path("_source"), filter.field)) {
+            return null;
+        }
+        ObjectNode placeholder = jsonCodec.createObjectNode();
+        placeholder.put(KEY_PLACEHOLDER, filter.field);
+        filter.set(placeholder);
+
+        String key = copy + "|" + String.join(",", query.indices) + "|"
+                + String.join(",", query.hosts.stream().map(host -> host.hostName).toList());
+        return new Template(key, copy, filter.field, filter.values);
+    }
+
+    /**
+     * Collect the term/terms clauses on a key field found under parent.name
+     * False when a key clause is optional (under should or must_not) or its value is not supported
+     */
+    private boolean findKeyFilters(JsonNode parent, Object name, boolean optional, List<KeyFilter> filters) {
+        JsonNode node = name instanceof Integer index ? parent.get(index) : parent.get((String) name);
+        if (node.isArray()) {
+            for (int i = 0; i < node.size(); i++) {
+                if (!findKeyFilters(node, i, optional, filters)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (!node.isObject()) {
+            return true;
+        }
+
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> entry = fields.next();
+            String clause = entry.getKey();
+            if (("term".equals(clause) || "terms".equals(clause)) && entry.getValue().size() == 1) {
+                String field = entry.getValue().fieldNames().next();
+                String baseField = field.endsWith(KEYWORD_SUFFIX) ? field.substring(0, field.length() - KEYWORD_SUFFIX.length()) : field;
+                if (keyFields.contains(baseField)) {
+                    List<String> values = keyValues(entry.getValue().get(field));
+                    if (optional || values == null || node.size() != 1) {
+                        return false;
+                    }
+                    filters.add(new KeyFilter(parent, name, baseField, values));
+                    continue;
+                }
+            }
+            boolean childOptional = optional || "should".equals(clause) || "must_not".equals(clause);
+            if (!findKeyFilters(node, clause, childOptional, filters)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> keyValues(JsonNode value) {
+        if (value.isObject()) {
+            value = value.get("value");
+        }
+        if (value == null) {
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        if (value.isArray()) {
+            value.forEach(item -> values.add(item.asText()));
+        } else if (value.isValueNode()) {
+            values.add(value.asText());
+        }
+        return values.isEmpty() ? null : values;
+    }
+
+    private static boolean returnsField(JsonNode source, String field) {
+        if (source.isMissingNode() || source.isBoolean() && source.asBoolean()) {
+            return true;
+        }
+        JsonNode includes = source.isObject() ? source.path("includes") : source;
+        if (source.isObject() && source.path("excludes").isArray()) {
+            for (JsonNode exclude : source.get("excludes")) {
+                if (exclude.asText().equals(field)) {
+                    return false;
+                }
+            }
+        }
+        if (includes.isMissingNode()) {
+            return true;
+        }
+        if (includes.isTextual()) {
+            return includes.asText().equals(field);
+        }
+        for (JsonNode include : includes) {
+            if (include.asText().equals(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replace the key placeholder under parent.name with a terms filter on all the values of the group
+     */
+    private boolean replacePlaceholder(JsonNode parent, Object name, String field, List<String> values) {
+        JsonNode node = name instanceof Integer index ? parent.get(index) : parent.get((String) name);
+        if (node.has(KEY_PLACEHOLDER)) {
+            ObjectNode terms = jsonCodec.createObjectNode();
+            ArrayNode valueArray = terms.putObject("terms").putArray(field);
+            values.forEach(valueArray::add);
+            new KeyFilter(parent, name, field, values).set(terms);
+            return true;
+        }
+        if (node.isArray()) {
+            for (int i = 0; i < node.size(); i++) {
+                if (replacePlaceholder(node, i, field, values)) {
+                    return true;
+                }
+            }
+        } else if (node.isObject()) {
+            Iterator<String> names = node.fieldNames();
+            while (names.hasNext()) {
+                if (replacePlaceholder(node, names.next(), field, values)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Helper classes
+
+    /**
+     * One query of a batch, with the indices and hosts it runs on
+     */
+    public static class BatchQuery {
+        final JsonNode query;
+        final List<String> indices;
+        final List<RedashSearchService.HostInfo> hosts;
+        final int size;
+        List<String> keyValues;
+        ArrayNode rows;
+        Map<String, Integer> rowsPerHost;
+        volatile JsonNode result;
+        volatile boolean combined;
+
+        public BatchQuery(JsonNode query, List<String> indices, List<RedashSearchService.HostInfo> hosts) {
+            this.query = query;
+            this.indices = indices;
+            this.hosts = hosts;
+            this.size = query.path("size").asInt(10);
+        }
+    }
+
+    private record Template(String key, ObjectNode query, String field, List<String> values) {}
+
+    /**
+     * A key clause, located by its parent node and its field name or array index in it
+     */
+    private record KeyFilter(JsonNode parent, Object name, String field, List<String> values) {
+
+        void set(JsonNode replacement) {
+            if (name instanceof Integer index) {
+                ((ArrayNode) parent).set(index, replacement);
+            } else {
+                ((ObjectNode) parent).set((String) name, replacement);
+            }
+        }
+    }
+
+    /**
+     * Queries searched together, template is null for a query searched on its own
+     */
+    private class Group {
+        final Template template;
+        final List<BatchQuery> queries;
+
+        Group(Template template, List<BatchQuery> queries) {
+            this.template = template;
+            this.queries = queries;
+        }
+
+        boolean fits(BatchQuery query) {
+            return size() + query.size <= maxCombinedSize && values().size() + query.keyValues.size() <= maxCombinedValues;
+        }
+
+        int size() {
+            return queries.stream().mapToInt(query -> query.size).sum();
+        }
+
+        List<String> values() {
+            Set<String> values = new LinkedHashSet<>();
+            queries.forEach(query -> values.addAll(query.keyValues));
+            return new ArrayList<>(values);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.paytm.mcpserver.enums.SearchStrategyEnum;
+import com.paytm.mcpserver.utility.JsonCodec;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pre-flight cost estimation for es_search and es_count
+ *
+ * Counts the rows a query matches per host and per monthly index with a size-0 probe
+ * (cached for {@code elasticsearch.search-plan.count-cache-ttl-ms}), and plans how a search
+ * asking for more than {@code direct-max-rows} is executed:
+ * - EMPTY when nothing matches, DIRECT when the rows fit in one response
+ * - PAGINATE in from/size pages while every host stays within the result window
+ * - SPLIT_BY_INDEX one month at a time, newest first, when a host would go past the window
+ * - REFUSE above {@code max-fetch-rows}, when a single month is still too large, or when a terms filter
+ *   needs more sub-queries than {@code elasticsearch.terms-chunking.max-chunks}
+ *
+ * Plans page with from/size since they never go past the result window. Redash returns hits as _source rows
+ * without sort values, so search_after works only when the sort fields are in _source; es_export relies on
+ * that (SearchExportService) for scans of any size.
+ */
+@Service
+@Log4j2
+public class SearchCostEstimator {
+
+    private static final String TXN_DATE = "txnDate";
+
+    private final RedashSearchService redashSearchService;
+    private final TermsQueryChunker termsChunker;
+    private final JsonCodec jsonCodec;
+
+    @Value("${elasticsearch.search-plan.direct-max-rows:1000}")
+    private int directMaxRows;
+
+    @Value("${elasticsearch.search-plan.page-size:1000}")
+    private int pageSize;
+
+    @Value("${elasticsearch.search-plan.max-result-window:10000}")
+    private int maxResultWindow;
+
+    @Value("${elasticsearch.search-plan.max-fetch-rows:50000}")
+    private long maxFetchRows;
+
+    @Value("${elasticsearch.search-plan.count-cache-ttl-ms:60000}")
+    private long countCacheTtlMs;
+
+    @Value("${elasticsearch.search-plan.count-cache-max-entries:500}")
+    private int countCacheMaxEntries;
+
+    // Access-ordered, the least recently used estimate is evicted first
+    private final LinkedHashMap<String, CachedCount> counts = new LinkedHashMap<>(64, 0.75f, true);
+
+    public SearchCostEstimator(RedashSearchService redashSearchService, TermsQueryChunker termsChunker, JsonCodec jsonCodec) {
+        this.redashSearchService = redashSearchService;
+        this.termsChunker = termsChunker;
+        this.jsonCodec = jsonCodec;
+    }
+
+    /**
+     * Rows matched by the query per host and index, from the cache when a recent probe is available
+     */
+    public CountEstimate count(JsonNode queryNode, List<String> indices, List<RedashSearchService.HostInfo> hosts) {
+        String key = cacheKey(queryNode, indices, hosts);
+        long now = System.currentTimeMillis();
+        synchronized (counts) {
+            CachedCount cached = counts.get(key);
+            if (cached != null && cached.expiresAt > now) {
+                return new CountEstimate(cached.hosts, true);
+            }
+        }
+
+        List<RedashSearchService.HostCount> hostCounts = redashSearchService.countOnHosts(queryNode, indices, hosts);
+        CountEstimate estimate = new CountEstimate(hostCounts, false);
+        // Failed probes are not cached, the next search retries them
+        if (estimate.isComplete()) {
+            synchronized (counts) {
+                counts.put(key, new CachedCount(hostCounts, now + countCacheTtlMs));
+                if (counts.size() > countCacheMaxEntries) {
+                    counts.remove(counts.keySet().iterator().next());
+                }
+            }
+        }
+        return estimate;
+    }
+
+    /**
+     * Whether a recent probe of the query is cached, counting it then runs no Redash job
+     */
+    public boolean isCountCached(JsonNode queryNode, List<String> indices, List<RedashSearchService.HostInfo> hosts) {
+        String key = cacheKey(queryNode, indices, hosts);
+        synchronized (counts) {
+            CachedCount cached = counts.get(key);
+            return cached != null && cached.expiresAt > System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Redash jobs planning a search runs, charged against the client's rate before {@link #plan}:
+     * the count probe (one job per host) when the search is counted and its counts are not cached
+     */
+    public int probeJobs(JsonNode queryNode, List<String> indices, List<RedashSearchService.HostInfo> hosts) {
+        if (isDirect(queryNode) || termsChunker.chunkCount(queryNode) > termsChunker.getMaxChunks()) {
+            return 0;
+        }
+        return isCountCached(queryNode, indices, hosts) ? 0 : hosts.size();
+    }
+
+    /**
+     * Redash jobs a planned search runs after its count probe, charged against the client's rate once
+     * the plan is known: one job per page of each host, or one per terms chunk of each host (one per host
+     * when the query is not split) when it runs without pages
+     */
+    public int redashJobs(SearchPlan plan, JsonNode queryNode, List<RedashSearchService.HostInfo> hosts) {
+        if (plan.strategy() == SearchStrategyEnum.EMPTY || plan.strategy() == SearchStrategyEnum.REFUSE) {
+            return 0;
+        }
+        if (plan.pages().isEmpty()) {
+            return hosts.size() * Math.max(1, termsChunker.chunkCount(queryNode));
+        }
+        int jobs = 0;
+        for (RedashSearchService.HostInfo host : hosts) {
+            List<RedashSearchService.Page> pages = plan.pagesFor(host.hostName);
+            jobs += pages == null ? 1 : pages.size();
+        }
+        return jobs;
+    }
+
+    /**
+     * Plan a search, only searches asking for more than direct-max-rows are counted first
+     */
+    public SearchPlan plan(JsonNode queryNode, List<String> indices, List<RedashSearchService.HostInfo> hosts) {
+        int chunks = termsChunker.chunkCount(queryNode);
+        if (chunks > termsChunker.getMaxChunks()) {
+            return refuse(null, String.format("terms filter needs %d sub-queries of %d values, more than the %d allowed. "
+                    + "Search at most %d values at once", chunks, termsChunker.getMaxTerms(), termsChunker.getMaxChunks(),
+                    termsChunker.getMaxChunks() * termsChunker.getMaxTerms()));
+        }
+
+        int size = queryNode.path("size").asInt(10);
+        if (isDirect(queryNode)) {
+            return SearchPlan.direct();
+        }
+
+        CountEstimate estimate = count(queryNode, indices, hosts);
+        if (!estimate.isComplete()) {
+            return new SearchPlan(SearchStrategyEnum.DIRECT, estimate, Map.of(), "Row count unavailable, searching directly");
+        }
+        if (estimate.total() == 0) {
+            return new SearchPlan(SearchStrategyEnum.EMPTY, estimate, Map.of(), "No rows match the query");
+        }
+
+        // Every host returns up to size rows of its own
+        long fetchRows = 0;
+        long largestHostFetch = 0;
+        for (RedashSearchService.HostCount host : estimate.hosts()) {
+            long hostFetch = Math.min(size, host.total());
+            fetchRows += hostFetch;
+            largestHostFetch = Math.max(largestHostFetch, hostFetch);
+        }
+
+        if (largestHostFetch <= directMaxRows) {
+            return new SearchPlan(SearchStrategyEnum.DIRECT, estimate, Map.of(),
+                    String.format("%d rows fit in one response per host", largestHostFetch));
+        }
+        if (fetchRows > maxFetchRows) {
+            return refuse(estimate, String.format("Query would fetch %d rows, more than the %d allowed. "
+                    + "Narrow the date range or add filters, or lower size", fetchRows, maxFetchRows));
+        }
+        if (largestHostFetch <= maxResultWindow) {
+            return new SearchPlan(SearchStrategyEnum.PAGINATE, estimate, paginate(estimate, size),
+                    String.format("%d rows fetched in pages of %d", fetchRows, pageSize));
+        }
+        if (!isSortedByTxnDateDesc(queryNode)) {
+            // Months are fetched newest first, that only keeps the result the same under the default sort
+            return refuse(estimate, String.format("Query would fetch %d rows from one host, more than the result window of %d, "
+                    + "and is not sorted by %s desc so it cannot be split per month", largestHostFetch, maxResultWindow, TXN_DATE));
+        }
+
+        Map<String, List<RedashSearchService.Page>> pages = new LinkedHashMap<>();
+        for (RedashSearchService.HostCount host : estimate.hosts()) {
+            List<RedashSearchService.Page> hostPages = new ArrayList<>();
+            long remaining = Math.min(size, host.total());
+            List<String> newestFirst = new ArrayList<>(host.counts().keySet());
+            Collections.reverse(newestFirst);
+            for (String index : newestFirst) {
+                if (remaining == 0) {
+                    break;
+                }
+                long indexRows = Math.min(host.counts().get(index), remaining);
+                if (indexRows > maxResultWindow) {
+                    return refuse(estimate, String.format("Index %s on %s would return %d rows, more than the result window of %d. "
+                            + "Narrow the date range or add filters", index, host.hostName(), indexRows, maxResultWindow));
+                }
+                addPages(hostPages, List.of(index), indexRows);
+                remaining -= indexRows;
+            }
+            pages.put(host.hostName(), hostPages);
+        }
+        return new SearchPlan(SearchStrategyEnum.SPLIT_BY_INDEX, estimate, pages,
+                String.format("%d rows fetched per index, newest first", fetchRows));
+    }
+
+    private Map<String, List<RedashSearchService.Page>> paginate(CountEstimate estimate, int size) {
+        Map<String, List<RedashSearchService.Page>> pages = new LinkedHashMap<>();
+        for (RedashSearchService.HostCount host : estimate.hosts()) {
+            List<RedashSearchService.Page> hostPages = new ArrayList<>();
+            addPages(hostPages, null, Math.min(size, host.total()));
+            pages.put(host.hostName(), hostPages);
+        }
+        return pages;
+    }
+
+    /**
+     * Pages of page-size covering the first rows rows, indices null means every index of the host
+     */
+    private void addPages(List<RedashSearchService.Page> pages, List<String> indices, long rows) {
+        for (long from = 0; from < rows; from += pageSize) {
+            pages.add(new RedashSearchService.Page(indices, (int) from, (int) Math.min(pageSize, rows - from)));
+        }
+    }
+
+    /**
+     * Searches up to direct-max-rows and aggregations run as given, without a count
+     */
+    private boolean isDirect(JsonNode queryNode) {
+        return queryNode.path("size").asInt(10) <= directMaxRows || queryNode.has("aggs") || queryNode.has("aggregations");
+    }
+
+    private SearchPlan refuse(CountEstimate estimate, String reason) {
+        return new SearchPlan(SearchStrategyEnum.REFUSE, estimate, Map.of(), reason);
+    }
+
+    private static boolean isSortedByTxnDateDesc(JsonNode queryNode) {
+        JsonNode sort = queryNode.path("sort");
+        if (sort.isMissingNode()) {
+            return false;
+        }
+        JsonNode first = sort.isArray() ? sort.path(0) : sort;
+        if (first.isTextual()) {
+            return first.asText().equals(TXN_DATE + ":desc");
+        }
+        JsonNode order = first.path(TXN_DATE);
+        return order.isTextual() ? "desc".equals(order.asText()) : "desc".equals(order.path("order").asText());
+    }
+
+    private String cacheKey(JsonNode queryNode, List<String> indices, List<RedashSearchService.HostInfo> hosts) {
+        StringBuilder key = new StringBuilder(queryNode.path("query").toString());
+        key.append('|').append(String.join(",", indices));
+        for (RedashSearchService.HostInfo host : hosts) {
+            key.append('|').append(host.hostName);
+        }
+        return key.toString();
+    }
+
+    // Helper classes
+
+    /**
+     * Rows matched per host and index, cached when the counts came from the cache
+     */
+    public record CountEstimate(List<RedashSearchService.HostCount> hosts, boolean cached) {
+
+        public long total() {
+            return hosts.stream().mapToLong(RedashSearchService.HostCount::total).sum();
+        }
+
+        /**
+         * Whether every host answered the probe
+         */
+        public boolean isComplete() {
+            return hosts.stream().allMatch(RedashSearchService.HostCount::isSuccess);
+        }
+
+        public ObjectNode toJson(JsonCodec jsonCodec) {
+            ObjectNode json = jsonCodec.createObjectNode();
+            json.put("total", total());
+            json.put("complete", isComplete());
+            json.put("cached", cached);
+            ObjectNode hostsNode = json.putObject("hosts");
+            for (RedashSearchService.HostCount host : hosts) {
+                ObjectNode hostNode = hostsNode.putObject(host.hostName());
+                hostNode.put("dataSourceId", host.dataSourceId());
+                if (host.skipped()) {
+                    hostNode.put("skipped", true);
+                }
+                if (host.isSuccess()) {
+                    hostNode.put("total", host.total());
+                    ObjectNode indicesNode = hostNode.putObject("indices");
+                    host.counts().forEach(indicesNode::put);
+                } else {
+                    hostNode.put("error", host.error());
+                }
+            }
+            return json;
+        }
+    }
+
+    /**
+     * How a search is executed, pages per host name for PAGINATE and SPLIT_BY_INDEX
+     */
+    public record SearchPlan(SearchStrategyEnum strategy, CountEstimate estimate,
+                             Map<String, List<RedashSearchService.Page>> pages, String reason) {
+
+        private static final SearchPlan DIRECT = new SearchPlan(SearchStrategyEnum.DIRECT, null, Map.of(), "Within direct-max-rows");
+
+        public static SearchPlan direct() {
+            return DIRECT;
+        }
+
+        /**
+         * Pages of a host, null when the query runs once as given
+         */
+        public List<RedashSearchService.Page> pagesFor(String hostName) {
+            return pages.get(hostName);
+        }
+    }
+
+    private record CachedCount(List<RedashSearchService.HostCount> hosts, long expiresAt) {}
+}
@@ -0,0 +1,424 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.paytm.mcpserver.enums.ExportFormatEnum;
+import com.paytm.mcpserver.utility.JsonCodec;
+import com.paytm.mcpserver.utility.SortOrderUtility;
+import com.paytm.mcpserver.utility.ThreadUtility;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exports the full result set of a search to a file on local disk (es_export)
+ *
+ * Every host is paged with search_after on the query's sort plus a tiebreaker field, one page (one Redash
+ * job) at a time, hosts in parallel. Rows of each page are appended to the file as soon as it arrives, so
+ * memory holds one page per host whatever the size of the export. Rows of different hosts are interleaved
+ * page by page, each row carries its _source_host.
+ *
+ * Every page is charged against the client's rate: the first page of every host up front, later pages as they
+ * are issued, waiting while the client is over its rate, so a long export is throttled rather than free.
+ *
+ * The file is written under {@code elasticsearch.export.dir} with a SHA-256 of its content. Pages that fail
+ * or are rejected by admission control are retried; a host that still fails leaves the export partial.
+ */
+@Service
+@Lazy
+@Log4j2
+public class SearchExportService {
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final String SOURCE_HOST = "_source_host";
+
+    private final RedashSearchService redashSearchService;
+    private final RedashAdmissionController admission;
+    private final SearchCostEstimator costEstimator;
+    private final JsonCodec jsonCodec;
+    // One thread per exported host, its Redash jobs are bounded by admission control
+    private final ExecutorService exportExecutor;
+
+    @Value("${elasticsearch.export.dir:${user.home}/.elasticsearch-mcp/exports}")
+    private Path directory;
+
+    @Value("${elasticsearch.export.page-size:1000}")
+    private int pageSize;
+
+    @Value("${elasticsearch.export.max-rows:2000000}")
+    private long maxRows;
+
+    @Value("${elasticsearch.export.tiebreaker-field:txnId}")
+    private String tiebreakerField;
+
+    @Value("${elasticsearch.export.max-page-attempts:3}")
+    private int maxPageAttempts;
+
+    public SearchExportService(RedashSearchService redashSearchService, RedashAdmissionController admission,
+                               SearchCostEstimator costEstimator, JsonCodec jsonCodec,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.redashSearchService = redashSearchService;
+        this.admission = admission;
+        this.costEstimator = costEstimator;
+        this.jsonCodec = jsonCodec;
+        this.exportExecutor = ThreadUtility.newFanOutExecutor("redash-export-", virtualThreads);
+    }
+
+    @PostConstruct
+    void createDirectory() throws IOException {
+        Files.createDirectories(directory);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        exportExecutor.shutdownNow();
+    }
+
+    /**
+     * Export every row the query matches on the hosts, returns the file, row counts and checksum
+     * The first page of every host is charged up front, RejectedException when the client is over its rate
+     */
+    public String export(JsonNode queryNode, List<String> indices, List<RedashSearchService.HostInfo> hosts,
+                         ExportFormatEnum format, String clientId) throws Exception {
+        if (queryNode.has("aggs") || queryNode.has("aggregations")) {
+            throw new IllegalArgumentException("Queries with aggregations cannot be exported, use es_search");
+        }
+        long startTime = System.currentTimeMillis();
+
+        ObjectNode pageQuery = queryNode.deepCopy();
+        List<SortOrderUtility.SortField> sortFields = exportSort(pageQuery);
+        pageQuery.put("size", pageSize);
+        pageQuery.remove("from");
+        admission.checkRate(clientId, costEstimator.redashJobs(SearchCostEstimator.SearchPlan.direct(), pageQuery, hosts));
+
+        String fileName = "export-" + LocalDateTime.now().format(FILE_TIMESTAMP) + "-"
+                + HexFormat.of().toHexDigits(ThreadLocalRandom.current().nextInt()) + "." + format.getExtension();
+        Path file = directory.resolve(fileName);
+        Path partFile = directory.resolve(fileName + ".part");
+        List<HostExport> hostExports = hosts.stream().map(HostExport::new).toList();
+        AtomicBoolean rowLimitReached = new AtomicBoolean();
+
+        ExportWriter writer = new ExportWriter(partFile, format, csvColumns(queryNode));
+        try (writer) {
+            List<CompletableFuture<Void>> exports = new ArrayList<>(hosts.size());
+            for (HostExport hostExport : hostExports) {
+                exports.add(CompletableFuture.runAsync(() -> exportHost(pageQuery, sortFields, indices, hostExport,
+                        writer, rowLimitReached, clientId), exportExecutor));
+            }
+            CompletableFuture.allOf(exports.toArray(CompletableFuture[]::new)).join();
+        } catch (Exception e) {
+            Files.deleteIfExists(partFile);
+            throw e;
+        }
+        Files.move(partFile, file, StandardCopyOption.ATOMIC_MOVE);
+
+        boolean complete = hostExports.stream().allMatch(hostExport -> hostExport.error == null);
+        ObjectNode response = jsonCodec.createObjectNode();
+        response.put("status", rowLimitReached.get() ? "truncated" : complete ? "success" : "partial");
+        response.put("file", file.toAbsolutePath().toString());
+        response.put("format", format.getExtension());
+        response.put("rows", writer.rows);
+        response.put("bytes", Files.size(file));
+        response.put("sha256", writer.sha256());
+        if (rowLimitReached.get()) {
+            response.put("message", "Export stopped at elasticsearch.export.max-rows (" + maxRows + ")");
+        }
+        ArrayNode hostSummary = response.putArray("host_summary");
+        for (HostExport hostExport : hostExports) {
+            ObjectNode hostInfo = hostSummary.addObject();
+            hostInfo.put("host", hostExport.host.hostName);
+            hostInfo.put("status", hostExport.error == null ? "success" : "error");
+            hostInfo.put("rows", hostExport.rows);
+            hostInfo.put("pages", hostExport.pages);
+            if (hostExport.error != null) {
+                hostInfo.put("error", hostExport.error);
+            }
+        }
+        response.put("execution_time_ms", System.currentTimeMillis() - startTime);
+        log.info("Exported {} rows to {} in {}ms", writer.rows, file, System.currentTimeMillis() - startTime);
+        return jsonCodec.write(response);
+    }
+
+    /**
+     * Page through one host until a page comes back short, a page keeps failing or the row limit is reached
+     */
+    private void exportHost(ObjectNode pageQuery, List<SortOrderUtility.SortField> sortFields, List<String> indices,
+                            HostExport hostExport, ExportWriter writer, AtomicBoolean rowLimitReached,
+                            String clientId) {
+        ObjectNode query = pageQuery.deepCopy();
+        int pageJobs = costEstimator.redashJobs(SearchCostEstimator.SearchPlan.direct(), query, List.of(hostExport.host));
+        // Merged pages come back in txnDate order, they are put back in the export sort
+        Comparator<JsonNode> order = SortOrderUtility.rowComparator(pageQuery.get("sort"));
+        try {
+            while (!rowLimitReached.get()) {
+                List<JsonNode> rows = new ArrayList<>();
+                // The first page was charged before the export started
+                searchPage(query, indices, hostExport.host, clientId, pageJobs, hostExport.pages == 0).forEach(rows::add);
+                rows.sort(order);
+                hostExport.pages++;
+                int written = writer.write(rows, maxRows);
+                hostExport.rows += written;
+                if (written < rows.size()) {
+                    rowLimitReached.set(true);
+                    return;
+                }
+                if (rows.size() < pageSize) {
+                    return;
+                }
+                // The next page starts after the sort values of the last row
+                JsonNode last = rows.get(rows.size() - 1);
+                JsonNode previous = query.get("search_after");
+                ArrayNode searchAfter = query.putArray("search_after");
+                for (SortOrderUtility.SortField sortField : sortFields) {
+                    JsonNode value = last.get(sortField.field());
+                    if (value == null || value.isNull()) {
+                        throw new IllegalStateException("Row without sort field " + sortField.field()
+                                + ", cannot page past it");
+                    }
+                    searchAfter.add(value);
+                }
+                if (searchAfter.equals(previous)) {
+                    throw new IllegalStateException("search_after did not advance past " + searchAfter);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Export of {} stopped after {} pages", hostExport.host.hostName, hostExport.pages, e);
+            hostExport.error = e.getMessage();
+        }
+    }
+
+    /**
+     * Rows of one page, retried when the search fails or admission control rejects it
+     * Every attempt is charged pageJobs against the client's rate, except a first attempt that already was
+     */
+    private JsonNode searchPage(ObjectNode query, List<String> indices, RedashSearchService.HostInfo host,
+                                String clientId, int pageJobs, boolean charged) throws Exception {
+        String error = null;
+        for (int attempt = 1; attempt <= maxPageAttempts; attempt++) {
+            if (attempt > 1 || !charged) {
+                awaitRate(clientId, pageJobs);
+            }
+            try {
+                JsonNode result = jsonCodec.readTree(redashSearchService.executeMultiHostSearch(
+                        jsonCodec.write(query), indices, List.of(host), false, null).json());
+                JsonNode hostInfo = result.path("host_summary").path(0);
+                if ("success".equals(hostInfo.path("status").asText())) {
+                    if (result.path("metadata").path("truncated").asBoolean()) {
+                        throw new IllegalStateException("Page exceeded the response limit, lower elasticsearch.export.page-size");
+                    }
+                    return result.path("query_result").path("data").path("rows");
+                }
+                error = hostInfo.path("error").asText(result.path("error").asText("unknown error"));
+            } catch (RedashAdmissionController.RejectedException e) {
+                error = e.getMessage();
+                Thread.sleep(Math.max(100, e.getRetryAfterMs()));
+            }
+            log.warn("Export page on {} failed (attempt {}/{}): {}", host.hostName, attempt, maxPageAttempts, error);
+        }
+        throw new IllegalStateException(error);
+    }
+
+    /**
+     * Charge jobs against the client's rate, waiting while the client is over it
+     */
+    private void awaitRate(String clientId, int jobs) throws InterruptedException {
+        while (true) {
+            try {
+                admission.checkRate(clientId, jobs);
+                return;
+            } catch (RedashAdmissionController.RejectedException e) {
+                Thread.sleep(Math.max(100, e.getRetryAfterMs()));
+            }
+        }
+    }
+
+    /**
+     * Sort of the export, the query's sort (txnDate desc when it has none) ending with the tiebreaker field
+     * so that search_after never skips or repeats rows with equal sort values
+     */
+    private List<SortOrderUtility.SortField> exportSort(ObjectNode query) {
+        List<SortOrderUtility.SortField> sortFields = new ArrayList<>(SortOrderUtility.sortFields(query.get("sort")));
+        if (sortFields.isEmpty()) {
+            sortFields.add(new SortOrderUtility.SortField("txnDate", true));
+        }
+        if (sortFields.stream().noneMatch(sortField -> sortField.field().equals(tiebreakerField))) {
+            sortFields.add(new SortOrderUtility.SortField(tiebreakerField, false));
+        }
+        ArrayNode sort = query.putArray("sort");
+        for (SortOrderUtility.SortField sortField : sortFields) {
+            sort.addObject().putObject(sortField.field()).put("order", sortField.descending() ? "desc" : "asc");
+        }
+        // search_after reads the sort values from the rows, they must be in _source
+        JsonNode source = query.get("_source");
+        if (source != null && source.isArray()) {
+            ArrayNode includes = (ArrayNode) source;
+            for (SortOrderUtility.SortField sortField : sortFields) {
+                boolean included = false;
+                for (JsonNode include : includes) {
+                    included |= include.asText().equals(sortField.field());
+                }
+                if (!included) {
+                    includes.add(sortField.field());
+                }
+            }
+        }
+        return sortFields;
+    }
+
+    /**
+     * CSV columns from the query's _source list, null to take them from the first row
+     */
+    private static List<String> csvColumns(JsonNode queryNode) {
+        JsonNode source = queryNode.get("_source");
+        if (source == null || !source.isArray() || source.isEmpty()) {
+            return null;
+        }
+        List<String> columns = new ArrayList<>();
+        for (JsonNode field : source) {
+            if (field.asText().contains("*")) {
+                return null;
+            }
+            columns.add(field.asText());
+        }
+        columns.add(SOURCE_HOST);
+        return columns;
+    }
+
+    // Helper classes
+
+    private static class HostExport {
+        final RedashSearchService.HostInfo host;
+        long rows;
+        int pages;
+        String error;
+
+        HostExport(RedashSearchService.HostInfo host) {
+            this.host = host;
+        }
+    }
+
+    /**
+     * Buffered writer over a file channel, hashing everything it writes
+     * Pages of all hosts go through write, one page at a time
+     */
+    private class ExportWriter implements Closeable {
+        private final ExportFormatEnum format;
+        private final MessageDigest sha256;
+        private final Writer out;
+        private final ReentrantLock lock = new ReentrantLock();
+        private List<String> columns;
+        private long rows;
+
+        ExportWriter(Path file, ExportFormatEnum format, List<String> columns) throws IOException, NoSuchAlgorithmException {
+            this.format = format;
+            this.columns = columns;
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            this.out = new BufferedWriter(new OutputStreamWriter(
+                    new DigestOutputStream(Channels.newOutputStream(channel), sha256), StandardCharsets.UTF_8), 1 << 16);
+            if (columns != null) {
+                writeHeader();
+            }
+        }
+
+        /**
+         * Append the rows of a page, returns how many were written before the row limit
+         */
+        int write(List<JsonNode> pageRows, long maxRows) throws IOException {
+            // A lock rather than a monitor, the page is written to the file while it is held
+            lock.lock();
+            try {
+                int written = 0;
+                for (JsonNode row : pageRows) {
+                    if (rows >= maxRows) {
+                        break;
+                    }
+                    if (format == ExportFormatEnum.NDJSON) {
+                        out.write(jsonCodec.write(row));
+                    } else {
+                        if (columns == null) {
+                            columns = new ArrayList<>();
+                            row.fieldNames().forEachRemaining(columns::add);
+                            writeHeader();
+                        }
+                        for (int i = 0; i < columns.size(); i++) {
+                            if (i > 0) {
+                                out.write(',');
+                            }
+                            JsonNode value = row.get(columns.get(i));
+                            if (value != null && !value.isNull()) {
+                                out.write(csvValue(value.isValueNode() ? value.asText() : jsonCodec.write(value)));
+                            }
+                        }
+                    }
+                    out.write('\n');
+                    rows++;
+                    written++;
+                }
+                return written;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void writeHeader() throws IOException {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(csvValue(columns.get(i)));
+            }
+            out.write('\n');
+        }
+
+        /**
+         * Hex SHA-256 of the file, once it is closed
+         */
+        String sha256() {
+            return HexFormat.of().formatHex(sha256.digest());
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        private static String csvValue(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
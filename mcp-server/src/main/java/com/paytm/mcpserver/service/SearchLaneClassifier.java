@@ -0,0 +1,94 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.paytm.mcpserver.enums.SearchLaneEnum;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Puts a search in the INTERACTIVE or BULK lane from its estimated cost
+ *
+ * - Point lookups (term/terms/match on an identifier field, or ids) are always INTERACTIVE, only required
+ *   clauses count (under query, bool.filter, bool.must or constant_score), not should or must_not
+ * - Cost is months (monthly indices) x hosts, doubled when the query has aggregations
+ * - BULK when the cost or the requested size reaches its threshold
+ */
+@Service
+public class SearchLaneClassifier {
+
+    private static final Set<String> LOOKUP_QUERIES = Set.of("term", "terms", "match", "match_phrase");
+    private static final Set<String> REQUIRED_CONTEXTS = Set.of("bool", "filter", "must", "constant_score");
+    private static final String KEYWORD_SUFFIX = ".keyword";
+
+    @Value("${redash.lanes.bulk-cost-threshold:12}")
+    private int bulkCostThreshold;
+
+    @Value("${redash.lanes.bulk-size-threshold:1000}")
+    private int bulkSizeThreshold;
+
+    @Value("${redash.lanes.point-lookup-fields:txnId,orderId}")
+    private Set<String> pointLookupFields;
+
+    public SearchLaneEnum classify(JsonNode queryNode, int indexCount, int hostCount) {
+        if (isPointLookup(queryNode.path("query"))) {
+            return SearchLaneEnum.INTERACTIVE;
+        }
+
+        long cost = (long) Math.max(indexCount, 1) * Math.max(hostCount, 1);
+        if (queryNode.has("aggs") || queryNode.has("aggregations")) {
+            cost *= 2;
+        }
+        int size = queryNode.path("size").asInt(10);
+        return cost >= bulkCostThreshold || size >= bulkSizeThreshold ? SearchLaneEnum.BULK : SearchLaneEnum.INTERACTIVE;
+    }
+
+    /**
+     * Whether a required clause of the query matches an identifier field
+     */
+    private boolean isPointLookup(JsonNode node) {
+        if (node.isArray()) {
+            for (JsonNode child : node) {
+                if (isPointLookup(child)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (!node.isObject()) {
+            return false;
+        }
+
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if ("ids".equals(field.getKey())) {
+                return true;
+            }
+            if (LOOKUP_QUERIES.contains(field.getKey()) && hasLookupField(field.getValue())) {
+                return true;
+            }
+            if (REQUIRED_CONTEXTS.contains(field.getKey()) && isPointLookup(field.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasLookupField(JsonNode clause) {
+        Iterator<String> names = clause.fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            if (name.endsWith(KEYWORD_SUFFIX)) {
+                name = name.substring(0, name.length() - KEYWORD_SUFFIX.length());
+            }
+            if (pointLookupFields.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,294 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.paytm.mcpserver.utility.JsonCodec;
+import com.paytm.mcpserver.utility.LongHashSet;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Merges the rows of all hosts in sort order with bounded memory
+ *
+ * Rows are buffered until their estimated heap size reaches {@code elasticsearch.merge.heap-budget-bytes},
+ * the buffer is then sorted and spilled as a run (one JSON row per line) to a temporary file. The runs
+ * and the rows still buffered are k-way merged into the response rows, which stop at
+ * {@code elasticsearch.merge.max-response-bytes} of UTF-8 JSON; the result tells whether rows were left out.
+ * Rows comparing equal keep the order they were added in.
+ *
+ * With {@code elasticsearch.merge.dedupe.enabled} a row whose key fields (txnId by default) were already added by
+ * an earlier host is dropped, so a document returned by several hosts (tier boundaries, merged or backfilled
+ * documents) is kept once, as first added. Rows of one host are never dropped, the same as when a single host is
+ * passed through without a merge. Keys are tracked as 64-bit hashes in LongHashSets; rows without any key field
+ * are kept.
+ */
+@Service
+@Log4j2
+public class SpillingRowMerger {
+
+    private final JsonCodec jsonCodec;
+    private final long heapBudgetBytes;
+    private final long maxResponseBytes;
+    private final Path spillDirectory;
+    private final List<String> dedupeKeyFields;
+
+    public SpillingRowMerger(JsonCodec jsonCodec,
+                             @Value("${elasticsearch.merge.heap-budget-bytes:67108864}") long heapBudgetBytes,
+                             @Value("${elasticsearch.merge.max-response-bytes:33554432}") long maxResponseBytes,
+                             @Value("${elasticsearch.merge.spill-dir:${java.io.tmpdir}}") Path spillDirectory,
+                             @Value("${elasticsearch.merge.dedupe.enabled:false}") boolean dedupe,
+                             @Value("${elasticsearch.merge.dedupe.key-fields:txnId}") List<String> dedupeKeyFields) {
+        this.jsonCodec = jsonCodec;
+        this.heapBudgetBytes = heapBudgetBytes;
+        this.maxResponseBytes = maxResponseBytes;
+        this.spillDirectory = spillDirectory;
+        this.dedupeKeyFields = dedupe ? List.copyOf(dedupeKeyFields) : List.of();
+    }
+
+    public long getMaxResponseBytes() {
+        return maxResponseBytes;
+    }
+
+    public boolean isDedupeEnabled() {
+        return !dedupeKeyFields.isEmpty();
+    }
+
+    /**
+     * Start a merge, close it to delete its spill files
+     */
+    public Merge open(Comparator<JsonNode> order) {
+        return new Merge(order);
+    }
+
+    /**
+     * Rough heap footprint of a row, flat rows of text and numbers as Redash returns them
+     */
+    static long estimateBytes(JsonNode node) {
+        if (node.isContainerNode()) {
+            long bytes = 64;
+            if (node.isObject()) {
+                for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext(); ) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    bytes += 48 + 2L * field.getKey().length() + estimateBytes(field.getValue());
+                }
+            } else {
+                for (JsonNode item : node) {
+                    bytes += 8 + estimateBytes(item);
+                }
+            }
+            return bytes;
+        }
+        return node.isTextual() ? 48 + 2L * node.textValue().length() : 24;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the row's key field values, 0 when the row has none of them
+     */
+    static long keyHash(ObjectNode row, List<String> keyFields) {
+        long hash = 0xcbf29ce484222325L;
+        boolean found = false;
+        for (String field : keyFields) {
+            JsonNode value = row.get(field);
+            if (value != null && !value.isNull()) {
+                found = true;
+                String text = value.asText();
+                for (int i = 0; i < text.length(); i++) {
+                    hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+                }
+            }
+            // Field separator, so that ("ab", "c") and ("a", "bc") differ
+            hash = (hash ^ 0x1f) * 0x100000001b3L;
+        }
+        return found ? hash : 0;
+    }
+
+    // Helper classes
+
+    public class Merge implements Closeable {
+        private final Comparator<JsonNode> order;
+        private final List<ObjectNode> buffer = new ArrayList<>();
+        private final List<Path> runs = new ArrayList<>();
+        // Keys of the hosts before the current one, and of the current one
+        private final LongHashSet earlierHostKeys = dedupeKeyFields.isEmpty() ? null : new LongHashSet(1024);
+        private LongHashSet hostKeys = dedupeKeyFields.isEmpty() ? null : new LongHashSet(1024);
+        private long bufferedBytes;
+        private long spilledBytes;
+
+        private Merge(Comparator<JsonNode> order) {
+            this.order = order;
+        }
+
+        /**
+         * Start the rows of the next host, rows added from now on are checked against all hosts before it
+         */
+        public void nextHost() {
+            if (hostKeys != null && hostKeys.size() > 0) {
+                earlierHostKeys.addAll(hostKeys);
+                hostKeys = new LongHashSet(1024);
+            }
+        }
+
+        /**
+         * Add a row of the current host, false when it was dropped as a duplicate of a row of an earlier host
+         */
+        public boolean add(ObjectNode row) throws IOException {
+            if (hostKeys != null) {
+                long key = keyHash(row, dedupeKeyFields);
+                if (key != 0) {
+                    if (earlierHostKeys.contains(key)) {
+                        return false;
+                    }
+                    hostKeys.add(key);
+                }
+            }
+            buffer.add(row);
+            bufferedBytes += estimateBytes(row);
+            if (bufferedBytes >= heapBudgetBytes) {
+                spill();
+            }
+            return true;
+        }
+
+        /**
+         * Merge everything added so far into a JSON array of at most max-response-bytes
+         */
+        public MergedRows finish() throws IOException {
+            // Stable sort, rows comparing equal stay in the order they were added
+            buffer.sort(order);
+            List<MappingIterator<ObjectNode>> readers = new ArrayList<>(runs.size());
+            try {
+                PriorityQueue<RunCursor> cursors = new PriorityQueue<>(
+                        Comparator.<RunCursor, JsonNode>comparing(cursor -> cursor.current, order)
+                                .thenComparingInt(cursor -> cursor.run));
+                for (int run = 0; run < runs.size(); run++) {
+                    MappingIterator<ObjectNode> reader = jsonCodec.getObjectMapper().readerFor(ObjectNode.class)
+                            .readValues(new BufferedInputStream(Files.newInputStream(runs.get(run))));
+                    readers.add(reader);
+                    RunCursor.offer(cursors, new RunCursor(run, reader));
+                }
+                // The buffer holds the most recently added rows, it comes after every spilled run
+                RunCursor.offer(cursors, new RunCursor(runs.size(), buffer.iterator()));
+
+                ByteArrayOutputStream rowsJson = new ByteArrayOutputStream();
+                ByteArrayOutputStream rowJson = new ByteArrayOutputStream();
+                rowsJson.write('[');
+                String columns = "No columns";
+                int returnedRows = 0;
+                boolean truncated = false;
+                while (!cursors.isEmpty()) {
+                    RunCursor cursor = cursors.poll();
+                    rowJson.reset();
+                    try (JsonGenerator generator = jsonCodec.getFactory().createGenerator(rowJson)) {
+                        generator.writeTree(cursor.current);
+                    }
+                    // Room is kept for the separator and the closing bracket
+                    if (rowsJson.size() + rowJson.size() + 2 > maxResponseBytes) {
+                        truncated = true;
+                        break;
+                    }
+                    if (returnedRows == 0) {
+                        List<String> fields = new ArrayList<>();
+                        cursor.current.fieldNames().forEachRemaining(fields::add);
+                        columns = String.join(",", fields);
+                    } else {
+                        rowsJson.write(',');
+                    }
+                    rowJson.writeTo(rowsJson);
+                    returnedRows++;
+                    RunCursor.offer(cursors, cursor);
+                }
+                rowsJson.write(']');
+                return new MergedRows(rowsJson.toString(StandardCharsets.UTF_8), columns, returnedRows, truncated,
+                        runs.size(), spilledBytes);
+            } finally {
+                for (MappingIterator<ObjectNode> reader : readers) {
+                    reader.close();
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            for (Path run : runs) {
+                try {
+                    Files.deleteIfExists(run);
+                } catch (IOException e) {
+                    log.warn("Failed to delete merge spill file {}: {}", run, e.getMessage());
+                }
+            }
+            runs.clear();
+            buffer.clear();
+        }
+
+        /**
+         * Write the buffered rows sorted to a new run file and empty the buffer
+         */
+        private void spill() throws IOException {
+            buffer.sort(order);
+            Path run = Files.createTempFile(spillDirectory, "mcp-merge-", ".ndjson");
+            runs.add(run);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(run));
+                 JsonGenerator generator = jsonCodec.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                for (ObjectNode row : buffer) {
+                    generator.writeTree(row);
+                    generator.writeRaw('\n');
+                }
+            }
+            long size = Files.size(run);
+            spilledBytes += size;
+            log.debug("Spilled {} rows ({} bytes) to {}", buffer.size(), size, run);
+            buffer.clear();
+            bufferedBytes = 0;
+        }
+    }
+
+    /**
+     * Next row of a sorted run, run is the position of the run in add order
+     */
+    private static class RunCursor {
+        final int run;
+        final Iterator<ObjectNode> rows;
+        ObjectNode current;
+
+        RunCursor(int run, Iterator<ObjectNode> rows) {
+            this.run = run;
+            this.rows = rows;
+        }
+
+        /**
+         * Queue the cursor on its next row, a drained run is dropped
+         */
+        static void offer(PriorityQueue<RunCursor> cursors, RunCursor cursor) {
+            if (cursor.rows.hasNext()) {
+                cursor.current = cursor.rows.next();
+                cursors.add(cursor);
+            }
+        }
+    }
+
+    /**
+     * Merged rows as a JSON array, truncated when the next row would have exceeded max-response-bytes
+     */
+    public record MergedRows(String rowsJson, String columns, int returnedRows, boolean truncated, int spilledRuns,
+                             long spilledBytes) {}
+}
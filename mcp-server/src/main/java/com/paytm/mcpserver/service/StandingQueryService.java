@@ -0,0 +1,505 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.paytm.mcpserver.config.EsTierProperties.Tier;
+import com.paytm.mcpserver.enums.SearchStrategyEnum;
+import com.paytm.mcpserver.service.ElasticsearchHostSelector.HostCoverage;
+import com.paytm.mcpserver.utility.DateExpressionParser;
+import com.paytm.mcpserver.utility.DateFormatUtility;
+import com.paytm.mcpserver.utility.JsonCodec;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Standing queries: searches known in advance, run off-peak and served to es_search from their last result
+ *
+ * A standing query is a query DSL with {{startDate}} / {{endDate}} placeholders, a date window rule in the
+ * words es_dates understands ("yesterday", "last 7 days", "this month") and a cron schedule. Every run resolves
+ * the window as es_dates, es_host and es_indices would, searches the resulting hosts and indices and keeps the
+ * response as a snapshot. An es_search with the same query (field order ignored), indices and hosts is answered
+ * from the snapshot without going to Redash, until the window moves on or the snapshot is older than max-age.
+ *
+ * The registry ({@code elasticsearch.standing-queries.dir}/registry.json) and one snapshot file per query are
+ * replaced atomically and loaded on startup; queries whose snapshot is missing or out of date are run shortly
+ * after startup instead of waiting for their next scheduled time.
+ */
+@Service
+@Log4j2
+public class StandingQueryService {
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final String START_PLACEHOLDER = "{{startDate}}";
+    private static final String END_PLACEHOLDER = "{{endDate}}";
+    private static final String CLIENT_ID = "standing-queries";
+
+    private final RedashSearchService redashSearchService;
+    private final SearchCostEstimator costEstimator;
+    private final ElasticsearchHostSelector hostSelector;
+    private final ElasticSearchIndexFetcher indexFetcher;
+    private final ElasticsearchIndexCatalog indexCatalog;
+    private final RedashAdmissionController admission;
+    private final JsonCodec jsonCodec;
+
+    @Value("${elasticsearch.standing-queries.enabled:true}")
+    private boolean enabled;
+
+    @Value("${elasticsearch.standing-queries.dir:${user.home}/.elasticsearch-mcp/standing-queries}")
+    private Path directory;
+
+    @Value("${elasticsearch.standing-queries.default-schedule:0 0 5 * * *}")
+    private String defaultSchedule;
+
+    @Value("${elasticsearch.standing-queries.zone:Asia/Kolkata}")
+    private ZoneId zone;
+
+    @Value("${elasticsearch.standing-queries.max-age:PT26H}")
+    private Duration maxAge;
+
+    @Value("${elasticsearch.standing-queries.startup-delay:PT1M}")
+    private Duration startupDelay;
+
+    @Value("${elasticsearch.standing-queries.max-queries:50}")
+    private int maxQueries;
+
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    // Name order, guarded by itself
+    private final Map<String, Registration> registrations = new TreeMap<>();
+    // Serializes registry writes, which happen outside the registrations monitor
+    private final ReentrantLock registryWriteLock = new ReentrantLock();
+
+    public StandingQueryService(RedashSearchService redashSearchService, SearchCostEstimator costEstimator,
+                                ElasticsearchHostSelector hostSelector, ElasticSearchIndexFetcher indexFetcher,
+                                ElasticsearchIndexCatalog indexCatalog, RedashAdmissionController admission,
+                                JsonCodec jsonCodec) {
+        this.redashSearchService = redashSearchService;
+        this.costEstimator = costEstimator;
+        this.hostSelector = hostSelector;
+        this.indexFetcher = indexFetcher;
+        this.indexCatalog = indexCatalog;
+        this.admission = admission;
+        this.jsonCodec = jsonCodec;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory.resolve("snapshots"));
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("standing-query-");
+        scheduler.initialize();
+
+        Path registryFile = directory.resolve("registry.json");
+        if (Files.exists(registryFile)) {
+            for (JsonNode item : jsonCodec.readTree(Files.readString(registryFile, StandardCharsets.UTF_8))) {
+                StandingQuery query = new StandingQuery(item.path("name").asText(), item.path("query").asText(),
+                        item.path("window").asText(), item.path("schedule").asText());
+                Registration registration = new Registration(query);
+                registration.snapshot = readSnapshot(query.name());
+                synchronized (registrations) {
+                    registrations.put(query.name(), registration);
+                }
+                schedule(registration);
+            }
+        }
+
+        synchronized (registrations) {
+            int due = 0;
+            for (Registration registration : registrations.values()) {
+                if (!isCurrent(registration)) {
+                    scheduler.schedule(() -> run(registration), Instant.now().plus(startupDelay));
+                    due++;
+                }
+            }
+            log.info("Standing queries in {}: {} registered, {} to run after startup", directory.toAbsolutePath(),
+                    registrations.size(), due);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Snapshot of the standing query matching this search, null when there is none or it is out of date
+     */
+    public String lookup(JsonNode queryNode, List<String> indices, List<RedashSearchService.HostInfo> hosts)
+            throws IOException {
+        if (!enabled) {
+            return null;
+        }
+        String key = key(jsonCodec.writeCanonical(queryNode), indices, hosts.stream().map(host -> host.hostName).toList());
+        List<Registration> candidates;
+        synchronized (registrations) {
+            candidates = new ArrayList<>(registrations.values());
+        }
+        for (Registration registration : candidates) {
+            Snapshot snapshot = registration.snapshot;
+            if (snapshot == null || !snapshot.key().equals(key)
+                    || System.currentTimeMillis() - snapshot.computedAt() > maxAge.toMillis()) {
+                continue;
+            }
+            ObjectNode response = (ObjectNode) jsonCodec.readTree(snapshot.responseJson());
+            ObjectNode standing = ((ObjectNode) response.path("metadata")).putObject("standing_query");
+            standing.put("name", registration.query.name());
+            standing.put("computed_at", Instant.ofEpochMilli(snapshot.computedAt()).atZone(zone).toOffsetDateTime().toString());
+            standing.put("age_ms", System.currentTimeMillis() - snapshot.computedAt());
+            log.info("es_search served from standing query {}", registration.query.name());
+            return jsonCodec.write(response);
+        }
+        return null;
+    }
+
+    /**
+     * Register (or replace) a standing query and run it once, so it serves searches right away
+     */
+    public ObjectNode add(String name, String queryDsl, String window, String schedule) throws IOException {
+        if (!enabled) {
+            throw new IllegalStateException("Standing queries are disabled");
+        }
+        if (name == null || !NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("Name must be 1-64 letters, digits, '-' or '_'");
+        }
+        String cron = schedule == null || schedule.isBlank() ? defaultSchedule : schedule.trim();
+        if (!CronExpression.isValidExpression(cron)) {
+            throw new IllegalArgumentException("Invalid cron schedule (second minute hour day month weekday): " + cron);
+        }
+        StandingQuery query = new StandingQuery(name, queryDsl, window, cron);
+        // Fails on a window rule that is not understood or a DSL that is not valid JSON once resolved
+        resolve(query);
+
+        Registration registration = new Registration(query);
+        Registration replaced;
+        synchronized (registrations) {
+            if (!registrations.containsKey(name) && registrations.size() >= maxQueries) {
+                throw new IllegalArgumentException("At most " + maxQueries + " standing queries can be registered");
+            }
+            replaced = registrations.put(name, registration);
+        }
+        saveRegistry();
+        if (replaced != null) {
+            replaced.cancel();
+        }
+        schedule(registration);
+        run(registration);
+        return describe(registration);
+    }
+
+    /**
+     * Unregister a standing query and delete its snapshot
+     */
+    public boolean remove(String name) throws IOException {
+        Registration removed;
+        synchronized (registrations) {
+            removed = registrations.remove(name);
+        }
+        if (removed == null) {
+            return false;
+        }
+        saveRegistry();
+        removed.cancel();
+        if (NAME_PATTERN.matcher(name).matches()) {
+            Files.deleteIfExists(snapshotFile(name));
+        }
+        return true;
+    }
+
+    /**
+     * Run a registered standing query now
+     */
+    public ObjectNode runNow(String name) {
+        Registration registration;
+        synchronized (registrations) {
+            registration = registrations.get(name);
+        }
+        if (registration == null) {
+            throw new IllegalArgumentException("No standing query named " + name);
+        }
+        run(registration);
+        return describe(registration);
+    }
+
+    /**
+     * Registered standing queries with their schedule and last snapshot
+     */
+    public ArrayNode list() {
+        ArrayNode list = jsonCodec.createArrayNode();
+        synchronized (registrations) {
+            registrations.values().forEach(registration -> list.add(describe(registration)));
+        }
+        return list;
+    }
+
+    /**
+     * Search the resolved window and replace the snapshot, the previous one is kept when the search fails
+     */
+    private void run(Registration registration) {
+        // Held for the whole search, a lock rather than a monitor so that a virtual thread is not pinned on Redash
+        registration.running.lock();
+        try {
+            if (registration.cancelled) {
+                return;
+            }
+            StandingQuery query = registration.query;
+            try {
+                Resolved resolved = resolve(query);
+                JsonNode queryNode = jsonCodec.readTree(resolved.queryDsl());
+                admission.checkRate(CLIENT_ID, costEstimator.probeJobs(queryNode, resolved.indices(), resolved.hosts()));
+                SearchCostEstimator.SearchPlan plan = costEstimator.plan(queryNode, resolved.indices(), resolved.hosts());
+                admission.checkRate(CLIENT_ID, costEstimator.redashJobs(plan, queryNode, resolved.hosts()));
+                if (plan.strategy() == SearchStrategyEnum.REFUSE) {
+                    registration.lastError = plan.reason();
+                    log.warn("Standing query {} refused: {}", query.name(), plan.reason());
+                    return;
+                }
+
+                long startNanos = System.nanoTime();
+                RedashSearchService.SearchResult result = redashSearchService.executeMultiHostSearch(
+                        resolved.queryDsl(), resolved.indices(), resolved.hosts(), false, plan);
+                JsonNode response = jsonCodec.readTree(result.json());
+                if (result.successfulHosts() < resolved.hosts().size() || !response.path("query_result").isObject()) {
+                    registration.lastError = "Search failed on " + (resolved.hosts().size() - result.successfulHosts())
+                            + " of " + resolved.hosts().size() + " hosts";
+                    log.warn("Standing query {}: {}, keeping the previous snapshot", query.name(), registration.lastError);
+                    return;
+                }
+
+                Snapshot snapshot = new Snapshot(resolved.key(), System.currentTimeMillis(), resolved.startDate(),
+                        resolved.endDate(), result.json());
+                writeSnapshot(query.name(), snapshot);
+                registration.snapshot = snapshot;
+                registration.lastError = null;
+                log.info("Standing query {} ran for {} to {} in {} ms", query.name(), resolved.startDate(),
+                        resolved.endDate(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+            } catch (RedashAdmissionController.RejectedException e) {
+                registration.lastError = e.getMessage();
+                log.warn("Standing query {} rejected, retrying in {} ms", query.name(), e.getRetryAfterMs());
+                scheduler.schedule(() -> run(registration), Instant.now().plusMillis(Math.max(1000, e.getRetryAfterMs())));
+            } catch (Exception e) {
+                registration.lastError = e.getMessage();
+                log.error("Standing query {} failed", query.name(), e);
+            }
+        } finally {
+            registration.running.unlock();
+        }
+    }
+
+    private void schedule(Registration registration) {
+        if (!CronExpression.isValidExpression(registration.query.schedule())) {
+            log.warn("Standing query {} has an invalid schedule {}, it only runs on demand",
+                    registration.query.name(), registration.query.schedule());
+            return;
+        }
+        registration.future = scheduler.schedule(() -> run(registration),
+                new CronTrigger(registration.query.schedule(), zone));
+    }
+
+    /**
+     * Whether the snapshot is recent enough and was computed for the window as it resolves today
+     */
+    private boolean isCurrent(Registration registration) {
+        Snapshot snapshot = registration.snapshot;
+        if (snapshot == null || System.currentTimeMillis() - snapshot.computedAt() > maxAge.toMillis()) {
+            return false;
+        }
+        try {
+            return resolve(registration.query).key().equals(snapshot.key());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * The window as dates, the DSL with them filled in, and the hosts and indices es_host / es_indices give for them
+     */
+    private Resolved resolve(StandingQuery query) throws IOException {
+        DateExpressionParser.DateRange range = DateExpressionParser.parse(query.window(), LocalDate.now(DateFormatUtility.IST_ZONE));
+        if (range == null) {
+            throw new IllegalArgumentException("Date window not understood: " + query.window()
+                    + " (e.g. 'yesterday', 'last 7 days', 'this month')");
+        }
+        String startDate = DateFormatUtility.formatDate(range.start());
+        String endDate = DateFormatUtility.formatDateEndOfDay(range.end());
+        JsonNode queryNode = jsonCodec.readTree(query.queryDsl()
+                .replace(START_PLACEHOLDER, startDate)
+                .replace(END_PLACEHOLDER, endDate));
+        if (!queryNode.isObject()) {
+            throw new IllegalArgumentException("Query DSL must be a JSON object");
+        }
+
+        List<RedashSearchService.HostInfo> hosts = new ArrayList<>();
+        for (HostCoverage coverage : hostSelector.selectHost(startDate, endDate)) {
+            Tier tier = hostSelector.getTier(coverage.host());
+            hosts.add(new RedashSearchService.HostInfo(tier.getDisplayName(), tier.getDataSourceIds(), tier.isImmutable()));
+        }
+        List<String> indices = indexCatalog.retainExistingOnAnyHost(indexFetcher.findIndicesForDateRange(startDate, endDate));
+        String canonical = jsonCodec.writeCanonical(queryNode);
+        return new Resolved(jsonCodec.write(queryNode), startDate, endDate, hosts, indices,
+                key(canonical, indices, hosts.stream().map(host -> host.hostName).toList()));
+    }
+
+    /**
+     * Canonical query, indices and hosts, the order indices and hosts are listed in does not matter
+     */
+    private static String key(String canonicalQuery, List<String> indices, List<String> hostNames) {
+        return canonicalQuery + '|' + new TreeSet<>(indices) + '|' + new TreeSet<>(hostNames);
+    }
+
+    private ObjectNode describe(Registration registration) {
+        ObjectNode node = jsonCodec.createObjectNode();
+        node.put("name", registration.query.name());
+        node.put("window", registration.query.window());
+        node.put("schedule", registration.query.schedule());
+        node.put("query", registration.query.queryDsl());
+        ScheduledFuture<?> future = registration.future;
+        if (future != null && !future.isDone()) {
+            ZonedDateTime next = CronExpression.parse(registration.query.schedule()).next(ZonedDateTime.now(zone));
+            if (next != null) {
+                node.put("next_run", next.toOffsetDateTime().toString());
+            }
+        }
+        Snapshot snapshot = registration.snapshot;
+        if (snapshot != null) {
+            ObjectNode snapshotNode = node.putObject("snapshot");
+            snapshotNode.put("computed_at", Instant.ofEpochMilli(snapshot.computedAt()).atZone(zone).toOffsetDateTime().toString());
+            snapshotNode.put("startDate", snapshot.startDate());
+            snapshotNode.put("endDate", snapshot.endDate());
+            snapshotNode.put("current", isCurrent(registration));
+        }
+        if (registration.lastError != null) {
+            node.put("last_error", registration.lastError);
+        }
+        return node;
+    }
+
+    /**
+     * Write the registry, callers must not hold the registrations monitor
+     * Writes are serialized and each one reads the registrations after the previous write, so the file never
+     * goes back to an older state
+     */
+    private void saveRegistry() throws IOException {
+        registryWriteLock.lock();
+        try {
+            ArrayNode json = jsonCodec.createArrayNode();
+            synchronized (registrations) {
+                for (Registration registration : registrations.values()) {
+                    json.addObject()
+                            .put("name", registration.query.name())
+                            .put("query", registration.query.queryDsl())
+                            .put("window", registration.query.window())
+                            .put("schedule", registration.query.schedule());
+                }
+            }
+            replace(directory.resolve("registry.json"), jsonCodec.write(json));
+        } finally {
+            registryWriteLock.unlock();
+        }
+    }
+
+    private void writeSnapshot(String name, Snapshot snapshot) throws IOException {
+        ObjectNode json = jsonCodec.createObjectNode();
+        json.put("key", snapshot.key());
+        json.put("computedAt", snapshot.computedAt());
+        json.put("startDate", snapshot.startDate());
+        json.put("endDate", snapshot.endDate());
+        json.set("response", jsonCodec.readTree(snapshot.responseJson()));
+        replace(snapshotFile(name), jsonCodec.write(json));
+    }
+
+    private Snapshot readSnapshot(String name) {
+        Path file = snapshotFile(name);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            JsonNode json = jsonCodec.readTree(Files.readString(file, StandardCharsets.UTF_8));
+            return new Snapshot(json.path("key").asText(), json.path("computedAt").asLong(),
+                    json.path("startDate").asText(), json.path("endDate").asText(), jsonCodec.write(json.get("response")));
+        } catch (Exception e) {
+            // The query runs again after startup
+            log.warn("Ignoring unreadable standing query snapshot {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private Path snapshotFile(String name) {
+        return directory.resolve("snapshots").resolve(name + ".json");
+    }
+
+    /**
+     * Replace a file atomically, a crash never leaves it half written
+     */
+    private void replace(Path file, String content) throws IOException {
+        Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(temporary, content, StandardCharsets.UTF_8);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // Helper classes
+
+    /**
+     * Registered query with its schedule and latest snapshot, runs hold its lock
+     */
+    private static class Registration {
+        final StandingQuery query;
+        // One run at a time per standing query
+        final ReentrantLock running = new ReentrantLock();
+        volatile ScheduledFuture<?> future;
+        volatile Snapshot snapshot;
+        volatile String lastError;
+        volatile boolean cancelled;
+
+        Registration(StandingQuery query) {
+            this.query = query;
+        }
+
+        void cancel() {
+            cancelled = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    public record StandingQuery(String name, String queryDsl, String window, String schedule) {}
+
+    private record Resolved(String queryDsl, String startDate, String endDate, List<RedashSearchService.HostInfo> hosts,
+                            List<String> indices, String key) {}
+
+    private record Snapshot(String key, long computedAt, String startDate, String endDate, String responseJson) {}
+}
@@ -0,0 +1,50 @@
+package com.paytm.mcpserver.service;
+
+import com.paytm.mcpserver.config.EsTierProperties;
+import com.paytm.mcpserver.config.EsTierProperties.Tier;
+import com.paytm.mcpserver.utility.DateFormatUtility;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Local index catalog source for tests and offline runs
+ *
+ * Assumes every monthly index inside a tier's retention window exists on each
+ * of its data sources, without talking to Redash.
+ */
+@Service
+@ConditionalOnProperty(name = "elasticsearch.index-catalog.source", havingValue = "stub")
+public class StubIndexCatalogSource implements IndexCatalogSource {
+
+    private final EsTierProperties tierProperties;
+    private final ElasticSearchIndexFetcher indexFetcher;
+
+    public StubIndexCatalogSource(EsTierProperties tierProperties, ElasticSearchIndexFetcher indexFetcher) {
+        this.tierProperties = tierProperties;
+        this.indexFetcher = indexFetcher;
+    }
+
+    @Override
+    public Set<String> fetchIndices(Tier tier, Integer dataSourceId) {
+        List<Tier> tiers = tierProperties.getTiers();
+        int position = tiers.indexOf(tier);
+        LocalDate today = LocalDate.now(DateFormatUtility.IST_ZONE);
+
+        YearMonth newest = position <= 0
+                ? YearMonth.from(today)
+                : YearMonth.from(tiers.get(position - 1).lowerBound(today).minusDays(1));
+        YearMonth oldest = YearMonth.from(tier.lowerBound(today));
+
+        Set<String> indices = new HashSet<>();
+        for (YearMonth month = oldest; !month.isAfter(newest); month = month.plusMonths(1)) {
+            indices.add(indexFetcher.getIndexName(month).replace("*", ""));
+        }
+        return indices;
+    }
+}
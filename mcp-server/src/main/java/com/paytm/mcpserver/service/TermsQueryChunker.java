@@ -0,0 +1,147 @@
+package com.paytm.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits a query with an oversized terms filter (e.g. 5,000 entityIds) into bounded sub-queries
+ *
+ * Only a terms clause that is required (under query, bool.filter or bool.must, not under should or
+ * must_not) is split, the union of the sub-query results is then the result of the original query.
+ * Sub-queries keep the sort and size of the original, their rows are merged back per host with
+ * the original sort and truncated to size. Queries with aggregations are not split.
+ * Every sub-query holds at most max-terms values, a query needing more than max-chunks of them is
+ * refused by the search plan.
+ */
+@Service
+@Log4j2
+public class TermsQueryChunker {
+
+    @Value("${elasticsearch.terms-chunking.enabled:true}")
+    private boolean enabled;
+
+    @Value("${elasticsearch.terms-chunking.max-terms:1000}")
+    private int maxTerms;
+
+    @Value("${elasticsearch.terms-chunking.max-chunks:20}")
+    private int maxChunks;
+
+    public int getMaxChunks() {
+        return maxChunks;
+    }
+
+    public int getMaxTerms() {
+        return maxTerms;
+    }
+
+    /**
+     * Number of sub-queries the query is split into, 0 when it does not need to be split
+     */
+    public int chunkCount(JsonNode queryNode) {
+        TermsClause largest = splittableTerms(queryNode);
+        return largest == null ? 0 : (largest.values.size() + maxTerms - 1) / maxTerms;
+    }
+
+    /**
+     * Sub-queries of the query, empty when it does not need to be split
+     *
+     * @throws IllegalArgumentException when it needs more than max-chunks sub-queries
+     */
+    public List<JsonNode> split(JsonNode queryNode) {
+        TermsClause largest = splittableTerms(queryNode);
+        if (largest == null) {
+            return List.of();
+        }
+
+        int values = largest.values.size();
+        int chunkCount = (values + maxTerms - 1) / maxTerms;
+        if (chunkCount > maxChunks) {
+            throw new IllegalArgumentException(String.format("terms filter on %s has %d values, at most %d (%d sub-queries of %d) can be searched",
+                    largest.field, values, maxChunks * maxTerms, maxChunks, maxTerms));
+        }
+        List<JsonNode> chunks = new ArrayList<>(chunkCount);
+        for (int from = 0; from < values; from += maxTerms) {
+            ArrayNode slice = largest.values.arrayNode();
+            for (int i = from; i < Math.min(values, from + maxTerms); i++) {
+                slice.add(largest.values.get(i));
+            }
+            largest.clause.set(largest.field, slice);
+            chunks.add(queryNode.deepCopy());
+        }
+        // Leave the original query as it was
+        largest.clause.set(largest.field, largest.values);
+        log.info("Split terms filter on {} with {} values into {} sub-queries", largest.field, values, chunks.size());
+        return chunks;
+    }
+
+    /**
+     * Largest required terms clause when it has more than max-terms values and the query can be split, else null
+     */
+    private TermsClause splittableTerms(JsonNode queryNode) {
+        if (!enabled || !queryNode.has("query")) {
+            return null;
+        }
+        TermsClause largest = findLargestTerms(queryNode, "query", null);
+        if (largest == null || largest.values.size() <= maxTerms) {
+            return null;
+        }
+        if (queryNode.has("aggs") || queryNode.has("aggregations")) {
+            log.warn("terms filter on {} has {} values but the query has aggregations, it is not split",
+                    largest.field, largest.values.size());
+            return null;
+        }
+        return largest;
+    }
+
+    /**
+     * Largest terms clause with an array of values under parent.name, skipping optional contexts
+     */
+    private TermsClause findLargestTerms(JsonNode parent, String name, TermsClause largest) {
+        JsonNode node = parent.get(name);
+        if (node == null) {
+            return largest;
+        }
+        if (node.isArray()) {
+            for (JsonNode item : node) {
+                largest = findLargestTermsIn(item, largest);
+            }
+            return largest;
+        }
+        return findLargestTermsIn(node, largest);
+    }
+
+    private TermsClause findLargestTermsIn(JsonNode node, TermsClause largest) {
+        if (!node.isObject()) {
+            return largest;
+        }
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> entry = fields.next();
+            String clause = entry.getKey();
+            if ("terms".equals(clause) && entry.getValue().isObject()) {
+                Iterator<Map.Entry<String, JsonNode>> terms = entry.getValue().fields();
+                while (terms.hasNext()) {
+                    Map.Entry<String, JsonNode> term = terms.next();
+                    if (term.getValue().isArray() && (largest == null || term.getValue().size() > largest.values.size())) {
+                        largest = new TermsClause((ObjectNode) entry.getValue(), term.getKey(), (ArrayNode) term.getValue());
+                    }
+                }
+            } else if ("bool".equals(clause) || "filter".equals(clause) || "must".equals(clause)
+                    || "constant_score".equals(clause)) {
+                largest = findLargestTerms(node, clause, largest);
+            }
+        }
+        return largest;
+    }
+
+    private record TermsClause(ObjectNode clause, String field, ArrayNode values) {}
+}
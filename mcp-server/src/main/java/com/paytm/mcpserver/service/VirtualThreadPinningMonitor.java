@@ -0,0 +1,82 @@
+package com.paytm.mcpserver.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pinning diagnostics of the virtual-thread mode ({@code spring.threads.virtual.enabled=true})
+ *
+ * A virtual thread that blocks inside a synchronized block or a native frame stays pinned to its carrier,
+ * a few of them stall every other virtual thread. The JDK reports them as jdk.VirtualThreadPinned JFR events,
+ * streamed here in-process for blocks longer than {@code mcp.virtual-threads.pinned-threshold}: each one is
+ * recorded in mcp.virtual_threads.pinned under its innermost application frame, the first one of a frame is
+ * logged with its stack.
+ */
+@Service
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@Log4j2
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APPLICATION_PACKAGE = "com.paytm.";
+    private static final int LOGGED_FRAMES = 12;
+
+    private final McpMetrics metrics;
+    private final Set<String> loggedFrames = ConcurrentHashMap.newKeySet();
+    private RecordingStream stream;
+
+    @Value("${mcp.virtual-threads.pinned-threshold:PT0.02S}")
+    private Duration threshold;
+
+    public VirtualThreadPinningMonitor(McpMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("Reporting virtual threads pinned for more than {} ms", threshold.toMillis());
+    }
+
+    @PreDestroy
+    void stop() {
+        stream.close();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        List<RecordedFrame> frames = event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames();
+        String frame = frames.stream()
+                .filter(candidate -> candidate.getMethod().getType().getName().startsWith(APPLICATION_PACKAGE))
+                .findFirst()
+                .map(VirtualThreadPinningMonitor::describe)
+                .orElse("unknown");
+        metrics.recordVirtualThreadPinned(frame, event.getDuration().toNanos());
+
+        if (loggedFrames.add(frame)) {
+            StringBuilder stack = new StringBuilder();
+            frames.stream().limit(LOGGED_FRAMES).forEach(candidate -> stack.append("\n\tat ").append(describe(candidate)));
+            log.warn("Virtual thread {} pinned for {} ms at {}, later pins here are only counted:{}",
+                    event.getThread() == null ? "?" : event.getThread().getJavaName(),
+                    event.getDuration().toMillis(), frame, stack);
+        }
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
@@ -0,0 +1,331 @@
+package com.paytm.mcpserver.utility;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts a date range from a natural language prompt, evaluated in IST
+ *
+ * Supported expressions (case-insensitive):
+ * - "between 1 Jan and 15 Feb", "from 2025-01-01 to 2025-01-31"
+ * - "since March", "since 15 Jan 2025"
+ * - "last 7 days", "past 3 months" (rolling window ending today)
+ * - "today", "yesterday", "day before yesterday"
+ * - "this week|month|quarter|year", "last week|month|quarter|year" (calendar periods)
+ * - "this financial year", "last FY", "FY24", "FY 2023-24", "Q2 FY25" (Indian FY, April to March)
+ * - "in March", "March 2024", "on 15 Jan 2025", "15/01/2025"
+ *
+ * End dates are clamped to today; month names without a year resolve to the most recent past occurrence.
+ */
+public final class DateExpressionParser {
+
+    private static final String MONTH = "(jan(?:uary)?|feb(?:ruary)?|mar(?:ch)?|apr(?:il)?|may|june?|july?|aug(?:ust)?"
+            + "|sep(?:t(?:ember)?)?|oct(?:ober)?|nov(?:ember)?|dec(?:ember)?)";
+    private static final String DAY_SUFFIX = "(?:st|nd|rd|th)?";
+    private static final String STOP = "(?=$|[?.!;,]|\\s+(?:for|of|with|where|whose|on|by|in|and|at|from)\\b)";
+
+    // Whole-range expressions
+    private static final Pattern BETWEEN_PATTERN = Pattern.compile(
+            "\\b(?:between|from)\\s+(.+?)\\s+(?:and|to|till|until|through)\\s+(.+?)" + STOP.replace("|and|", "|"));
+    private static final Pattern SINCE_PATTERN = Pattern.compile("\\b(?:since|after)\\s+(.+?)" + STOP);
+    private static final Pattern LAST_N_PATTERN = Pattern.compile(
+            "\\b(?:last|past|previous)\\s+(\\d{1,4})\\s+(day|week|month|year)s?\\b");
+    private static final Pattern RELATIVE_DAY_PATTERN = Pattern.compile("\\b(day before yesterday|yesterday|today)\\b");
+    private static final Pattern FY_QUARTER_PATTERN = Pattern.compile(
+            "\\bq([1-4])\\s*(?:of\\s+)?fy\\s*'?(\\d{2}|\\d{4})(?:\\s*[-/]\\s*(\\d{2}|\\d{4}))?\\b");
+    private static final Pattern FY_PATTERN = Pattern.compile("\\bfy\\s*'?(\\d{2}|\\d{4})(?:\\s*[-/]\\s*(\\d{2}|\\d{4}))?\\b");
+    private static final Pattern PERIOD_PATTERN = Pattern.compile(
+            "\\b(this|current|last|previous|past)\\s+(week|month|quarter|year|financial year|fiscal year|fy)\\b");
+    private static final Pattern MONTH_PERIOD_PATTERN = Pattern.compile(
+            "\\b(?:in|during|for|of)\\s+" + MONTH + "(?:\\s*'?(\\d{4}|\\d{2}))?\\b|\\b" + MONTH + "\\s*'?(\\d{4})\\b");
+    private static final Pattern SINGLE_DATE_PATTERN = Pattern.compile(
+            "\\b(\\d{4}-\\d{1,2}-\\d{1,2}|\\d{1,2}[/.-]\\d{1,2}[/.-]\\d{2,4}|\\d{1,2}" + DAY_SUFFIX + "\\s+" + MONTH
+                    + "(?:,?\\s+\\d{4})?|" + MONTH + "\\s+\\d{1,2}" + DAY_SUFFIX + "(?:,?\\s+\\d{4})?)\\b");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern LEADING_THE = Pattern.compile("^the\\s+");
+
+    // Single date points inside range expressions
+    private static final Pattern ISO_POINT = Pattern.compile("(\\d{4})-(\\d{1,2})-(\\d{1,2})");
+    private static final Pattern NUMERIC_POINT = Pattern.compile("(\\d{1,2})[/.-](\\d{1,2})[/.-](\\d{4}|\\d{2})");
+    private static final Pattern DAY_MONTH_POINT = Pattern.compile(
+            "(\\d{1,2})" + DAY_SUFFIX + "\\s+(?:of\\s+)?" + MONTH + "(?:,?\\s+(\\d{4}))?");
+    private static final Pattern MONTH_DAY_POINT = Pattern.compile(MONTH + "\\s+(\\d{1,2})" + DAY_SUFFIX + "(?:,?\\s+(\\d{4}))?");
+    private static final Pattern MONTH_POINT = Pattern.compile(MONTH + "(?:\\s*'?(\\d{4}|\\d{2}))?");
+
+    private DateExpressionParser() {
+    }
+
+    /**
+     * Date range extracted from a prompt
+     *
+     * @param start first day of the range
+     * @param end last day of the range (never after today)
+     * @param expression the prompt fragment the range was derived from
+     */
+    public record DateRange(LocalDate start, LocalDate end, String expression) {}
+
+    /**
+     * Parse the first supported date expression in a prompt
+     *
+     * @param text natural language prompt
+     * @param today current date in IST
+     * @return the extracted range, or null if the prompt has no recognisable date expression
+     */
+    public static DateRange parse(String text, LocalDate today) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        String prompt = WHITESPACE.matcher(text.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+
+        Matcher matcher = BETWEEN_PATTERN.matcher(prompt);
+        while (matcher.find()) {
+            LocalDate start = parsePoint(matcher.group(1), today, null, false);
+            LocalDate end = start == null ? null : parsePoint(matcher.group(2), today, start, true);
+            if (start != null && end != null) {
+                return range(start, end, today, matcher.group());
+            }
+        }
+
+        matcher = SINCE_PATTERN.matcher(prompt);
+        while (matcher.find()) {
+            LocalDate start = parsePoint(matcher.group(1), today, null, false);
+            if (start != null) {
+                return range(start, today, today, matcher.group());
+            }
+        }
+
+        matcher = LAST_N_PATTERN.matcher(prompt);
+        if (matcher.find()) {
+            int amount = Integer.parseInt(matcher.group(1));
+            LocalDate start = switch (matcher.group(2)) {
+                case "day" -> today.minusDays(amount);
+                case "week" -> today.minusWeeks(amount);
+                case "month" -> today.minusMonths(amount);
+                default -> today.minusYears(amount);
+            };
+            return range(start, today, today, matcher.group());
+        }
+
+        matcher = RELATIVE_DAY_PATTERN.matcher(prompt);
+        if (matcher.find()) {
+            LocalDate day = relativeDay(matcher.group(1), today);
+            return range(day, day, today, matcher.group());
+        }
+
+        matcher = FY_QUARTER_PATTERN.matcher(prompt);
+        if (matcher.find()) {
+            int fyStartYear = fiscalStartYear(matcher.group(2), matcher.group(3));
+            LocalDate start = LocalDate.of(fyStartYear, 4, 1).plusMonths(3L * (Integer.parseInt(matcher.group(1)) - 1));
+            return range(start, start.plusMonths(3).minusDays(1), today, matcher.group());
+        }
+
+        matcher = FY_PATTERN.matcher(prompt);
+        if (matcher.find()) {
+            LocalDate start = LocalDate.of(fiscalStartYear(matcher.group(1), matcher.group(2)), 4, 1);
+            return range(start, start.plusYears(1).minusDays(1), today, matcher.group());
+        }
+
+        matcher = PERIOD_PATTERN.matcher(prompt);
+        if (matcher.find()) {
+            return period(matcher.group(1), matcher.group(2), today, matcher.group());
+        }
+
+        matcher = SINGLE_DATE_PATTERN.matcher(prompt);
+        while (matcher.find()) {
+            LocalDate day = parsePoint(matcher.group(1), today, null, false);
+            if (day != null) {
+                return range(day, day, today, matcher.group());
+            }
+        }
+
+        matcher = MONTH_PERIOD_PATTERN.matcher(prompt);
+        if (matcher.find()) {
+            String month = matcher.group(1) != null ? matcher.group(1) : matcher.group(3);
+            String year = matcher.group(1) != null ? matcher.group(2) : matcher.group(4);
+            YearMonth yearMonth = resolveMonth(month, year, today);
+            return range(yearMonth.atDay(1), yearMonth.atEndOfMonth(), today, matcher.group());
+        }
+
+        return null;
+    }
+
+    /**
+     * Parse a single date point ("15 jan 2025", "2025-01-15", "march", "yesterday")
+     * Month-only points resolve to the first day (start) or last day (end) of the month.
+     *
+     * @param reference start of the range when parsing an end point, used to infer a missing year
+     */
+    private static LocalDate parsePoint(String fragment, LocalDate today, LocalDate reference, boolean end) {
+        String point = LEADING_THE.matcher(fragment.trim()).replaceFirst("");
+
+        if (point.equals("today") || point.equals("now") || point.equals("yesterday") || point.equals("day before yesterday")) {
+            return relativeDay(point, today);
+        }
+
+        Matcher matcher = ISO_POINT.matcher(point);
+        if (matcher.matches()) {
+            return safeDate(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3)));
+        }
+
+        // Numeric dates follow the Indian day-first convention (dd/MM/yyyy)
+        matcher = NUMERIC_POINT.matcher(point);
+        if (matcher.matches()) {
+            return safeDate(fullYear(matcher.group(3)), Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(1)));
+        }
+
+        matcher = DAY_MONTH_POINT.matcher(point);
+        if (matcher.matches()) {
+            return dayOfMonth(Integer.parseInt(matcher.group(1)), matcher.group(2), matcher.group(3), today, reference);
+        }
+
+        matcher = MONTH_DAY_POINT.matcher(point);
+        if (matcher.matches()) {
+            return dayOfMonth(Integer.parseInt(matcher.group(2)), matcher.group(1), matcher.group(3), today, reference);
+        }
+
+        matcher = MONTH_POINT.matcher(point);
+        if (matcher.matches()) {
+            YearMonth yearMonth;
+            if (matcher.group(2) == null && reference != null) {
+                yearMonth = YearMonth.of(reference.getYear(), monthNumber(matcher.group(1)));
+                if (yearMonth.isBefore(YearMonth.from(reference))) {
+                    yearMonth = yearMonth.plusYears(1);
+                }
+            } else {
+                yearMonth = resolveMonth(matcher.group(1), matcher.group(2), today);
+            }
+            return end ? yearMonth.atEndOfMonth() : yearMonth.atDay(1);
+        }
+
+        return null;
+    }
+
+    private static LocalDate dayOfMonth(int day, String month, String year, LocalDate today, LocalDate reference) {
+        int monthNumber = monthNumber(month);
+        if (year != null) {
+            return safeDate(Integer.parseInt(year), monthNumber, day);
+        }
+        if (reference != null) {
+            LocalDate candidate = safeDate(reference.getYear(), monthNumber, day);
+            return candidate != null && candidate.isBefore(reference) ? safeDate(reference.getYear() + 1, monthNumber, day) : candidate;
+        }
+        // Without a year, pick the most recent occurrence that is not in the future
+        LocalDate candidate = safeDate(today.getYear(), monthNumber, day);
+        return candidate != null && candidate.isAfter(today) ? safeDate(today.getYear() - 1, monthNumber, day) : candidate;
+    }
+
+    private static DateRange period(String qualifier, String unit, LocalDate today, String expression) {
+        boolean current = qualifier.equals("this") || qualifier.equals("current");
+
+        // "past week" is a rolling window, "last week" the previous calendar week
+        if (qualifier.equals("past")) {
+            LocalDate start = switch (unit) {
+                case "week" -> today.minusWeeks(1);
+                case "month" -> today.minusMonths(1);
+                case "quarter" -> today.minusMonths(3);
+                default -> today.minusYears(1);
+            };
+            return range(start, today, today, expression);
+        }
+
+        switch (unit) {
+            case "week": {
+                LocalDate monday = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                LocalDate start = current ? monday : monday.minusWeeks(1);
+                return range(start, start.plusDays(6), today, expression);
+            }
+            case "month": {
+                YearMonth month = current ? YearMonth.from(today) : YearMonth.from(today).minusMonths(1);
+                return range(month.atDay(1), month.atEndOfMonth(), today, expression);
+            }
+            case "quarter": {
+                LocalDate quarterStart = LocalDate.of(today.getYear(), ((today.getMonthValue() - 1) / 3) * 3 + 1, 1);
+                LocalDate start = current ? quarterStart : quarterStart.minusMonths(3);
+                return range(start, start.plusMonths(3).minusDays(1), today, expression);
+            }
+            case "year": {
+                LocalDate start = LocalDate.of(current ? today.getYear() : today.getYear() - 1, 1, 1);
+                return range(start, start.plusYears(1).minusDays(1), today, expression);
+            }
+            default: {
+                // Indian financial year: April to March
+                int fyStartYear = today.getMonthValue() >= 4 ? today.getYear() : today.getYear() - 1;
+                LocalDate start = LocalDate.of(current ? fyStartYear : fyStartYear - 1, 4, 1);
+                return range(start, start.plusYears(1).minusDays(1), today, expression);
+            }
+        }
+    }
+
+    /**
+     * Calendar year in which a financial year starts: FY24, FY2024 and FY 2023-24 all start in April 2023
+     */
+    private static int fiscalStartYear(String first, String second) {
+        if (second != null) {
+            return fullYear(first);
+        }
+        return fullYear(first) - 1;
+    }
+
+    private static YearMonth resolveMonth(String month, String year, LocalDate today) {
+        int monthNumber = monthNumber(month);
+        if (year != null) {
+            return YearMonth.of(fullYear(year), monthNumber);
+        }
+        YearMonth candidate = YearMonth.of(today.getYear(), monthNumber);
+        return candidate.isAfter(YearMonth.from(today)) ? candidate.minusYears(1) : candidate;
+    }
+
+    private static LocalDate relativeDay(String expression, LocalDate today) {
+        return switch (expression) {
+            case "yesterday" -> today.minusDays(1);
+            case "day before yesterday" -> today.minusDays(2);
+            default -> today;
+        };
+    }
+
+    private static DateRange range(LocalDate start, LocalDate end, LocalDate today, String expression) {
+        if (start == null || end == null) {
+            return null;
+        }
+        LocalDate clampedEnd = end.isAfter(today) ? today : end;
+        if (start.isAfter(clampedEnd)) {
+            return null;
+        }
+        return new DateRange(start, clampedEnd, expression.trim());
+    }
+
+    private static int monthNumber(String month) {
+        return switch (month.substring(0, 3)) {
+            case "jan" -> 1;
+            case "feb" -> 2;
+            case "mar" -> 3;
+            case "apr" -> 4;
+            case "may" -> 5;
+            case "jun" -> 6;
+            case "jul" -> 7;
+            case "aug" -> 8;
+            case "sep" -> 9;
+            case "oct" -> 10;
+            case "nov" -> 11;
+            default -> 12;
+        };
+    }
+
+    private static int fullYear(String year) {
+        int value = Integer.parseInt(year);
+        return year.length() == 2 ? 2000 + value : value;
+    }
+
+    private static LocalDate safeDate(int year, int month, int day) {
+        if (month < 1 || month > 12 || day < 1 || day > YearMonth.of(year, month).lengthOfMonth()) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+}
@@ -1,17 +1,22 @@
 package com.paytm.mcpserver.utility;
 
+import java.text.ParsePosition;
 import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
 
 /**
  * Utility class for handling ISO 8601 date format consistently across the application
  */
 public class DateFormatUtility {
     
-    private static final ZoneId IST_ZONE = ZoneId.of("Asia/Kolkata");
+    public static final ZoneId IST_ZONE = ZoneId.of("Asia/Kolkata");
     public static final DateTimeFormatter ISO_8601_FORMATTER = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
     
     /**
@@ -43,6 +48,59 @@ public class DateFormatUtility {
         }
     }
     
+    /**
+     * Parse date string in ISO 8601 format to LocalDate without throwing
+     * Accepts the same inputs as {@link #parseDate(String)}
+     *
+     * @param dateString Date in ISO 8601 format
+     * @return LocalDate object, or null if the date format is invalid
+     */
+    public static LocalDate tryParseDate(String dateString) {
+        if (dateString == null) {
+            return null;
+        }
+        String trimmed = dateString.trim();
+        if (trimmed.length() < 10 || trimmed.charAt(4) != '-' || trimmed.charAt(7) != '-') {
+            return null;
+        }
+
+        // Full ISO 8601: validate the time and offset part without exception-driven parsing
+        if (trimmed.length() > 10) {
+            if (trimmed.charAt(10) != 'T') {
+                return null;
+            }
+            ParsePosition position = new ParsePosition(0);
+            TemporalAccessor parsed = ISO_8601_FORMATTER.parseUnresolved(trimmed, position);
+            if (parsed == null || position.getErrorIndex() >= 0 || position.getIndex() != trimmed.length()
+                    || parsed.getLong(ChronoField.HOUR_OF_DAY) > 23 || parsed.getLong(ChronoField.MINUTE_OF_HOUR) > 59) {
+                return null;
+            }
+        }
+
+        int year = parseDigits(trimmed, 0, 4);
+        int month = parseDigits(trimmed, 5, 7);
+        int day = parseDigits(trimmed, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Parse a run of ASCII digits, returns -1 if any character is not a digit
+     */
+    private static int parseDigits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
     /**
      * Format LocalDate to ISO 8601 string with time at start of day (00:00:00)
      * 
@@ -76,16 +134,7 @@ public class DateFormatUtility {
      * @return true if valid, false otherwise
      */
     public static boolean isValidDateFormat(String dateString) {
-        if (dateString == null || dateString.trim().isEmpty()) {
-            return false;
-        }
-        
-        try {
-            parseDate(dateString);
-            return true;
-        } catch (IllegalArgumentException e) {
-            return false;
-        }
+        return tryParseDate(dateString) != null;
     }
     
     /**
@@ -0,0 +1,81 @@
+package com.paytm.mcpserver.utility;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.TreeMap;
+
+/**
+ * JSON read/write helpers over the shared ObjectMapper
+ *
+ * ObjectReader/ObjectWriter instances are immutable and thread-safe, creating them once
+ * skips the per call configuration lookups of ObjectMapper.readTree/writeValueAsString.
+ */
+public class JsonCodec {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader treeReader;
+    private final ObjectWriter writer;
+
+    public JsonCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.treeReader = objectMapper.readerFor(JsonNode.class);
+        this.writer = objectMapper.writer();
+    }
+
+    public JsonNode readTree(String json) throws IOException {
+        return treeReader.readTree(json);
+    }
+
+    public String write(Object value) throws IOException {
+        return writer.writeValueAsString(value);
+    }
+
+    /**
+     * JSON text with object fields in name order, equal for queries that only differ in field order
+     */
+    public String writeCanonical(JsonNode node) throws IOException {
+        return write(canonical(node));
+    }
+
+    private JsonNode canonical(JsonNode node) {
+        if (node.isObject()) {
+            TreeMap<String, JsonNode> fields = new TreeMap<>();
+            node.fields().forEachRemaining(field -> fields.put(field.getKey(), canonical(field.getValue())));
+            ObjectNode sorted = objectMapper.createObjectNode();
+            fields.forEach(sorted::set);
+            return sorted;
+        }
+        if (node.isArray()) {
+            ArrayNode copy = objectMapper.createArrayNode();
+            node.forEach(item -> copy.add(canonical(item)));
+            return copy;
+        }
+        return node;
+    }
+
+    public ObjectNode createObjectNode() {
+        return objectMapper.createObjectNode();
+    }
+
+    public ArrayNode createArrayNode() {
+        return objectMapper.createArrayNode();
+    }
+
+    /**
+     * Factory for streaming parsers/generators, used to copy Redash rows without building trees
+     */
+    public JsonFactory getFactory() {
+        return objectMapper.getFactory();
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+}
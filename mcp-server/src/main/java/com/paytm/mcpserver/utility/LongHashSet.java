@@ -0,0 +1,106 @@
+package com.paytm.mcpserver.utility;
+
+/**
+ * Set of 64-bit values in one long[] with open addressing (linear probing)
+ *
+ * About 16 bytes per value at the 0.5 load factor kept here, against roughly 100 for a HashSet of the
+ * key strings, and no allocation per value. 0 marks a free slot, the value 0 itself is tracked apart.
+ * Values are expected to be hashes already; they are mixed again so that clustered values spread over the table.
+ * Not thread-safe.
+ */
+public final class LongHashSet {
+
+    private long[] slots;
+    private int mask;
+    private int size;
+    private boolean containsZero;
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize) * 2 - 1) << 1;
+        slots = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Add the value, false when it was already in the set
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int slot = slot(value, mask);
+        while (slots[slot] != 0) {
+            if (slots[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = value;
+        if (++size * 2 > slots.length) {
+            grow();
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == 0) {
+            return containsZero;
+        }
+        for (int slot = slot(value, mask); slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (slots[slot] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add every value of the other set
+     */
+    public void addAll(LongHashSet other) {
+        if (other.containsZero) {
+            add(0);
+        }
+        for (long value : other.slots) {
+            if (value != 0) {
+                add(value);
+            }
+        }
+    }
+
+    private void grow() {
+        long[] previous = slots;
+        slots = new long[previous.length * 2];
+        mask = slots.length - 1;
+        for (long value : previous) {
+            if (value != 0) {
+                int slot = slot(value, mask);
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = value;
+            }
+        }
+    }
+
+    /**
+     * Finalizer of MurmurHash3 (fmix64), every input bit affects the slot bits
+     */
+    private static int slot(long value, int mask) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return (int) value & mask;
+    }
+}
@@ -0,0 +1,78 @@
+package com.paytm.mcpserver.utility;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.experimental.UtilityClass;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+@UtilityClass
+public class SortOrderUtility {
+
+    /**
+     * Comparator ordering result rows the way the ES sort spec orders hits
+     * Numbers compare numerically, other values as text, rows missing the field go last. An empty or
+     * unsupported sort keeps the rows in their current order.
+     */
+    public Comparator<JsonNode> rowComparator(JsonNode sort) {
+        Comparator<JsonNode> comparator = (a, b) -> 0;
+        for (SortField sortField : sortFields(sort)) {
+            comparator = comparator.thenComparing(fieldComparator(sortField.field(), sortField.descending()));
+        }
+        return comparator;
+    }
+
+    /**
+     * Fields of an ES sort spec in order
+     * Supports "field", "field:desc", {"field": "desc"} and {"field": {"order": "desc"}}, single or in an array.
+     * _score and _doc are skipped (rows carry neither).
+     */
+    public List<SortField> sortFields(JsonNode sort) {
+        List<SortField> sortFields = new ArrayList<>();
+        if (sort == null || sort.isMissingNode() || sort.isNull()) {
+            return sortFields;
+        }
+        for (JsonNode entry : sort.isArray() ? sort : List.of(sort)) {
+            String field = null;
+            boolean descending = false;
+            if (entry.isTextual()) {
+                String[] parts = entry.asText().split(":", 2);
+                field = parts[0].trim();
+                descending = parts.length > 1 && "desc".equalsIgnoreCase(parts[1].trim());
+            } else if (entry.isObject() && entry.size() == 1) {
+                Iterator<Map.Entry<String, JsonNode>> fields = entry.fields();
+                Map.Entry<String, JsonNode> spec = fields.next();
+                field = spec.getKey();
+                JsonNode order = spec.getValue().isTextual() ? spec.getValue() : spec.getValue().path("order");
+                descending = "desc".equalsIgnoreCase(order.asText());
+            }
+            if (field == null || field.isEmpty() || "_score".equals(field) || "_doc".equals(field)) {
+                continue;
+            }
+            sortFields.add(new SortField(field, descending));
+        }
+        return sortFields;
+    }
+
+    private Comparator<JsonNode> fieldComparator(String field, boolean descending) {
+        return (a, b) -> {
+            JsonNode valueA = a.get(field);
+            JsonNode valueB = b.get(field);
+            boolean missingA = valueA == null || valueA.isNull();
+            boolean missingB = valueB == null || valueB.isNull();
+            if (missingA || missingB) {
+                // Missing values sort last in both directions, as in ES
+                return Boolean.compare(missingA, missingB);
+            }
+            int result = valueA.isNumber() && valueB.isNumber()
+                    ? Double.compare(valueA.asDouble(), valueB.asDouble())
+                    : valueA.asText().compareTo(valueB.asText());
+            return descending ? -result : result;
+        };
+    }
+
+    public record SortField(String field, boolean descending) {}
+}
@@ -0,0 +1,23 @@
+package com.paytm.mcpserver.utility;
+
+import lombok.experimental.UtilityClass;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@UtilityClass
+public class ThreadUtility {
+
+    /**
+     * Executor for blocking Redash fan-out work (host searches, batch and export pages)
+     * One virtual thread per task with {@code spring.threads.virtual.enabled}, else a cached pool of platform
+     * threads. Either way the number of tasks is bounded by the Redash slots handed out by admission control.
+     */
+    public ExecutorService newFanOutExecutor(String threadNamePrefix, boolean virtualThreads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadNamePrefix, 1).factory());
+        }
+        return Executors.newCachedThreadPool(new CustomizableThreadFactory(threadNamePrefix));
+    }
+}